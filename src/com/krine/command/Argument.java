@@ -24,26 +24,26 @@ public class Argument {
     }
 
     private void parseArguments(String[] args) {
-        boolean end = false;
-        int parsedIndex;
+        int parsedIndex = 0;
 
-        for (parsedIndex = 0; !end && parsedIndex < args.length; ++parsedIndex) {
+        // options end at the first non-option argument or "--"
+        while (parsedIndex < args.length) {
             String arg = args[parsedIndex];
             if (arg.isEmpty() || arg.charAt(0) != '-') {
-                continue;
+                break;
             }
+            ++parsedIndex;
 
-            switch (args[parsedIndex].substring(1)) {
-                case ARG_DEBUG:
-                    isDebug = true;
-                    break;
-                case "-":
-                    end = true;
-                    break;
+            String option = arg.substring(1);
+            if (option.equals(ARG_END)) {
+                break;
+            }
+            if (option.equals(ARG_DEBUG)) {
+                isDebug = true;
             }
         }
 
-        rest = new String[args.length - parsedIndex + 1];
-        System.arraycopy(args, parsedIndex - 1, rest, 0, rest.length);
+        rest = new String[args.length - parsedIndex];
+        System.arraycopy(args, parsedIndex, rest, 0, rest.length);
     }
 }
@@ -4,9 +4,11 @@ import com.krine.debugger.DefaultDebugger;
 import com.krine.interpreter.KrineInterpreter;
 import com.krine.lang.ast.KrineTargetException;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 
 public class Main {
+    private static final String MODE_COMPILE = "compile";
 
     public static void main(String[] args) {
         Argument argument = new Argument(args);
@@ -18,6 +20,12 @@ public class Main {
             return;
         }
 
+        // a script named "compile" has to be given as ./compile
+        if (rest[0].equals(MODE_COMPILE)) {
+            compile(rest);
+            return;
+        }
+
         String fileName = rest[0];
         KrineInterpreter interpreter = new KrineInterpreter();
         interpreter.setUnchecked("krine.args", rest);
@@ -56,7 +64,31 @@ public class Main {
 
     }
 
+    /**
+     * Write a compiled file next to every given script file.
+     *
+     * @param rest "compile" followed by script file names.
+     */
+    private static void compile(String[] rest) {
+        if (rest.length < 2) {
+            showUsage();
+            return;
+        }
+
+        KrineInterpreter interpreter = new KrineInterpreter();
+        for (int i = 1; i < rest.length; ++i) {
+            try {
+                File compiledFile = interpreter.compileFile(rest[i]);
+                System.out.println(rest[i] + " -> " + compiledFile);
+            } catch (Throwable e) {
+                System.err.println(e.getClass().getCanonicalName() + ": " + e);
+            }
+        }
+    }
+
     private static void showUsage() {
         System.out.println("Usage: krine [-g] [fileName]");
+        System.out.println("       krine compile [fileName...]");
+        System.out.println("A script named \"compile\" is run as ./compile");
     }
 }
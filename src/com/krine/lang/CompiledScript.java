@@ -0,0 +1,120 @@
+package com.krine.lang;
+
+import com.krine.lang.ast.EvalError;
+import com.krine.lang.ast.NameSpace;
+import com.krine.lang.ast.Primitive;
+import com.krine.lang.ast.SimpleNode;
+import com.krine.lang.utils.CallStack;
+
+import java.util.Map;
+
+/**
+ * A script which has been parsed once and can be run many times.
+ * <p>
+ * Running a compiled script evaluates the parsed statements directly with
+ * the krineBasicInterpreter which compiled it, no parser or local
+ * krineBasicInterpreter is created.
+ * <p>
+ * Evaluation keeps state in the statements, e.g. the types resolved with
+ * the imports of the nameSpace, so the script keeps them as parsed and
+ * evaluates copies: the runs in the global nameSpace or with bindings share
+ * one, the runs in other nameSpaces, which may import other classes or
+ * belong to another krineBasicInterpreter, get one of their own.
+ *
+ * @see KrineBasicInterpreter#compile(String)
+ * @see KrineBasicInterpreter#compile(java.io.Reader)
+ */
+public final class CompiledScript {
+    private final KrineBasicInterpreter krineBasicInterpreter;
+    /**
+     * As parsed, never evaluated
+     */
+    private final SimpleNode[] nodes;
+    private final String sourceFileInfo;
+    /**
+     * Evaluated in the global nameSpace and its children, created on the
+     * first run.  Runs racing to create it may evaluate copies of their own.
+     */
+    private volatile SimpleNode[] globalNodes;
+
+    CompiledScript(KrineBasicInterpreter krineBasicInterpreter, SimpleNode[] nodes, String sourceFileInfo) {
+        this.krineBasicInterpreter = krineBasicInterpreter;
+        this.nodes = nodes;
+        this.sourceFileInfo = sourceFileInfo;
+    }
+
+    /**
+     * Run the script in the global nameSpace of its krineBasicInterpreter.
+     */
+    public Object run() throws EvalError {
+        return krineBasicInterpreter.eval(getGlobalNodes(),
+                krineBasicInterpreter.getGlobalNameSpace(), sourceFileInfo);
+    }
+
+    /**
+     * Run the script in the specified nameSpace.
+     *
+     * @return The evaluated object (or corresponding primitive wrapper).
+     */
+    public Object run(NameSpace nameSpace) throws EvalError {
+        return run(krineBasicInterpreter, nameSpace);
+    }
+
+    /**
+     * Run the script with another krineBasicInterpreter, in the specified
+     * nameSpace of it, e.g. its global nameSpace.  The script is not
+     * parsed again.
+     *
+     * @return The evaluated object (or corresponding primitive wrapper).
+     */
+    public Object run(KrineBasicInterpreter krineBasicInterpreter, NameSpace nameSpace)
+            throws EvalError {
+        return krineBasicInterpreter.eval(copyNodes(), nameSpace, sourceFileInfo);
+    }
+
+    /**
+     * Run the script in a fresh nameSpace holding the given bindings
+     * as variables. The nameSpace is a child of the global nameSpace,
+     * so variables created by the script do not leak into the next run.
+     *
+     * @param bindings Variable names and values, null values are
+     *                 mapped to null.
+     */
+    public Object run(Map<String, Object> bindings) throws EvalError {
+        NameSpace nameSpace = new NameSpace(
+                krineBasicInterpreter.getGlobalNameSpace(), "CompiledScript");
+
+        try {
+            for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+                Object value = binding.getValue();
+                nameSpace.setVariable(binding.getKey(),
+                        value == null ? Primitive.NULL : value, false);
+            }
+        } catch (UtilEvalException e) {
+            throw e.toEvalError(SimpleNode.JAVA_CODE, new CallStack());
+        }
+        return krineBasicInterpreter.eval(getGlobalNodes(), nameSpace, sourceFileInfo);
+    }
+
+    private SimpleNode[] getGlobalNodes() {
+        SimpleNode[] globalNodes = this.globalNodes;
+        if (globalNodes == null)
+            this.globalNodes = globalNodes = copyNodes();
+        return globalNodes;
+    }
+
+    private SimpleNode[] copyNodes() {
+        SimpleNode[] copy = new SimpleNode[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            copy[i] = nodes[i].copyTree();
+        return copy;
+    }
+
+    public KrineBasicInterpreter getInterpreter() {
+        return krineBasicInterpreter;
+    }
+
+    public String getSourceFileInfo() {
+        return sourceFileInfo;
+    }
+}
@@ -10,7 +10,9 @@ import krine.module.Module;
 
 import java.io.*;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -87,6 +89,8 @@ public class KrineBasicInterpreter
 
     private Map<String, Module> modules;
 
+    private transient ParseCache parseCache;
+
 	/* --- End instance data --- */
 
     /**
@@ -104,7 +108,6 @@ public class KrineBasicInterpreter
             Reader in, PrintStream out, PrintStream err,
             NameSpace namespace,
             KrineBasicInterpreter parent) {
-        parser = new Parser(in);
         long t1 = 0;
         if (KrineBasicInterpreter.DEBUG) {
             t1 = System.currentTimeMillis();
@@ -312,9 +315,73 @@ public class KrineBasicInterpreter
             throws IOException, EvalError {
         File file = convertToPath(filename);
         if (KrineBasicInterpreter.DEBUG) debug("Sourcing file: " + file);
+
+        // breakpoints need the source text, which compiled files do not keep
+        if (debugger == null) {
+            SimpleNode[] nodes = readCompiledFile(file, filename);
+            if (nodes != null) {
+                return eval(null, nodes, null, null, nameSpace, filename);
+            }
+        }
+        return eval(readFully(file), nameSpace, filename);
+    }
+
+    /**
+     * Read the up-to-date compiled file next to the source file.
+     *
+     * @return Parsed statements, or null if there is no usable compiled file.
+     * @see CompiledFile
+     */
+    private SimpleNode[] readCompiledFile(File file, String sourceFileInfo) {
+        File compiledFile = CompiledFile.getCompiledFile(file);
+        try {
+            SimpleNode[] nodes = CompiledFile.read(compiledFile, file, sourceFileInfo);
+            if (KrineBasicInterpreter.DEBUG && nodes != null)
+                debug("Using compiled file: " + compiledFile);
+            return nodes;
+        } catch (IOException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                debug("Ignoring compiled file: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Parse the script file and write the statements into the compiled
+     * file next to it, which source() prefers as long as the script file
+     * is not modified.
+     *
+     * @return The compiled file.
+     * @see CompiledFile
+     */
+    public File compileFile(String filename)
+            throws IOException, EvalError {
+        File file = convertToPath(filename);
+        File compiledFile = CompiledFile.getCompiledFile(file);
+        if (compiledFile.equals(file))
+            throw new IOException("Not a script file: " + file);
+
+        SimpleNode[] nodes;
         try (Reader sourceIn = new BufferedReader(new FileReader(file))) {
-            return eval(sourceIn, nameSpace, filename);
+            nodes = parse(sourceIn, filename);
         }
+        CompiledFile.write(nodes, file, compiledFile);
+        return compiledFile;
+    }
+
+    /**
+     * Read the whole text of a script file.
+     */
+    private static String readFully(File file) throws IOException {
+        StringBuilder text = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE));
+        char[] buffer = new char[8192];
+        try (Reader sourceIn = new BufferedReader(new FileReader(file))) {
+            int count;
+            while ((count = sourceIn.read(buffer)) != -1) {
+                text.append(buffer, 0, count);
+            }
+        }
+        return text.toString();
     }
 
     /**
@@ -352,6 +419,45 @@ public class KrineBasicInterpreter
             Reader in, NameSpace nameSpace, String sourceFileInfo
             /*, CallStack callStack */)
             throws EvalError {
+        return eval(in, null, null, null, nameSpace, sourceFileInfo);
+    }
+
+    /**
+     * Evaluate script text in the specified nameSpace, reusing the
+     * parsed statements from the parse cache when the same text
+     * has been evaluated before.
+     *
+     * @see #getParseCache()
+     */
+    public Object eval(String text, NameSpace nameSpace, String sourceFileInfo)
+            throws EvalError {
+        ParseCache cache = getParseCache();
+        SimpleNode[] nodes = cache.get(text, sourceFileInfo);
+        if (nodes != null) {
+            return eval(null, nodes, null, null, nameSpace, sourceFileInfo);
+        }
+
+        List<SimpleNode> parsed = cache.getMaxSize() > 0 ? new ArrayList<SimpleNode>() : null;
+        Object retVal = eval(new StringReader(text), null, parsed, null, nameSpace, sourceFileInfo);
+        if (parsed != null && !parsed.isEmpty()) {
+            cache.put(text, sourceFileInfo, parsed.toArray(new SimpleNode[parsed.size()]));
+        }
+        return retVal;
+    }
+
+    /**
+     * Evaluate either the statements parsed from the reader or the
+     * already parsed statements.
+     *
+     * @param parsed                     If non-null, collects all statements parsed from the reader.
+     *                                   It is left empty if the evaluation returned before the end of input.
+     * @param localKrineBasicInterpreter The krineBasicInterpreter to evaluate with, if null a
+     *                                   local one is spawned for the nameSpace.
+     */
+    private Object eval(Reader in, SimpleNode[] nodes, List<SimpleNode> parsed,
+                        KrineBasicInterpreter localKrineBasicInterpreter,
+                        NameSpace nameSpace, String sourceFileInfo)
+            throws EvalError {
         Object retVal = null;
         if (KrineBasicInterpreter.DEBUG) debug("eval: nameSpace = " + nameSpace);
 
@@ -360,25 +466,46 @@ public class KrineBasicInterpreter
 			with source from the input stream and out/err same as
 			this krineBasicInterpreter.
 		*/
-        KrineBasicInterpreter localKrineBasicInterpreter =
-                new KrineBasicInterpreter(
-                        in, out, err, nameSpace, this);
+        if (localKrineBasicInterpreter == null)
+            localKrineBasicInterpreter =
+                    new KrineBasicInterpreter(
+                            in, out, err, nameSpace, this);
 
         CallStack callStack = new CallStack(nameSpace);
 
         SimpleNode node = null;
+        int nextNode = 0;
         boolean eof = false;
         while (!eof) {
             try {
-                eof = localKrineBasicInterpreter.Line();
-                if (localKrineBasicInterpreter.get_jjtree().nodeArity() > 0) {
-                    if (node != null)
-                        node.lastToken.next = null;  // prevent OutOfMemoryError
-
-                    node = (SimpleNode) localKrineBasicInterpreter.get_jjtree().rootNode();
-                    // nodes remember from where they were sourced
-                    node.setSourceFile(sourceFileInfo);
+                boolean haveNode;
+                if (nodes != null) {
+                    // already parsed, no need to touch the parser
+                    haveNode = nextNode < nodes.length;
+                    eof = nextNode + 1 >= nodes.length;
+                    if (haveNode) {
+                        node = nodes[nextNode++];
+                    }
+                } else {
+                    eof = localKrineBasicInterpreter.Line();
+                    haveNode = localKrineBasicInterpreter.get_jjtree().nodeArity() > 0;
+                    if (haveNode) {
+                        if (node != null)
+                            node.lastToken.next = null;  // prevent OutOfMemoryError
+
+                        node = (SimpleNode) localKrineBasicInterpreter.get_jjtree().rootNode();
+                        // nodes remember from where they were sourced
+                        node.setSourceFile(sourceFileInfo);
+                        // keep the tree as written when stepping through it
+                        if (debugger == null)
+                            node = ConstantFolder.fold(node);
+                        // the cache keeps them as parsed
+                        if (parsed != null)
+                            parsed.add(node.copyTree());
+                    }
+                }
 
+                if (haveNode) {
                     // bind debugger if we are debugging
                     if (debugger != null) {
                         bindDebugger(node, debugger);
@@ -395,6 +522,9 @@ public class KrineBasicInterpreter
 
                     if (retVal instanceof ReturnControl) {
                         retVal = ((ReturnControl) retVal).value;
+                        // the rest of input is not parsed, do not cache a part of it
+                        if (parsed != null)
+                            parsed.clear();
                         break; // non-interactive, return control now
                     }
                 }
@@ -440,7 +570,8 @@ public class KrineBasicInterpreter
                         "Sourced file: " + sourceFileInfo + " Token Parsing Error: "
                                 + e.getMessage(), node, callStack, e);
             } finally {
-                localKrineBasicInterpreter.get_jjtree().reset();
+                if (nodes == null)
+                    localKrineBasicInterpreter.get_jjtree().reset();
 
                 // re-init the callStack
                 if (callStack.depth() > 1) {
@@ -456,6 +587,84 @@ public class KrineBasicInterpreter
         return Primitive.unwrap(retVal);
     }
 
+    /**
+     * Evaluate statements of a compiled script in the specified nameSpace
+     * using this krineBasicInterpreter.
+     *
+     * @see CompiledScript#run(NameSpace)
+     */
+    Object eval(SimpleNode[] nodes, NameSpace nameSpace, String sourceFileInfo)
+            throws EvalError {
+        return eval(null, nodes, null, this, nameSpace, sourceFileInfo);
+    }
+
+    /**
+     * Parse all statements from the reader without evaluating them.
+     */
+    private static SimpleNode[] parse(Reader in, String sourceFileInfo)
+            throws EvalError {
+        Parser parser = new Parser(in);
+        List<SimpleNode> nodes = new ArrayList<>();
+        SimpleNode node = null;
+        boolean eof = false;
+        try {
+            while (!eof) {
+                eof = parser.Line();
+                if (parser.jjtree.nodeArity() > 0) {
+                    if (node != null)
+                        node.lastToken.next = null;  // prevent OutOfMemoryError
+
+                    node = (SimpleNode) parser.jjtree.rootNode();
+                    node.setSourceFile(sourceFileInfo);
+                    nodes.add(ConstantFolder.fold(node));
+                }
+                parser.jjtree.reset();
+            }
+        } catch (ParseException e) {
+            if (DEBUG)
+                debug(e.getMessage(DEBUG));
+            e.setErrorSourceFile(sourceFileInfo);
+            throw e;
+        } catch (KrineTokenException e) {
+            throw new EvalError(
+                    "Sourced file: " + sourceFileInfo + " Token Parsing Error: "
+                            + e.getMessage(), node, new CallStack(), e);
+        }
+        return nodes.toArray(new SimpleNode[nodes.size()]);
+    }
+
+    /**
+     * Parse the script once, the returned script can be run
+     * many times without touching the parser again.
+     *
+     * @param in             Script source.
+     * @param sourceFileInfo Used to display error messages.
+     * @see CompiledScript
+     */
+    public CompiledScript compile(Reader in, String sourceFileInfo) throws EvalError {
+        return new CompiledScript(this, parse(in, sourceFileInfo), sourceFileInfo);
+    }
+
+    /**
+     * Parse the stream once.
+     *
+     * @see #compile(Reader, String)
+     */
+    public CompiledScript compile(Reader in) throws EvalError {
+        return compile(in, "compiled stream");
+    }
+
+    /**
+     * Parse the statements once.
+     *
+     * @see #compile(Reader, String)
+     */
+    public CompiledScript compile(String statements) throws EvalError {
+        String s = (statements.endsWith(";") ? statements : statements + ";");
+        return compile(new StringReader(s),
+                "compiled script: ``" + showEvalString(s) + "''");
+    }
+
     /**
      * Bind debugger for program
      *
@@ -512,8 +721,7 @@ public class KrineBasicInterpreter
             throws EvalError {
 
         String s = (statements.endsWith(";") ? statements : statements + ";");
-        return eval(
-                new StringReader(s), nameSpace,
+        return eval(s, nameSpace,
                 "inline evaluation of: ``" + showEvalString(s) + "''");
     }
 
@@ -717,16 +925,27 @@ public class KrineBasicInterpreter
         return globalNameSpace.getThis(this).getInterface(interfaceClass);
     }
 
+    /**
+     * The parser is created on demand, an krineBasicInterpreter evaluating
+     * already parsed statements never needs one.
+     */
+    private Parser getParser() {
+        if (parser == null) {
+            parser = new Parser(in);
+        }
+        return parser;
+    }
+
     private JJTParserState get_jjtree() {
-        return parser.jjtree;
+        return getParser().jjtree;
     }
 
     private JavaCharStream get_jj_input_stream() {
-        return parser.jj_input_stream;
+        return getParser().jj_input_stream;
     }
 
     private boolean Line() throws ParseException {
-        return parser.Line();
+        return getParser().Line();
     }
 
     /**
@@ -884,6 +1103,25 @@ public class KrineBasicInterpreter
         return globalNameSpace;
     }
 
+    /**
+     * Get the cache of parsed scripts.
+     * Child interpreters share the cache of their root krineBasicInterpreter.
+     *
+     * @see ParseCache
+     */
+    public ParseCache getParseCache() {
+        if (parent != null) {
+            return parent.getParseCache();
+        }
+
+        synchronized (this) {
+            if (parseCache == null) {
+                parseCache = new ParseCache();
+            }
+            return parseCache;
+        }
+    }
+
     @Override
     public void run() {
         throw new UnsupportedOperationException("Interactive Krine has been removed since Krine 1.1");
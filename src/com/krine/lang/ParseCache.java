@@ -0,0 +1,162 @@
+package com.krine.lang;
+
+import com.krine.lang.ast.SimpleNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of parsed top-level statements.
+ * <p>
+ * Entries are keyed by the script text together with the source file info
+ * (nodes remember where they were sourced from), so evaluating an identical
+ * snippet again reuses the already parsed AST and skips the lexer and the
+ * parser entirely.
+ * <p>
+ * The cached statements are never evaluated themselves: every hit gets a
+ * copy of them, since evaluation keeps state in the nodes, e.g. the types
+ * resolved with the imports of the nameSpace, which another evaluation of
+ * the same text must not see.
+ * <p>
+ * The default capacity is read from the "krine.parseCacheSize" system
+ * property, a capacity of 0 disables caching.
+ *
+ * @see KrineBasicInterpreter#getParseCache()
+ */
+public final class ParseCache {
+    public static final int DEFAULT_MAX_SIZE = 128;
+
+    private final LinkedHashMap<Key, SimpleNode[]> entries =
+            new LinkedHashMap<Key, SimpleNode[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, SimpleNode[]> eldest) {
+                    return size() > maxSize;
+                }
+            };
+
+    private int maxSize;
+    private long hitCount;
+    private long missCount;
+
+    public ParseCache() {
+        this(defaultMaxSize());
+    }
+
+    public ParseCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    private static int defaultMaxSize() {
+        try {
+            return Integer.getInteger("krine.parseCacheSize", DEFAULT_MAX_SIZE);
+        } catch (SecurityException e) {
+            return DEFAULT_MAX_SIZE;
+        }
+    }
+
+    /**
+     * Get a copy of the parsed statements of the script, or null if absent.
+     */
+    public SimpleNode[] get(String text, String sourceFileInfo) {
+        SimpleNode[] nodes;
+        synchronized (this) {
+            if (maxSize <= 0) {
+                return null;
+            }
+
+            nodes = entries.get(new Key(text, sourceFileInfo));
+            if (nodes == null) {
+                ++missCount;
+                return null;
+            }
+            ++hitCount;
+        }
+
+        SimpleNode[] copy = new SimpleNode[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            copy[i] = nodes[i].copyTree();
+        }
+        return copy;
+    }
+
+    /**
+     * Remember the parsed statements of the script.
+     *
+     * @param nodes Statements which were not evaluated yet.
+     */
+    public synchronized void put(String text, String sourceFileInfo, SimpleNode[] nodes) {
+        if (maxSize > 0) {
+            entries.put(new Key(text, sourceFileInfo), nodes);
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change the capacity, evicting least recently used entries as needed.
+     *
+     * @param maxSize New capacity, 0 disables caching.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+
+        while (entries.size() > this.maxSize) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ParseCache: size=" + entries.size() + "/" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount;
+    }
+
+    private static final class Key {
+        private final String text;
+        private final String sourceFileInfo;
+        private final int hash;
+
+        Key(String text, String sourceFileInfo) {
+            this.text = text;
+            this.sourceFileInfo = sourceFileInfo;
+            this.hash = 31 * text.hashCode()
+                    + (sourceFileInfo == null ? 0 : sourceFileInfo.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && text.equals(k.text)
+                    && (sourceFileInfo == null
+                    ? k.sourceFileInfo == null : sourceFileInfo.equals(k.sourceFileInfo));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.krine.lang.ast;
 import com.krine.lang.InterpreterException;
 import com.krine.lang.KrineBasicInterpreter;
 import com.krine.lang.UtilEvalException;
+import com.krine.lang.asm.ClassWriter;
 import com.krine.lang.classgen.ClassGeneratorFactory;
 import com.krine.lang.classgen.IClassGenerator;
 import com.krine.lang.classpath.GeneratedClass;
@@ -11,13 +12,18 @@ import com.krine.lang.reflect.Reflect;
 import com.krine.lang.reflect.ReflectException;
 import com.krine.lang.utils.CallStack;
 
+import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 public final class ClassGenerator {
@@ -153,8 +159,10 @@ public final class ClassGenerator {
             throw new InterpreterException("unable to init static: " + e);
         }
 
-        // Give the static space its class static import
+        // Give the static space its class static import and the fields
         // important to do this after all classes are defined
+        if (!genClass.isInterface())
+            classStaticNameSpace.classFields = getClassFields(genClass, variables);
         classStaticNameSpace.setClassStatic(genClass);
 
         // evaluate the static portion of the block in the static space
@@ -166,7 +174,8 @@ public final class ClassGenerator {
             // Set the static krine This callback
             String dragonStaticFieldName = KRINE_STATIC + className;
             try {
-                LeftValue lhs = Reflect.getLHSStaticField(genClass, dragonStaticFieldName);
+                LeftValue lhs = Reflect.getLHSStaticField(
+                        krineBasicInterpreter.getClassManager(), genClass, dragonStaticFieldName);
                 lhs.assign(classStaticNameSpace.getThis(krineBasicInterpreter), false/*strict*/);
             } catch (Exception e) {
                 throw new InterpreterException("Error in class gen setup: " + e);
@@ -201,6 +210,26 @@ public final class ClassGenerator {
         return vars.toArray(new Variable[vars.size()]);
     }
 
+    /**
+     * The JVM fields of the typed variables declared by the class, made
+     * accessible for the class nameSpaces whatever their modifiers.
+     */
+    private static Map<String, Field> getClassFields(Class genClass, Variable[] variables) {
+        Map<String, Field> fields = new HashMap<>();
+        for (Variable var : variables) {
+            if (var.getTypeDescriptor() == null)
+                continue;
+            try {
+                Field field = genClass.getDeclaredField(var.getName());
+                field.setAccessible(true);
+                fields.put(var.getName(), field);
+            } catch (NoSuchFieldException | RuntimeException e) {
+                // the variable lives in the nameSpace then
+            }
+        }
+        return fields;
+    }
+
     static KrineMethodDelayEvaluated[] getDeclaredMethods(KrineBlock body, CallStack callStack, KrineBasicInterpreter krineBasicInterpreter, String defaultPackage) throws EvalError {
         List<KrineMethodDelayEvaluated> methods = new ArrayList<>();
         for (int child = 0; child < body.jjtGetNumChildren(); child++) {
@@ -223,6 +252,35 @@ public final class ClassGenerator {
         return methods.toArray(new KrineMethodDelayEvaluated[methods.size()]);
     }
 
+    /**
+     * Generate the method of the class with its body compiled to bytecode,
+     * instead of a delegate calling back into its nameSpace.  Only simple
+     * bodies on primitives and the typed fields of the class can be.
+     *
+     * @param fqClassName the internal name of the class.
+     * @param vars        the typed variables declared by the class.
+     * @return false if the body can't be compiled and nothing was generated.
+     * @see MethodCompiler#compileMember
+     */
+    public static boolean generateCompiledMethod(ClassWriter cw, String fqClassName, KrineMethodDelayEvaluated method, int modifiers, Variable[] vars) {
+        return MethodProfile.ENABLED
+                && MethodCompiler.compileMember(cw, fqClassName, method, modifiers, vars);
+    }
+
+    /**
+     * Write what the generated code of the method depends on besides its
+     * declaration as a key: its body, and whether bodies are compiled at all.
+     *
+     * @see #generateCompiledMethod
+     */
+    public static void writeMethodBodyKey(KrineMethodDelayEvaluated method, DataOutputStream out) throws IOException {
+        out.writeBoolean(MethodProfile.ENABLED);
+        out.writeBoolean(method.methodBody != null);
+        if (method.methodBody != null) {
+            CompiledFile.writeKey(method.methodBody, out);
+        }
+    }
+
     public static Object invokeSuperclassMethodImpl(KrineClassManager dcm, Object instance, String methodName, Object[] args) throws UtilEvalException, ReflectException, InvocationTargetException {
         String superName = KRINE_SUPER + methodName;
 
@@ -402,13 +460,15 @@ public final class ClassGenerator {
                 instanceNameSpace.setParent(CONTEXT_NAMESPACE.get());
             } else {
                 instanceNameSpace = new NameSpace(classStaticThis.getNameSpace(), className); // todo: old code
+                instanceNameSpace.classFields = classStaticThis.getNameSpace().classFields;
             }
             instanceNameSpace.isClass = true;
 
             // Set the instance This reference on the instance
             instanceThis = instanceNameSpace.getThis(krineBasicInterpreter);
             try {
-                LeftValue lhs = Reflect.getLHSObjectField(instance, KRINE_THIS + className);
+                LeftValue lhs = Reflect.getLHSObjectField(
+                        krineBasicInterpreter.getClassManager(), instance, KRINE_THIS + className);
                 lhs.assign(instanceThis, false/*strict*/);
             } catch (Exception e) {
                 throw new InterpreterException("Error in class gen setup: " + e);
@@ -479,7 +539,7 @@ public final class ClassGenerator {
      */
     static This getClassInstanceThis(Object instance, String className) {
         try {
-            Object o = Reflect.getObjectFieldValue(instance, KRINE_THIS + className);
+            Object o = Reflect.getObjectFieldValue(null/*dcm*/, instance, KRINE_THIS + className);
             return (This) Primitive.unwrap(o); // unwrap Primitive.Null to null
         } catch (Exception e) {
             throw new InterpreterException("Generated class: Error getting This" + e);
@@ -502,7 +562,7 @@ public final class ClassGenerator {
      */
     private static This getClassStaticThis(Class clazz, String className) {
         try {
-            return (This) Reflect.getStaticFieldValue(clazz, KRINE_STATIC + className);
+            return (This) Reflect.getStaticFieldValue(null/*dcm*/, clazz, KRINE_STATIC + className);
         } catch (Exception e) {
             throw new InterpreterException("Unable to get class static space: " + e);
         }
@@ -574,10 +634,10 @@ public final class ClassGenerator {
 
         boolean isStatic(SimpleNode node) {
             if (node instanceof KrineTypedVariableDeclaration)
-                return ((KrineTypedVariableDeclaration) node).modifiers != null && ((KrineTypedVariableDeclaration) node).modifiers.hasModifier("static");
+                return Modifiers.hasModifier(((KrineTypedVariableDeclaration) node).modifiers, Modifier.STATIC);
 
             if (node instanceof KrineMethodDeclaration)
-                return ((KrineMethodDeclaration) node).modifiers != null && ((KrineMethodDeclaration) node).modifiers.hasModifier("static");
+                return Modifiers.hasModifier(((KrineMethodDeclaration) node).modifiers, Modifier.STATIC);
 
             // need to add static block here
             if (node instanceof KrineBlock) return false;
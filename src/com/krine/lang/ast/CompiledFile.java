@@ -0,0 +1,923 @@
+package com.krine.lang.ast;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of parsed Krine scripts (.kc files).
+ * <p>
+ * A compiled file stores the node kinds and the parse data of every node
+ * (names, operators, literals, modifiers...) with a side table of source
+ * positions instead of the full token chain. Loading it rebuilds the
+ * statement nodes without running the lexer or the parser.
+ * <p>
+ * Layout:
+ * <pre>
+ *     magic, version, source length, source last modified
+ *     string table, each string sharing a prefix with the one before
+ *     statements, each one a tree of nodes in pre-order, the kind of a
+ *     node and up to two children counted in one byte
+ *     source positions of all nodes in pre-order
+ * </pre>
+ * The recorded length and modification time of the source file decide
+ * whether a compiled file is still up to date.
+ * <p>
+ * Positions are written relative to the node before, which mostly starts
+ * on the same line or even at the same token, so most take a byte or two.
+ * The text of the nodes is not stored: error messages read it back from
+ * the source file, which is unchanged as long as the compiled file is used.
+ *
+ * @see com.krine.lang.KrineBasicInterpreter#compileFile(String)
+ */
+public final class CompiledFile implements ParserTreeConstants {
+    public static final String SOURCE_SUFFIX = ".k";
+    public static final String COMPILED_SUFFIX = ".kc";
+
+    private static final int MAGIC = 0x4B524E43; // KRNC
+    private static final int VERSION = 3;
+
+    // literal tags
+    private static final int LITERAL_NULL = 0;
+    private static final int LITERAL_VOID = 1;
+    private static final int LITERAL_STRING = 2;
+    private static final int LITERAL_BOOLEAN = 3;
+    private static final int LITERAL_CHAR = 4;
+    private static final int LITERAL_INT = 5;
+    private static final int LITERAL_LONG = 6;
+    private static final int LITERAL_FLOAT = 7;
+    private static final int LITERAL_DOUBLE = 8;
+    private static final int LITERAL_BYTE = 9;
+    private static final int LITERAL_SHORT = 10;
+
+    // node kinds take the low bits of a node byte, the child count the rest
+    private static final int CHILDREN_SHIFT = 6;
+    private static final int KIND_MASK = (1 << CHILDREN_SHIFT) - 1;
+    private static final int MAX_PACKED_CHILDREN = (0xFF >> CHILDREN_SHIFT) - 1;
+
+    // position flags, the rest of the byte is the width of a one line node
+    private static final int BEGIN_SAME = 0;
+    private static final int BEGIN_SAME_LINE = 1;
+    private static final int BEGIN_OTHER_LINE = 2;
+    private static final int BEGIN_MASK = 3;
+    private static final int END_SAME_LINE = 4;
+    private static final int WIDTH_SHIFT = 3;
+    private static final int MAX_PACKED_WIDTH = (0xFF >> WIDTH_SHIFT) - 1;
+
+    private CompiledFile() {
+    }
+
+    /**
+     * Get the compiled file next to the source file.
+     * e.g. /base/app.k => /base/app.kc
+     */
+    public static File getCompiledFile(File sourceFile) {
+        String path = sourceFile.getPath();
+        if (path.endsWith(SOURCE_SUFFIX)) {
+            path = path.substring(0, path.length() - SOURCE_SUFFIX.length());
+        }
+        return new File(path + COMPILED_SUFFIX);
+    }
+
+    /**
+     * Write parsed statements of the source file.
+     */
+    public static void write(SimpleNode[] nodes, File sourceFile, File compiledFile)
+            throws IOException {
+        Writer writer = new Writer();
+        for (SimpleNode node : nodes) {
+            writer.writeNode(node);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(compiledFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(sourceFile.length());
+            out.writeLong(sourceFile.lastModified());
+
+            writeStrings(out, writer.strings);
+
+            writeVarInt(out, nodes.length);
+            writer.tree.writeTo(out);
+            writer.positions.writeTo(out);
+        }
+    }
+
+    /**
+     * Write the parse data of the node tree as a key: trees which would be
+     * compiled the same write the same bytes.  Source positions are left out.
+     */
+    public static void writeKey(SimpleNode node, DataOutputStream out) throws IOException {
+        Writer writer = new Writer();
+        writer.writeNode(node);
+
+        writeVarInt(out, writer.strings.size());
+        for (String s : writer.strings) {
+            out.writeUTF(s);
+        }
+        writer.tree.writeTo(out);
+    }
+
+    /**
+     * Read parsed statements of the source file.
+     *
+     * @param sourceFileInfo Source info the nodes will remember.
+     * @return Parsed statements, or null if the compiled file is missing
+     * or out of date.
+     * @throws IOException If the compiled file is broken.
+     */
+    public static SimpleNode[] read(File compiledFile, File sourceFile, String sourceFileInfo)
+            throws IOException {
+        if (!compiledFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(compiledFile)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                return null;
+            }
+            if (in.readLong() != sourceFile.length()
+                    || in.readLong() != sourceFile.lastModified()) {
+                return null;
+            }
+
+            Reader reader = new Reader(in);
+            reader.strings = readStrings(in);
+
+            SimpleNode[] nodes = new SimpleNode[readVarInt(in)];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = reader.readNode(null);
+                nodes[i].setSourceFile(sourceFileInfo);
+            }
+            reader.readPositions(new SourceText(sourceFile));
+            return nodes;
+        } catch (RuntimeException e) {
+            throw new IOException("Broken compiled file: " + compiledFile, e);
+        }
+    }
+
+    /**
+     * Write the strings, each as the length of the prefix it shares with
+     * the string before and the UTF-8 bytes of the rest.
+     */
+    private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+        writeVarInt(out, strings.size());
+        String previous = "";
+        for (String s : strings) {
+            int shared = 0;
+            int max = Math.min(previous.length(), s.length());
+            while (shared < max && previous.charAt(shared) == s.charAt(shared)) {
+                shared++;
+            }
+            byte[] bytes = s.substring(shared).getBytes("UTF-8");
+            writeVarInt(out, shared);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+            previous = s;
+        }
+    }
+
+    private static String[] readStrings(DataInput in) throws IOException {
+        String[] strings = new String[readVarInt(in)];
+        String previous = "";
+        for (int i = 0; i < strings.length; i++) {
+            int shared = readVarInt(in);
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            previous = (previous.substring(0, shared) + new String(bytes, "UTF-8")).intern();
+            strings[i] = previous;
+        }
+        return strings;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static int readSignedVarInt(DataInput in) throws IOException {
+        int value = readVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readSignedVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static SimpleNode createNode(int id) throws IOException {
+        switch (id) {
+            case JJTCLASSDECLARATION:
+                return new KrineClassDeclaration(id);
+            case JJTMETHODDECLARATION:
+                return new KrineMethodDeclaration(id);
+            case JJTPACKAGEDECLARATION:
+                return new KrinePackageDeclaration(id);
+            case JJTIMPORTDECLARATION:
+                return new KrineImportDeclaration(id);
+            case JJTVARIABLEDECLARATOR:
+                return new KrineVariableDeclarator(id);
+            case JJTARRAYINITIALIZER:
+                return new KrineArrayInitializer(id);
+            case JJTFORMALPARAMETERS:
+                return new KrineFormalParameters(id);
+            case JJTFORMALPARAMETER:
+                return new krineFormalParameter(id);
+            case JJTTYPE:
+                return new KrineType(id);
+            case JJTRETURNTYPE:
+                return new KrineReturnType(id);
+            case JJTPRIMITIVETYPE:
+                return new KrinePrimitiveType(id);
+            case JJTAMBIGUOUSNAME:
+                return new KrineAmbiguousName(id);
+            case JJTASSIGNMENT:
+                return new KrineAssignment(id);
+            case JJTTERNARYEXPRESSION:
+                return new KrineTernaryExpression(id);
+            case JJTBINARYEXPRESSION:
+                return new KrineBinaryExpression(id);
+            case JJTUNARYEXPRESSION:
+                return new KrineUnaryExpression(id);
+            case JJTCASTEXPRESSION:
+                return new KrineCastExpression(id);
+            case JJTPRIMARYEXPRESSION:
+                return new KrinePrimaryExpression(id);
+            case JJTMETHODINVOCATION:
+                return new KrineMethodInvocation(id);
+            case JJTPRIMARYSUFFIX:
+                return new KrinePrimarySuffix(id);
+            case JJTLITERAL:
+                return new KrineLiteral(id);
+            case JJTARGUMENTS:
+                return new KrineArguments(id);
+            case JJTALLOCATIONEXPRESSION:
+                return new KrineAllocationExpression(id);
+            case JJTARRAYDIMENSIONS:
+                return new KrineArrayDimensions(id);
+            case JJTBLOCK:
+                return new KrineBlock(id);
+            case JJTFORMALCOMMENT:
+                return new KrineFormalComment(id);
+            case JJTSWITCHSTATEMENT:
+                return new KrineSwitchStatement(id);
+            case JJTSWITCHLABEL:
+                return new KrineSwitchLabel(id);
+            case JJTIFSTATEMENT:
+                return new KrineIfStatement(id);
+            case JJTWHILESTATEMENT:
+                return new KrineWhileStatement(id);
+            case JJTFORSTATEMENT:
+                return new KrineForStatement(id);
+            case JJTENHANCEDFORSTATEMENT:
+                return new KrineEnhancedForStatement(id);
+            case JJTTYPEDVARIABLEDECLARATION:
+                return new KrineTypedVariableDeclaration(id);
+            case JJTSTATEMENTEXPRESSIONLIST:
+                return new KrineStatementExpressionList(id);
+            case JJTRETURNSTATEMENT:
+                return new KrineReturnStatement(id);
+            case JJTTHROWSTATEMENT:
+                return new KrineThrowStatement(id);
+            case JJTTRYSTATEMENT:
+                return new KrineTryStatement(id);
+            default:
+                throw new IOException("Unknown node kind: " + id);
+        }
+    }
+
+    private static Class primitiveType(char descriptor) throws IOException {
+        switch (descriptor) {
+            case 'Z':
+                return Boolean.TYPE;
+            case 'C':
+                return Character.TYPE;
+            case 'B':
+                return Byte.TYPE;
+            case 'S':
+                return Short.TYPE;
+            case 'I':
+                return Integer.TYPE;
+            case 'J':
+                return Long.TYPE;
+            case 'F':
+                return Float.TYPE;
+            case 'D':
+                return Double.TYPE;
+            default:
+                throw new IOException("Unknown primitive type: " + descriptor);
+        }
+    }
+
+    private static final class Writer {
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> stringIndexes = new HashMap<>();
+        final ByteArrayOutputStream tree = new ByteArrayOutputStream();
+        final ByteArrayOutputStream positions = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(tree);
+        final DataOutputStream posOut = new DataOutputStream(positions);
+        int lastLine = 0;
+        int lastColumn = 0;
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+
+            Integer index = stringIndexes.get(s);
+            if (index == null) {
+                strings.add(s);
+                index = strings.size();
+                stringIndexes.put(s, index);
+            }
+            writeVarInt(out, index);
+        }
+
+        void writeModifiers(Modifiers modifiers) throws IOException {
+            writeVarInt(out, modifiers == null ? 0 : modifiers.flags);
+        }
+
+        void writeLiteral(Object value) throws IOException {
+            if (value == Primitive.NULL) {
+                out.writeByte(LITERAL_NULL);
+            } else if (value == Primitive.VOID) {
+                out.writeByte(LITERAL_VOID);
+            } else if (value instanceof String) {
+                out.writeByte(LITERAL_STRING);
+                writeString((String) value);
+            } else {
+                Object v = ((Primitive) value).getValue();
+                if (v instanceof Boolean) {
+                    out.writeByte(LITERAL_BOOLEAN);
+                    out.writeBoolean((Boolean) v);
+                } else if (v instanceof Character) {
+                    out.writeByte(LITERAL_CHAR);
+                    out.writeChar((Character) v);
+                } else if (v instanceof Integer) {
+                    out.writeByte(LITERAL_INT);
+                    writeSignedVarInt(out, (Integer) v);
+                } else if (v instanceof Long) {
+                    out.writeByte(LITERAL_LONG);
+                    writeSignedVarLong(out, (Long) v);
+                } else if (v instanceof Float) {
+                    out.writeByte(LITERAL_FLOAT);
+                    out.writeFloat((Float) v);
+                } else if (v instanceof Double) {
+                    out.writeByte(LITERAL_DOUBLE);
+                    out.writeDouble((Double) v);
+                } else if (v instanceof Byte) {
+                    out.writeByte(LITERAL_BYTE);
+                    out.writeByte((Byte) v);
+                } else if (v instanceof Short) {
+                    out.writeByte(LITERAL_SHORT);
+                    out.writeShort((Short) v);
+                } else {
+                    throw new IOException("Unsupported literal: " + value);
+                }
+            }
+        }
+
+        void writeNode(SimpleNode node) throws IOException {
+            if ((node.id & ~KIND_MASK) != 0) {
+                throw new IOException("Unsupported node kind: " + node.id);
+            }
+            int numChildren = node.jjtGetNumChildren();
+            out.writeByte(node.id | Math.min(numChildren, MAX_PACKED_CHILDREN + 1) << CHILDREN_SHIFT);
+
+            switch (node.id) {
+                case JJTCLASSDECLARATION: {
+                    KrineClassDeclaration n = (KrineClassDeclaration) node;
+                    writeString(n.name);
+                    writeModifiers(n.modifiers);
+                    writeVarInt(out, n.numInterfaces);
+                    out.writeBoolean(n.extend);
+                    out.writeBoolean(n.isInterface);
+                    break;
+                }
+                case JJTMETHODDECLARATION: {
+                    KrineMethodDeclaration n = (KrineMethodDeclaration) node;
+                    writeString(n.name);
+                    writeModifiers(n.modifiers);
+                    writeVarInt(out, n.numThrows);
+                    break;
+                }
+                case JJTIMPORTDECLARATION: {
+                    KrineImportDeclaration n = (KrineImportDeclaration) node;
+                    out.writeBoolean(n.importPackage);
+                    out.writeBoolean(n.staticImport);
+                    out.writeBoolean(n.superImport);
+                    break;
+                }
+                case JJTVARIABLEDECLARATOR:
+                    writeString(((KrineVariableDeclarator) node).name);
+                    break;
+                case JJTFORMALPARAMETER:
+                    writeString(((krineFormalParameter) node).name);
+                    break;
+                case JJTTYPE:
+                    writeVarInt(out, ((KrineType) node).getArrayDims());
+                    break;
+                case JJTRETURNTYPE:
+                    out.writeBoolean(((KrineReturnType) node).isVoid);
+                    break;
+                case JJTPRIMITIVETYPE:
+                    out.writeByte(KrineType.getTypeDescriptor(
+                            ((KrinePrimitiveType) node).type).charAt(0));
+                    break;
+                case JJTAMBIGUOUSNAME:
+                    writeString(((KrineAmbiguousName) node).text);
+                    break;
+                case JJTASSIGNMENT:
+                    writeVarInt(out, ((KrineAssignment) node).operator);
+                    break;
+                case JJTBINARYEXPRESSION:
+                    writeVarInt(out, ((KrineBinaryExpression) node).kind);
+                    break;
+                case JJTUNARYEXPRESSION: {
+                    KrineUnaryExpression n = (KrineUnaryExpression) node;
+                    writeVarInt(out, n.kind);
+                    out.writeBoolean(n.postfix);
+                    break;
+                }
+                case JJTPRIMARYSUFFIX: {
+                    KrinePrimarySuffix n = (KrinePrimarySuffix) node;
+                    writeVarInt(out, n.operation);
+                    writeString(n.field);
+                    break;
+                }
+                case JJTLITERAL:
+                    writeLiteral(((KrineLiteral) node).value);
+                    break;
+                case JJTARRAYDIMENSIONS: {
+                    KrineArrayDimensions n = (KrineArrayDimensions) node;
+                    writeVarInt(out, n.numDefinedDims);
+                    writeVarInt(out, n.numUndefinedDims);
+                    break;
+                }
+                case JJTBLOCK:
+                    out.writeBoolean(((KrineBlock) node).isSynchronized);
+                    break;
+                case JJTFORMALCOMMENT:
+                    writeString(((KrineFormalComment) node).text);
+                    break;
+                case JJTSWITCHLABEL:
+                    out.writeBoolean(((KrineSwitchLabel) node).isDefault);
+                    break;
+                case JJTWHILESTATEMENT:
+                    out.writeBoolean(((KrineWhileStatement) node).isDoStatement);
+                    break;
+                case JJTFORSTATEMENT: {
+                    KrineForStatement n = (KrineForStatement) node;
+                    out.writeBoolean(n.hasForInit);
+                    out.writeBoolean(n.hasExpression);
+                    out.writeBoolean(n.hasForUpdate);
+                    break;
+                }
+                case JJTENHANCEDFORSTATEMENT:
+                    writeString(((KrineEnhancedForStatement) node).varName);
+                    break;
+                case JJTTYPEDVARIABLEDECLARATION:
+                    writeModifiers(((KrineTypedVariableDeclaration) node).modifiers);
+                    break;
+                case JJTRETURNSTATEMENT:
+                    writeVarInt(out, ((KrineReturnStatement) node).kind);
+                    break;
+                default:
+                    break;
+            }
+
+            Token first = node.firstToken;
+            Token last = node.lastToken == null ? first : node.lastToken;
+            int beginLine = first == null ? lastLine : first.beginLine;
+            int beginColumn = first == null ? lastColumn : first.beginColumn;
+            int endLine = last == null ? beginLine : last.endLine;
+            int endColumn = last == null ? beginColumn : last.endColumn;
+            writePosition(beginLine, beginColumn, endLine, endColumn);
+
+            if (numChildren > MAX_PACKED_CHILDREN) {
+                writeVarInt(out, numChildren);
+            }
+            for (int i = 0; i < numChildren; i++) {
+                writeNode(node.getChild(i));
+            }
+        }
+
+        /**
+         * Write the position relative to the one of the node before, in
+         * pre-order: a flags byte, then only what it does not tell.
+         */
+        void writePosition(int beginLine, int beginColumn, int endLine, int endColumn)
+                throws IOException {
+            int flags;
+            if (beginLine != lastLine) {
+                flags = BEGIN_OTHER_LINE;
+            } else if (beginColumn != lastColumn) {
+                flags = BEGIN_SAME_LINE;
+            } else {
+                flags = BEGIN_SAME;
+            }
+            int width = endColumn - beginColumn;
+            boolean endSameLine = endLine == beginLine && width >= 0;
+            if (endSameLine) {
+                flags |= END_SAME_LINE;
+                if (width < MAX_PACKED_WIDTH) {
+                    flags |= (width + 1) << WIDTH_SHIFT;
+                }
+            }
+            posOut.writeByte(flags);
+
+            if ((flags & BEGIN_MASK) == BEGIN_OTHER_LINE) {
+                writeSignedVarInt(posOut, beginLine - lastLine);
+                writeVarInt(posOut, beginColumn);
+            } else if ((flags & BEGIN_MASK) == BEGIN_SAME_LINE) {
+                writeSignedVarInt(posOut, beginColumn - lastColumn);
+            }
+            if (!endSameLine) {
+                writeSignedVarInt(posOut, endLine - beginLine);
+                writeVarInt(posOut, endColumn);
+            } else if (width >= MAX_PACKED_WIDTH) {
+                writeVarInt(posOut, width);
+            }
+            lastLine = beginLine;
+            lastColumn = beginColumn;
+        }
+    }
+
+    private static final class Reader {
+        final DataInputStream in;
+        final List<SimpleNode> preOrder = new ArrayList<>();
+        String[] strings;
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        String readString() throws IOException {
+            int index = readVarInt(in);
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        Modifiers readModifiers() throws IOException {
+            int flags = readVarInt(in);
+            if (flags == 0) {
+                return null;
+            }
+
+            Modifiers modifiers = new Modifiers();
+            modifiers.flags = flags;
+            return modifiers;
+        }
+
+        Object readLiteral() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case LITERAL_NULL:
+                    return Primitive.NULL;
+                case LITERAL_VOID:
+                    return Primitive.VOID;
+                case LITERAL_STRING:
+                    return readString();
+                case LITERAL_BOOLEAN:
+                    return new Primitive(in.readBoolean());
+                case LITERAL_CHAR:
+                    return new Primitive(in.readChar());
+                case LITERAL_INT:
+                    return new Primitive(readSignedVarInt(in));
+                case LITERAL_LONG:
+                    return new Primitive(readSignedVarLong(in));
+                case LITERAL_FLOAT:
+                    return new Primitive(in.readFloat());
+                case LITERAL_DOUBLE:
+                    return new Primitive(in.readDouble());
+                case LITERAL_BYTE:
+                    return new Primitive(in.readByte());
+                case LITERAL_SHORT:
+                    return new Primitive(in.readShort());
+                default:
+                    throw new IOException("Unknown literal tag: " + tag);
+            }
+        }
+
+        SimpleNode readNode(SimpleNode parent) throws IOException {
+            int b = in.readUnsignedByte();
+            int id = b & KIND_MASK;
+            SimpleNode node = createNode(id);
+
+            switch (id) {
+                case JJTCLASSDECLARATION: {
+                    KrineClassDeclaration n = (KrineClassDeclaration) node;
+                    n.name = readString();
+                    n.modifiers = readModifiers();
+                    n.numInterfaces = readVarInt(in);
+                    n.extend = in.readBoolean();
+                    n.isInterface = in.readBoolean();
+                    break;
+                }
+                case JJTMETHODDECLARATION: {
+                    KrineMethodDeclaration n = (KrineMethodDeclaration) node;
+                    n.name = readString();
+                    n.modifiers = readModifiers();
+                    n.numThrows = readVarInt(in);
+                    break;
+                }
+                case JJTIMPORTDECLARATION: {
+                    KrineImportDeclaration n = (KrineImportDeclaration) node;
+                    n.importPackage = in.readBoolean();
+                    n.staticImport = in.readBoolean();
+                    n.superImport = in.readBoolean();
+                    break;
+                }
+                case JJTVARIABLEDECLARATOR:
+                    ((KrineVariableDeclarator) node).name = readString();
+                    break;
+                case JJTFORMALPARAMETER:
+                    ((krineFormalParameter) node).name = readString();
+                    break;
+                case JJTTYPE: {
+                    KrineType n = (KrineType) node;
+                    for (int dims = readVarInt(in); dims > 0; dims--) {
+                        n.addArrayDimension();
+                    }
+                    break;
+                }
+                case JJTRETURNTYPE:
+                    ((KrineReturnType) node).isVoid = in.readBoolean();
+                    break;
+                case JJTPRIMITIVETYPE:
+                    ((KrinePrimitiveType) node).type = primitiveType((char) in.readUnsignedByte());
+                    break;
+                case JJTAMBIGUOUSNAME:
+                    ((KrineAmbiguousName) node).text = readString();
+                    break;
+                case JJTASSIGNMENT:
+                    ((KrineAssignment) node).operator = readVarInt(in);
+                    break;
+                case JJTBINARYEXPRESSION:
+                    ((KrineBinaryExpression) node).kind = readVarInt(in);
+                    break;
+                case JJTUNARYEXPRESSION: {
+                    KrineUnaryExpression n = (KrineUnaryExpression) node;
+                    n.kind = readVarInt(in);
+                    n.postfix = in.readBoolean();
+                    break;
+                }
+                case JJTPRIMARYSUFFIX: {
+                    KrinePrimarySuffix n = (KrinePrimarySuffix) node;
+                    n.operation = readVarInt(in);
+                    n.field = readString();
+                    break;
+                }
+                case JJTLITERAL:
+                    ((KrineLiteral) node).value = readLiteral();
+                    break;
+                case JJTARRAYDIMENSIONS: {
+                    KrineArrayDimensions n = (KrineArrayDimensions) node;
+                    n.numDefinedDims = readVarInt(in);
+                    n.numUndefinedDims = readVarInt(in);
+                    break;
+                }
+                case JJTBLOCK:
+                    ((KrineBlock) node).isSynchronized = in.readBoolean();
+                    break;
+                case JJTFORMALCOMMENT:
+                    ((KrineFormalComment) node).text = readString();
+                    break;
+                case JJTSWITCHLABEL:
+                    ((KrineSwitchLabel) node).isDefault = in.readBoolean();
+                    break;
+                case JJTWHILESTATEMENT:
+                    ((KrineWhileStatement) node).isDoStatement = in.readBoolean();
+                    break;
+                case JJTFORSTATEMENT: {
+                    KrineForStatement n = (KrineForStatement) node;
+                    n.hasForInit = in.readBoolean();
+                    n.hasExpression = in.readBoolean();
+                    n.hasForUpdate = in.readBoolean();
+                    break;
+                }
+                case JJTENHANCEDFORSTATEMENT:
+                    ((KrineEnhancedForStatement) node).varName = readString();
+                    break;
+                case JJTTYPEDVARIABLEDECLARATION:
+                    ((KrineTypedVariableDeclaration) node).modifiers = readModifiers();
+                    break;
+                case JJTRETURNSTATEMENT:
+                    ((KrineReturnStatement) node).kind = readVarInt(in);
+                    break;
+                default:
+                    break;
+            }
+
+            preOrder.add(node);
+            node.jjtSetParent(parent);
+            int numChildren = b >>> CHILDREN_SHIFT;
+            if (numChildren > MAX_PACKED_CHILDREN) {
+                numChildren = readVarInt(in);
+            }
+            if (numChildren > 0) {
+                node.children = new Node[numChildren];
+                for (int i = 0; i < numChildren; i++) {
+                    node.children[i] = readNode(node);
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Give every node a token carrying its source position,
+         * so error messages still point to the right line and code.
+         */
+        void readPositions(SourceText source) throws IOException {
+            int lastLine = 0;
+            int lastColumn = 0;
+            for (SimpleNode node : preOrder) {
+                SourceToken t = new SourceToken(source);
+                int flags = in.readUnsignedByte();
+                switch (flags & BEGIN_MASK) {
+                    case BEGIN_SAME:
+                        t.beginLine = lastLine;
+                        t.beginColumn = lastColumn;
+                        break;
+                    case BEGIN_SAME_LINE:
+                        t.beginLine = lastLine;
+                        t.beginColumn = lastColumn + readSignedVarInt(in);
+                        break;
+                    case BEGIN_OTHER_LINE:
+                        t.beginLine = lastLine + readSignedVarInt(in);
+                        t.beginColumn = readVarInt(in);
+                        break;
+                    default:
+                        throw new IOException("Malformed position: " + flags);
+                }
+                if ((flags & END_SAME_LINE) == 0) {
+                    t.endLine = t.beginLine + readSignedVarInt(in);
+                    t.endColumn = readVarInt(in);
+                } else {
+                    int width = flags >>> WIDTH_SHIFT;
+                    t.endLine = t.beginLine;
+                    t.endColumn = t.beginColumn + (width == 0 ? readVarInt(in) : width - 1);
+                }
+                node.firstToken = t;
+                node.lastToken = t;
+                lastLine = t.beginLine;
+                lastColumn = t.beginColumn;
+            }
+        }
+    }
+
+    /**
+     * The source file of a compiled file, read when the text of a node is
+     * first asked for, usually for an error message.
+     */
+    private static final class SourceText {
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private String[] lines;
+
+        SourceText(File file) {
+            this.file = file;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        private synchronized String[] getLines() {
+            if (lines == null) {
+                List<String> list = new ArrayList<>();
+                // the positions are of this version of the file only
+                if (file.length() == length && file.lastModified() == lastModified) {
+                    try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            list.add(line);
+                        }
+                    } catch (IOException e) {
+                        list.clear();
+                    }
+                }
+                lines = list.toArray(new String[list.size()]);
+            }
+            return lines;
+        }
+
+        /**
+         * @return The text between the positions, up to the first '{' or
+         * ';' as for parsed nodes, or "" if the file changed.
+         */
+        String getText(int beginLine, int beginColumn, int endLine, int endColumn) {
+            String[] lines = getLines();
+            StringBuilder text = new StringBuilder();
+            char quote = 0;
+            for (int line = beginLine; line <= endLine && line <= lines.length; line++) {
+                if (line < 1) {
+                    continue;
+                }
+                String s = lines[line - 1];
+                int begin = line == beginLine ? indexOfColumn(s, beginColumn) : 0;
+                int end = line == endLine ? indexOfColumn(s, endColumn + 1) : s.length();
+                for (int i = begin; i < end; i++) {
+                    char c = s.charAt(i);
+                    if (Character.isWhitespace(c) && quote == 0) {
+                        if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+                            text.append(' ');
+                        }
+                        continue;
+                    }
+                    text.append(c);
+                    if (quote != 0) {
+                        if (c == '\\' && i + 1 < end) {
+                            text.append(s.charAt(++i));
+                        } else if (c == quote) {
+                            quote = 0;
+                        }
+                    } else if (c == '"' || c == '\'') {
+                        quote = c;
+                    } else if (c == '{' || c == ';') {
+                        return text.toString();
+                    }
+                }
+                if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+                    text.append(' ');
+                }
+            }
+            return text.toString().trim();
+        }
+
+        /**
+         * @return The index of the character at the column, tabs counting
+         * up to the next multiple of 8 as in the JavaCharStream.
+         */
+        private static int indexOfColumn(String line, int column) {
+            int c = 0;
+            for (int i = 0; i < line.length(); i++) {
+                c++;
+                if (line.charAt(i) == '\t') {
+                    c--;
+                    c += 8 - (c & 07);
+                }
+                if (c >= column) {
+                    return i;
+                }
+            }
+            return line.length();
+        }
+    }
+
+    /**
+     * The position of a node loaded from a compiled file, standing in for
+     * its tokens.
+     */
+    static final class SourceToken extends Token {
+        private static final long serialVersionUID = -1172522713064548141L;
+        private final transient SourceText source;
+
+        SourceToken(SourceText source) {
+            this.source = source;
+            this.image = "";
+        }
+
+        String getText() {
+            return source == null ? "" : source.getText(beginLine, beginColumn, endLine, endColumn);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.krine.lang.ast;
+
+/**
+ * Base class of the method bodies compiled to bytecode by the
+ * MethodCompiler.  Generated subclasses are loaded by their own class
+ * loader so that they can be collected with the method.
+ *
+ * @see MethodProfile
+ */
+public abstract class CompiledMethod {
+    protected CompiledMethod() {
+    }
+
+    /**
+     * Run the compiled method body.
+     *
+     * @param args The argument values, unwrapped to their java.lang wrappers.
+     * @return The return value, or null if the call could not be completed
+     * by the compiled code and must be interpreted instead.
+     */
+    public abstract Object invoke(Object[] args);
+
+    protected static Object box(int value) {
+        return Primitive.valueOf(value);
+    }
+
+    protected static Object box(long value) {
+        return new Primitive(value);
+    }
+
+    protected static Object box(double value) {
+        return new Primitive(value);
+    }
+
+    protected static Object box(boolean value) {
+        return Primitive.valueOf(value);
+    }
+}
@@ -0,0 +1,94 @@
+package com.krine.lang.ast;
+
+/**
+ * A possibly compound ('.' separated) name split into its parts once, when
+ * the name is first resolved at a call site, rather than on every
+ * resolution.  The parts are interned.
+ * <p>
+ * A compound name is immutable and may be shared by threads: every Name
+ * resolving the same call site, in whichever nameSpace, uses the same one.
+ *
+ * @see Name
+ * @see KrineAmbiguousName#getName(NameSpace)
+ */
+final class CompoundName {
+    final String text;
+    private final String[] parts;
+    /**
+     * The first parts of the name, prefixes[i] being i + 1 parts of it
+     */
+    private final String[] prefixes;
+    /**
+     * The offset of each part in the text
+     */
+    private final int[] offsets;
+    /**
+     * The name without its last part, made on demand
+     */
+    private CompoundName prefixName;
+
+    CompoundName(String text) {
+        this.text = text;
+
+        int count = Name.countParts(text);
+        parts = new String[count];
+        prefixes = new String[count];
+        offsets = new int[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = text.indexOf('.', start);
+            if (end == -1)
+                end = text.length();
+            parts[i] = text.substring(start, end).intern();
+            prefixes[i] = i == count - 1 ? text : text.substring(0, end);
+            offsets[i] = start;
+            start = end + 1;
+        }
+    }
+
+    int size() {
+        return parts.length;
+    }
+
+    boolean isCompound() {
+        return parts.length > 1;
+    }
+
+    String part(int i) {
+        return parts[i];
+    }
+
+    String lastPart() {
+        return parts[parts.length - 1];
+    }
+
+    /**
+     * @return The first count parts, e.g. a class name.
+     */
+    String prefix(int count) {
+        return prefixes[count - 1];
+    }
+
+    /**
+     * @return The parts from the given one on.
+     */
+    String suffix(int from) {
+        return from == 0 ? text : text.substring(offsets[from]);
+    }
+
+    /**
+     * @return The name without its last part, e.g. the target of a method
+     * invocation, or null if the name is not compound.
+     */
+    CompoundName getPrefixName() {
+        // racy, but the name is immutable and any copy will do
+        CompoundName prefixName = this.prefixName;
+        if (prefixName == null && isCompound())
+            this.prefixName = prefixName = new CompoundName(prefix(parts.length - 1));
+        return prefixName;
+    }
+
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,389 @@
+package com.krine.lang.ast;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.UtilEvalException;
+import com.krine.lang.utils.CallStack;
+
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optimization pass run once over freshly parsed statements.
+ * <p>
+ * It folds binary, unary and ternary expressions whose operands are
+ * literals into precomputed literals, drops statically dead branches of
+ * if statements and ternary expressions, and replaces reads of
+ * <code>static final</code> primitive constants declared in a block with
+ * their values in the statements following the declaration.
+ * <p>
+ * Expressions are folded by evaluating them exactly as the interpreter
+ * would, expressions which fail (e.g. division by zero) are left alone
+ * and report their error at runtime as before.
+ * <p>
+ * Folding can be turned off with the "krine.constantFolding" system
+ * property set to false.
+ */
+public final class ConstantFolder implements ParserConstants {
+    private static final boolean ENABLED = isEnabledByDefault();
+
+    private static final AtomicLong totalFoldedExpressions = new AtomicLong();
+    private static final AtomicLong totalEliminatedBranches = new AtomicLong();
+    private static final AtomicLong totalInlinedConstants = new AtomicLong();
+
+    private final CallStack callStack = new CallStack();
+    private int foldedExpressions;
+    private int eliminatedBranches;
+    private int inlinedConstants;
+
+    private static boolean isEnabledByDefault() {
+        try {
+            return !"false".equals(System.getProperty("krine.constantFolding"));
+        } catch (SecurityException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Optimize a parsed statement.
+     *
+     * @return The optimized statement, which may be a replacement node.
+     */
+    public static SimpleNode fold(SimpleNode node) {
+        if (!ENABLED) {
+            return node;
+        }
+
+        ConstantFolder folder = new ConstantFolder();
+        SimpleNode folded = folder.foldNode(node,
+                Collections.<String, Object>emptyMap());
+        if (folded != node) {
+            folded.jjtSetParent(null);
+            folded.setSourceFile(node.getSourceFile());
+        }
+
+        totalFoldedExpressions.addAndGet(folder.foldedExpressions);
+        totalEliminatedBranches.addAndGet(folder.eliminatedBranches);
+        totalInlinedConstants.addAndGet(folder.inlinedConstants);
+        if (KrineBasicInterpreter.DEBUG && folder.getFoldedNodeCount() > 0) {
+            KrineBasicInterpreter.debug("Constant folding in " + node.getSourceFile()
+                    + ": " + folder.foldedExpressions + " expressions, "
+                    + folder.eliminatedBranches + " branches, "
+                    + folder.inlinedConstants + " constants");
+        }
+        return folded;
+    }
+
+    /**
+     * @return Number of expressions folded into literals so far.
+     */
+    public static long getFoldedExpressionCount() {
+        return totalFoldedExpressions.get();
+    }
+
+    /**
+     * @return Number of dead if/ternary branches dropped so far.
+     */
+    public static long getEliminatedBranchCount() {
+        return totalEliminatedBranches.get();
+    }
+
+    /**
+     * @return Number of constant reads replaced by their values so far.
+     */
+    public static long getInlinedConstantCount() {
+        return totalInlinedConstants.get();
+    }
+
+    /**
+     * @return Total number of folded nodes so far.
+     */
+    public static long getTotalFoldedNodeCount() {
+        return getFoldedExpressionCount() + getEliminatedBranchCount()
+                + getInlinedConstantCount();
+    }
+
+    private int getFoldedNodeCount() {
+        return foldedExpressions + eliminatedBranches + inlinedConstants;
+    }
+
+    private SimpleNode foldNode(SimpleNode node, Map<String, Object> constants) {
+        if (node instanceof KrineBlock) {
+            foldBlock((KrineBlock) node, constants);
+        } else {
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                setChild(node, i, foldNode(node.getChild(i), constants));
+            }
+        }
+
+        if (node instanceof KrinePrimaryExpression) {
+            return foldConstantRead((KrinePrimaryExpression) node, constants);
+        } else if (node instanceof KrineBinaryExpression) {
+            return foldBinary((KrineBinaryExpression) node);
+        } else if (node instanceof KrineUnaryExpression) {
+            return foldUnary((KrineUnaryExpression) node);
+        } else if (node instanceof KrineTernaryExpression) {
+            return foldTernary(node);
+        } else if (node instanceof KrineIfStatement) {
+            foldIf(node);
+        }
+        return node;
+    }
+
+    /**
+     * Fold the statements of a block in order, so constants declared
+     * in it are known to the statements after them.
+     */
+    private void foldBlock(KrineBlock block, Map<String, Object> constants) {
+        Map<String, Integer> declarations = null;
+        boolean ownConstants = false;
+
+        for (int i = 0; i < block.jjtGetNumChildren(); i++) {
+            SimpleNode child = foldNode(block.getChild(i), constants);
+            setChild(block, i, child);
+
+            if (!(child instanceof KrineTypedVariableDeclaration)) {
+                continue;
+            }
+
+            KrineTypedVariableDeclaration declaration = (KrineTypedVariableDeclaration) child;
+            Class type = getConstantType(declaration);
+            if (type == null) {
+                continue;
+            }
+
+            for (KrineVariableDeclarator declarator : declaration.getDeclarators()) {
+                Object value = declarator.jjtGetNumChildren() == 1
+                        ? getLiteralValue(declarator.getChild(0)) : null;
+                if (value == null || value == Primitive.VOID) {
+                    continue;
+                }
+
+                if (declarations == null) {
+                    declarations = new HashMap<>();
+                    countDeclarations(block, declarations);
+                }
+                // a name declared anywhere else in the block may be shadowed
+                if (declarations.get(declarator.name) != 1) {
+                    continue;
+                }
+
+                try {
+                    value = Types.castObject(value, type, Types.ASSIGNMENT);
+                } catch (UtilEvalException e) {
+                    continue;
+                }
+
+                // constants of the enclosing blocks must stay untouched
+                if (!ownConstants) {
+                    constants = new HashMap<>(constants);
+                    ownConstants = true;
+                }
+                constants.put(declarator.name, value);
+            }
+        }
+    }
+
+    /**
+     * @return The declared primitive type of a static final declaration,
+     * or null if it does not declare constants.
+     */
+    private static Class getConstantType(KrineTypedVariableDeclaration declaration) {
+        Modifiers modifiers = declaration.modifiers;
+        if (!Modifiers.hasModifier(modifiers, Modifier.STATIC)
+                || !Modifiers.hasModifier(modifiers, Modifier.FINAL)) {
+            return null;
+        }
+
+        SimpleNode typeNode = declaration.getChild(0);
+        if (((KrineType) typeNode).getArrayDims() != 0
+                || !(typeNode.getChild(0) instanceof KrinePrimitiveType)) {
+            return null;
+        }
+        return ((KrinePrimitiveType) typeNode.getChild(0)).getType();
+    }
+
+    private static void countDeclarations(SimpleNode node, Map<String, Integer> declarations) {
+        String name = null;
+        if (node instanceof KrineVariableDeclarator) {
+            name = ((KrineVariableDeclarator) node).name;
+        } else if (node instanceof krineFormalParameter) {
+            name = ((krineFormalParameter) node).name;
+        } else if (node instanceof KrineEnhancedForStatement) {
+            name = ((KrineEnhancedForStatement) node).varName;
+        } else if (node instanceof KrineMethodDeclaration) {
+            name = ((KrineMethodDeclaration) node).name;
+        } else if (node instanceof KrineClassDeclaration) {
+            name = ((KrineClassDeclaration) node).name;
+        }
+
+        if (name != null) {
+            Integer count = declarations.get(name);
+            declarations.put(name, count == null ? 1 : count + 1);
+        }
+
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            countDeclarations(node.getChild(i), declarations);
+        }
+    }
+
+    /**
+     * Replace a plain read of a known constant by its value.
+     */
+    private SimpleNode foldConstantRead(KrinePrimaryExpression node, Map<String, Object> constants) {
+        if (constants.isEmpty() || node.jjtGetNumChildren() != 1
+                || !(node.getChild(0) instanceof KrineAmbiguousName)) {
+            return node;
+        }
+
+        Object value = constants.get(((KrineAmbiguousName) node.getChild(0)).text);
+        if (value == null || !isReadOnly(node)) {
+            return node;
+        }
+
+        ++inlinedConstants;
+        return literal(value, node);
+    }
+
+    /**
+     * @return false if the expression is the target of an assignment.
+     */
+    private static boolean isReadOnly(SimpleNode node) {
+        Node parent = node.jjtGetParent();
+        if (parent instanceof KrineAssignment) {
+            return parent.jjtGetChild(0) != node;
+        }
+        if (parent instanceof KrineUnaryExpression) {
+            int kind = ((KrineUnaryExpression) parent).kind;
+            return kind != INCR && kind != DECR;
+        }
+        return true;
+    }
+
+    private SimpleNode foldBinary(KrineBinaryExpression node) {
+        if (node.kind == INSTANCEOF) {
+            return node;
+        }
+
+        Object lhs = getLiteralValue(node.getChild(0));
+        if (lhs == null) {
+            return node;
+        }
+
+        // the right hand side is never evaluated when short circuited
+        if (getLiteralValue(node.getChild(1)) == null) {
+            Object b = lhs instanceof Primitive ? ((Primitive) lhs).getValue() : lhs;
+            boolean shortCircuit = b instanceof Boolean
+                    && ((node.kind == BOOL_AND || node.kind == BOOL_ANDX) && !((Boolean) b)
+                    || (node.kind == BOOL_OR || node.kind == BOOL_ORX) && (Boolean) b);
+            if (!shortCircuit) {
+                return node;
+            }
+        }
+        return evalToLiteral(node);
+    }
+
+    private SimpleNode foldUnary(KrineUnaryExpression node) {
+        if (node.kind == INCR || node.kind == DECR
+                || getLiteralValue(node.getChild(0)) == null) {
+            return node;
+        }
+        return evalToLiteral(node);
+    }
+
+    private SimpleNode foldTernary(SimpleNode node) {
+        Boolean condition = getBooleanValue(node.getChild(0));
+        if (condition == null) {
+            return node;
+        }
+
+        ++eliminatedBranches;
+        return node.getChild(condition ? 1 : 2);
+    }
+
+    /**
+     * Drop the dead branch of an if statement.
+     * The statement itself is kept because it evaluates to void
+     * unless its branch returns.
+     */
+    private void foldIf(SimpleNode node) {
+        Boolean condition = getBooleanValue(node.getChild(0));
+        if (condition == null) {
+            return;
+        }
+
+        SimpleNode cond = node.getChild(0);
+        if (condition) {
+            if (node.jjtGetNumChildren() > 2) {
+                node.children = new Node[]{cond, node.children[1]};
+                ++eliminatedBranches;
+            }
+        } else if (node.jjtGetNumChildren() > 2) {
+            // the else branch becomes the only branch, taken unconditionally
+            node.children = new Node[]{
+                    literal(new Primitive(true), cond), node.children[2]};
+            node.getChild(0).jjtSetParent(node);
+            ++eliminatedBranches;
+        } else {
+            node.children = new Node[]{cond};
+            ++eliminatedBranches;
+        }
+    }
+
+    private SimpleNode evalToLiteral(SimpleNode node) {
+        Object value;
+        try {
+            value = node.eval(callStack, null);
+        } catch (EvalError | RuntimeException e) {
+            // leave it to fail at runtime
+            return node;
+        }
+
+        if (value instanceof String) {
+            if (KrineLiteral.internStrings)
+                value = ((String) value).intern();
+        } else if (!(value instanceof Primitive)) {
+            return node;
+        }
+
+        ++foldedExpressions;
+        return literal(value, node);
+    }
+
+    /**
+     * @return The value of a literal, possibly wrapped in a primary
+     * expression, or null if the node is not a literal.
+     */
+    private static Object getLiteralValue(SimpleNode node) {
+        if (node instanceof KrinePrimaryExpression && node.jjtGetNumChildren() == 1) {
+            node = node.getChild(0);
+        }
+        return node instanceof KrineLiteral ? ((KrineLiteral) node).value : null;
+    }
+
+    private static Boolean getBooleanValue(SimpleNode node) {
+        Object value = getLiteralValue(node);
+        if (value instanceof Primitive && ((Primitive) value).getValue() instanceof Boolean) {
+            return (Boolean) ((Primitive) value).getValue();
+        }
+        return null;
+    }
+
+    private static KrineLiteral literal(Object value, SimpleNode original) {
+        KrineLiteral literal = new KrineLiteral(ParserTreeConstants.JJTLITERAL);
+        literal.value = value;
+        literal.firstToken = original.firstToken;
+        literal.lastToken = original.lastToken;
+        literal.sourceFile = original.sourceFile;
+        return literal;
+    }
+
+    private static void setChild(SimpleNode node, int i, SimpleNode child) {
+        if (node.children[i] != child) {
+            node.children[i] = child;
+            child.jjtSetParent(node);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.krine.lang.ast;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The local variable slots of a method frame.
+ * <p>
+ * A scope analysis pass over the method body collects every name which
+ * may become a local of the method nameSpace (parameters, declared
+ * variables and plain assignment targets) and assigns it a fixed index.
+ * Method nameSpaces using the layout keep those variables in an array
+ * instead of a HashMap, and simple name references inside the body are
+ * resolved to their slot index once, up front.
+ * <p>
+ * Names outside the layout (e.g. created through eval() or a 'this'
+ * reference) still go to the ordinary nameSpace variable map.
+ *
+ * @see NameSpace#setFrameLayout(FrameLayout)
+ */
+final class FrameLayout implements java.io.Serializable {
+    private static final long serialVersionUID = -7222406792855609855L;
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+
+    private FrameLayout(Map<String, Integer> indexes) {
+        this.indexes = indexes;
+        this.names = new String[indexes.size()];
+        for (Map.Entry<String, Integer> entry : indexes.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    /**
+     * Analyze a method body and resolve the simple names in it to slots.
+     */
+    static FrameLayout analyze(String[] paramNames, KrineBlock body) {
+        Map<String, Integer> indexes = new HashMap<>();
+        if (paramNames != null) {
+            for (String name : paramNames) {
+                addName(indexes, name);
+            }
+        }
+        collectNames(body, indexes);
+
+        FrameLayout layout = new FrameLayout(indexes);
+        resolveNames(body, layout);
+        return layout;
+    }
+
+    /**
+     * @return The slot index of the name, or -1 if it has no slot.
+     */
+    int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    private static void addName(Map<String, Integer> indexes, String name) {
+        // special names are never resolved as variables
+        if (name == null || Name.isCompound(name) || name.equals("this")
+                || name.equals("super") || name.equals("global")) {
+            return;
+        }
+        if (!indexes.containsKey(name)) {
+            indexes.put(name, indexes.size());
+        }
+    }
+
+    private static void collectNames(SimpleNode node, Map<String, Integer> indexes) {
+        if (node instanceof KrineVariableDeclarator) {
+            addName(indexes, ((KrineVariableDeclarator) node).name);
+        } else if (node instanceof krineFormalParameter) {
+            addName(indexes, ((krineFormalParameter) node).name);
+        } else if (node instanceof KrineEnhancedForStatement) {
+            addName(indexes, ((KrineEnhancedForStatement) node).varName);
+        } else if (node instanceof KrineAssignment) {
+            SimpleNode lhs = node.getChild(0);
+            if (lhs.jjtGetNumChildren() == 1 && lhs.getChild(0) instanceof KrineAmbiguousName) {
+                addName(indexes, ((KrineAmbiguousName) lhs.getChild(0)).text);
+            }
+        }
+
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            SimpleNode child = node.getChild(i);
+            // nested methods and classes have frames of their own
+            if (!isNestedScope(child)) {
+                collectNames(child, indexes);
+            }
+        }
+    }
+
+    private static void resolveNames(SimpleNode node, FrameLayout layout) {
+        if (node instanceof KrineAmbiguousName) {
+            ((KrineAmbiguousName) node).resolveSlot(layout);
+        }
+
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            SimpleNode child = node.getChild(i);
+            if (!isNestedScope(child)) {
+                resolveNames(child, layout);
+            }
+        }
+    }
+
+    private static boolean isNestedScope(SimpleNode node) {
+        return node instanceof KrineMethodDeclaration
+                || node instanceof KrineClassDeclaration;
+    }
+}
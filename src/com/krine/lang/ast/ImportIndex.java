@@ -0,0 +1,149 @@
+package com.krine.lang.ast;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Index of the imported objects and static imports of a nameSpace by the
+ * names of their methods and fields, so that looking up a name they do not
+ * have costs a single hash probe instead of reflection on every import.
+ * <p>
+ * The index only narrows down the candidates: it holds the names of all
+ * the methods and fields declared anywhere in the inheritance tree of an
+ * import, accessible or not, and the actual resolution is still left to
+ * Reflect.  Candidates are kept in import order, objects before static
+ * imports, which is the order they are searched in.
+ *
+ * @see NameSpace#importObject(Object)
+ * @see NameSpace#importStatic(Class)
+ */
+final class ImportIndex {
+    private final Map<String, Candidates> methods = new HashMap<>();
+    private final Map<String, Candidates> fields = new HashMap<>();
+
+    /**
+     * Member names by class, shared by every index importing the class.
+     */
+    private static final Map<Class, MemberNames> memberNames =
+            Collections.synchronizedMap(new WeakHashMap<Class, MemberNames>());
+
+    ImportIndex(List<Object> importedObjects, List<Class> importedStatic) {
+        if (importedObjects != null)
+            for (Object object : importedObjects)
+                addObject(object);
+        if (importedStatic != null)
+            for (Class clazz : importedStatic)
+                addStatic(clazz);
+    }
+
+    void addObject(Object object) {
+        MemberNames names = getMemberNames(object.getClass());
+        for (String name : names.methods)
+            candidates(methods, name).objects.add(object);
+        for (String name : names.fields)
+            candidates(fields, name).objects.add(object);
+    }
+
+    void addStatic(Class clazz) {
+        MemberNames names = getMemberNames(clazz);
+        for (String name : names.methods)
+            candidates(methods, name).statics.add(clazz);
+        for (String name : names.fields)
+            candidates(fields, name).statics.add(clazz);
+    }
+
+    /**
+     * @return The imports which may have a method of this name, or null.
+     */
+    Candidates getMethodCandidates(String name) {
+        return methods.get(name);
+    }
+
+    /**
+     * @return The imports which may have a field of this name, or null.
+     */
+    Candidates getFieldCandidates(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * @return false if the class has no method of this name.
+     */
+    static boolean hasMethod(Class clazz, String name) {
+        return getMemberNames(clazz).methods.contains(name);
+    }
+
+    /**
+     * @return false if the class has no field of this name.
+     */
+    static boolean hasField(Class clazz, String name) {
+        return getMemberNames(clazz).fields.contains(name);
+    }
+
+    private static Candidates candidates(Map<String, Candidates> index, String name) {
+        Candidates candidates = index.get(name);
+        if (candidates == null) {
+            candidates = new Candidates();
+            index.put(name, candidates);
+        }
+        return candidates;
+    }
+
+    private static MemberNames getMemberNames(Class clazz) {
+        MemberNames names = memberNames.get(clazz);
+        if (names == null) {
+            names = new MemberNames(clazz);
+            memberNames.put(clazz, names);
+        }
+        return names;
+    }
+
+    /**
+     * The imported objects and classes declaring a member name.
+     */
+    static final class Candidates {
+        final List<Object> objects = new ArrayList<>(1);
+        final List<Class> statics = new ArrayList<>(1);
+    }
+
+    /**
+     * The names of the methods and fields of a class, its superclasses and
+     * its interfaces.
+     */
+    private static final class MemberNames {
+        final Set<String> methods = new HashSet<>();
+        final Set<String> fields = new HashSet<>();
+
+        MemberNames(Class clazz) {
+            for (Method method : clazz.getMethods())
+                methods.add(method.getName());
+            for (Field field : clazz.getFields())
+                fields.add(field.getName());
+            try {
+                addDeclared(clazz, new HashSet<Class>());
+            } catch (SecurityException e) {
+                // only the public members can be resolved then
+            }
+        }
+
+        private void addDeclared(Class clazz, Set<Class> visited) {
+            if (clazz == null || !visited.add(clazz))
+                return;
+            for (Method method : clazz.getDeclaredMethods())
+                methods.add(method.getName());
+            for (Field field : clazz.getDeclaredFields())
+                fields.add(field.getName());
+            addDeclared(clazz.getSuperclass(), visited);
+            for (Class anInt : clazz.getInterfaces())
+                addDeclared(anInt, visited);
+        }
+    }
+}
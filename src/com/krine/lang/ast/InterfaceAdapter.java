@@ -0,0 +1,274 @@
+package com.krine.lang.ast;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.UtilEvalException;
+import com.krine.lang.classpath.KrineClassManager;
+import com.krine.lang.utils.CallStack;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class of the interface adapters generated by the
+ * InterfaceAdapterGenerator.  An adapter implements a set of interfaces on
+ * behalf of a scripted object, like the dynamic proxy made by
+ * This.getInterface() does, but each interface method is a real method
+ * calling straight into the scripted method bound to it.
+ * <p>
+ * Methods are bound by name and declared parameter types, once per change
+ * of the methods visible through the scripted object's nameSpace, when the
+ * scripted method is the only one of its name.  Other methods are invoked
+ * by name through the This reference instead, which picks among overloaded
+ * methods by the types of the arguments, like the dynamic proxy, and gives
+ * the invoke() meta-method its chance.
+ *
+ * @see This#getInterface(Class[])
+ */
+public abstract class InterfaceAdapter {
+    static final int EQUALS = 0;
+    static final int HASH_CODE = 1;
+    static final int TO_STRING = 2;
+
+    private final Type type;
+    private final This target;
+    private volatile Binding binding;
+
+    protected InterfaceAdapter(Type type, This target) {
+        this.type = type;
+        this.target = target;
+    }
+
+    /**
+     * Called by the generated interface methods.
+     *
+     * @param slot The index of the method in the adapter type.
+     * @param args The argument values, primitives in their java.lang wrappers.
+     * @return The unwrapped return value.
+     */
+    protected final Object invoke(int slot, Object[] args) throws Throwable {
+        Binding binding = getBinding();
+        Object[] wrapped = Primitive.wrap(args, type.paramTypes[slot]);
+        try {
+            Object result;
+            if (binding.bound[slot])
+                result = binding.methods[slot].invoke(wrapped, target.declaringKrineBasicInterpreter,
+                        new CallStack(target.namespace), SimpleNode.JAVA_CODE);
+            else
+                result = target.invokeMethod(type.names[slot], wrapped);
+            return Primitive.unwrap(result);
+        } catch (Throwable t) {
+            throw type.checkThrown(slot, This.unwrapScriptException(target, t));
+        }
+    }
+
+    public boolean equals(Object obj) {
+        // without a scripted equals() the adapter has to be equal to itself,
+        // not to the This reference
+        if (getBinding().methods[EQUALS] == null)
+            return this == obj;
+        return (Boolean) invokeObjectMethod(EQUALS, new Object[]{obj});
+    }
+
+    public int hashCode() {
+        if (getBinding().methods[HASH_CODE] == null)
+            return target.hashCode();
+        return (Integer) invokeObjectMethod(HASH_CODE, new Object[0]);
+    }
+
+    public String toString() {
+        if (getBinding().methods[TO_STRING] == null) {
+            StringBuilder sb = new StringBuilder(target.toString() + "\nimplements:");
+            for (Class anInt : type.interfaces)
+                sb.append(" ").append(anInt.getName()).append((type.interfaces.length > 1) ? "," : "");
+            return sb.toString();
+        }
+        return (String) invokeObjectMethod(TO_STRING, new Object[0]);
+    }
+
+    private Object invokeObjectMethod(int slot, Object[] args) {
+        try {
+            return invoke(slot, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // checkThrown() has wrapped anything else
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    /**
+     * The scripted methods of the slots, found again whenever the methods
+     * visible through the nameSpace or the resolved Java methods change.
+     */
+    private Binding getBinding() {
+        NameSpace namespace = target.namespace;
+        int version = namespace.getMethodsVersion();
+        int generation = KrineClassManager.getResolveGeneration();
+
+        Binding binding = this.binding;
+        if (binding == null || binding.version != version
+                || binding.generation != generation) {
+            KrineMethod[] methods = new KrineMethod[type.names.length];
+            boolean[] bound = new boolean[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                try {
+                    methods[i] = namespace.getMethod(type.names[i], type.paramTypes[i]);
+                } catch (UtilEvalException e) {
+                    // leave null
+                }
+                bound[i] = methods[i] != null && namespace.hasSingleMethod(type.names[i]);
+            }
+            binding = new Binding(version, generation, methods, bound);
+            this.binding = binding;
+        }
+        return binding;
+    }
+
+    private static final class Binding {
+        final int version;
+        final int generation;
+        /**
+         * The scripted method for the declared parameter types, or null
+         */
+        final KrineMethod[] methods;
+        /**
+         * Whether the method is called directly, not resolved by the
+         * argument types on each call
+         */
+        final boolean[] bound;
+
+        Binding(int version, int generation, KrineMethod[] methods, boolean[] bound) {
+            this.version = version;
+            this.generation = generation;
+            this.methods = methods;
+            this.bound = bound;
+        }
+    }
+
+    /**
+     * A generated adapter class for one set of interfaces, shared by all
+     * the scripted objects implementing them.  Types are cached by the
+     * class manager.
+     *
+     * @see KrineClassManager#getInterfaceAdapter(List)
+     */
+    public static final class Type {
+        final Class[] interfaces;
+        /**
+         * Slot by slot: the three Object protocol methods, then the
+         * interface methods.
+         */
+        final String[] names;
+        final Class[][] paramTypes;
+        final Class[][] exceptionTypes;
+        final Method[] methods;
+        private Constructor constructor;
+
+        private Type(Class[] interfaces, List<Method> methods) {
+            this.interfaces = interfaces;
+            int size = methods.size() + 3;
+            names = new String[size];
+            paramTypes = new Class[size][];
+            exceptionTypes = new Class[size][];
+            this.methods = new Method[size];
+
+            setSlot(EQUALS, "equals", new Class[]{Object.class});
+            setSlot(HASH_CODE, "hashCode", new Class[0]);
+            setSlot(TO_STRING, "toString", new Class[0]);
+            for (int i = 0; i < methods.size(); i++) {
+                Method method = methods.get(i);
+                setSlot(i + 3, method.getName(), method.getParameterTypes());
+                exceptionTypes[i + 3] = method.getExceptionTypes();
+                this.methods[i + 3] = method;
+            }
+        }
+
+        private void setSlot(int slot, String name, Class[] types) {
+            names[slot] = name;
+            paramTypes[slot] = types;
+            exceptionTypes[slot] = new Class[0];
+        }
+
+        /**
+         * Generate the adapter class for the interfaces.
+         *
+         * @return The type, or null if the interfaces can not be adapted
+         * and a dynamic proxy has to be used instead.
+         */
+        public static Type create(Class[] interfaces) {
+            for (Class anInt : interfaces)
+                if (!anInt.isInterface() || !Modifier.isPublic(anInt.getModifiers()))
+                    return null;
+
+            Type type = new Type(interfaces.clone(), getAdaptedMethods(interfaces));
+            Class clazz = InterfaceAdapterGenerator.generate(type);
+            if (clazz == null)
+                return null;
+            try {
+                type.constructor = clazz.getConstructor(Type.class, This.class);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            return type;
+        }
+
+        /**
+         * The methods to implement, one per name and descriptor.  Those of
+         * the Object protocol are left to InterfaceAdapter itself.
+         */
+        private static List<Method> getAdaptedMethods(Class[] interfaces) {
+            Map<String, Method> methods = new LinkedHashMap<>();
+            for (Class anInt : interfaces) {
+                for (Method method : anInt.getMethods()) {
+                    if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method))
+                        continue;
+                    String key = method.getName()
+                            + com.krine.lang.asm.Type.getMethodDescriptor(method);
+                    if (!methods.containsKey(key))
+                        methods.put(key, method);
+                }
+            }
+            return new ArrayList<>(methods.values());
+        }
+
+        private static boolean isObjectMethod(Method method) {
+            try {
+                Object.class.getMethod(method.getName(), method.getParameterTypes());
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Create the adapter of a scripted object.
+         */
+        public Object newInstance(This target) {
+            try {
+                return constructor.newInstance(this, target);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Let the exception through as the dynamic proxy would: unchecked
+         * exceptions and those the interface method declares.  Anything
+         * else gets wrapped.
+         */
+        Throwable checkThrown(int slot, Throwable t) {
+            if (t instanceof RuntimeException || t instanceof Error)
+                return t;
+            for (Class exceptionType : exceptionTypes[slot])
+                if (exceptionType.isInstance(t))
+                    return t;
+            return new UndeclaredThrowableException(t);
+        }
+    }
+}
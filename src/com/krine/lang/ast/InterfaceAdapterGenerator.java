@@ -0,0 +1,175 @@
+package com.krine.lang.ast;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.asm.ClassWriter;
+import com.krine.lang.asm.CodeVisitor;
+import com.krine.lang.asm.Constants;
+import com.krine.lang.asm.Type;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the InterfaceAdapter subclass for a set of interfaces.  Every
+ * interface method packs its arguments into an array and calls
+ * InterfaceAdapter.invoke() with the index of its slot, then unpacks the
+ * return value:
+ * <pre>
+ * public int compare(Object a, Object b) {
+ *     return ((Integer) invoke(3, new Object[]{a, b})).intValue();
+ * }
+ * </pre>
+ */
+final class InterfaceAdapterGenerator implements Constants {
+    private static final String INTERFACE_ADAPTER = "com/krine/lang/ast/InterfaceAdapter";
+    private static final String CLASS_PREFIX = "com/krine/lang/ast/adapter/Adapter$";
+
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    private InterfaceAdapterGenerator() {
+    }
+
+    /**
+     * @return The adapter class, or null if it could not be loaded.
+     */
+    static Class generate(InterfaceAdapter.Type type) {
+        String className = CLASS_PREFIX + classCount.incrementAndGet();
+        byte[] bytes = generate(className, type);
+
+        try {
+            Class clazz = new Loader(type.interfaces).define(className.replace('/', '.'), bytes);
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Generated " + clazz.getName() + " for "
+                        + java.util.Arrays.toString(type.interfaces));
+            return clazz;
+        } catch (Exception | LinkageError e) {
+            // e.g. an interface which is not accessible from here
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Failed to load interface adapter: " + e);
+            return null;
+        }
+    }
+
+    private static byte[] generate(String className, InterfaceAdapter.Type type) {
+        String[] interfaceNames = new String[type.interfaces.length];
+        for (int i = 0; i < interfaceNames.length; i++)
+            interfaceNames[i] = Type.getInternalName(type.interfaces[i]);
+
+        ClassWriter cw = new ClassWriter(true);
+        cw.visit(ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, INTERFACE_ADAPTER,
+                interfaceNames, null);
+
+        String initDescriptor = "(L" + INTERFACE_ADAPTER + "$Type;Lcom/krine/lang/ast/This;)V";
+        CodeVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", initDescriptor, null);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitVarInsn(ALOAD, 2);
+        init.visitMethodInsn(INVOKESPECIAL, INTERFACE_ADAPTER, "<init>", initDescriptor);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+
+        for (int slot = InterfaceAdapter.TO_STRING + 1; slot < type.methods.length; slot++)
+            generateMethod(cw, slot, type.methods[slot]);
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateMethod(ClassWriter cw, int slot, Method method) {
+        CodeVisitor code = cw.visitMethod(ACC_PUBLIC, method.getName(),
+                Type.getMethodDescriptor(method), null);
+
+        code.visitVarInsn(ALOAD, 0);
+        code.visitIntInsn(SIPUSH, slot);
+
+        Class[] paramTypes = method.getParameterTypes();
+        code.visitIntInsn(SIPUSH, paramTypes.length);
+        code.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        int local = 1;
+        for (int i = 0; i < paramTypes.length; i++) {
+            Type paramType = Type.getType(paramTypes[i]);
+            code.visitInsn(DUP);
+            code.visitIntInsn(SIPUSH, i);
+            code.visitVarInsn(paramType.getOpcode(ILOAD), local);
+            if (paramTypes[i].isPrimitive())
+                box(code, paramTypes[i], paramType);
+            code.visitInsn(AASTORE);
+            local += paramType.getSize();
+        }
+
+        code.visitMethodInsn(INVOKEVIRTUAL, INTERFACE_ADAPTER, "invoke",
+                "(I[Ljava/lang/Object;)Ljava/lang/Object;");
+
+        Class returnType = method.getReturnType();
+        if (returnType == Void.TYPE) {
+            code.visitInsn(POP);
+            code.visitInsn(RETURN);
+        } else if (returnType.isPrimitive()) {
+            String wrapper = Type.getInternalName(wrapperType(returnType));
+            code.visitTypeInsn(CHECKCAST, wrapper);
+            code.visitMethodInsn(INVOKEVIRTUAL, wrapper, returnType.getName() + "Value",
+                    "()" + Type.getDescriptor(returnType));
+            code.visitInsn(Type.getType(returnType).getOpcode(IRETURN));
+        } else {
+            if (returnType != Object.class)
+                code.visitTypeInsn(CHECKCAST, Type.getInternalName(returnType));
+            code.visitInsn(ARETURN);
+        }
+        code.visitMaxs(0, 0);
+    }
+
+    private static void box(CodeVisitor code, Class primitive, Type type) {
+        String wrapper = Type.getInternalName(wrapperType(primitive));
+        code.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf",
+                "(" + type.getDescriptor() + ")L" + wrapper + ";");
+    }
+
+    private static Class wrapperType(Class primitive) {
+        if (primitive == Boolean.TYPE)
+            return Boolean.class;
+        if (primitive == Character.TYPE)
+            return Character.class;
+        if (primitive == Byte.TYPE)
+            return Byte.class;
+        if (primitive == Short.TYPE)
+            return Short.class;
+        if (primitive == Integer.TYPE)
+            return Integer.class;
+        if (primitive == Long.TYPE)
+            return Long.class;
+        if (primitive == Float.TYPE)
+            return Float.class;
+        return Double.class;
+    }
+
+    /**
+     * Sees Krine's own classes and those of the interfaces.
+     */
+    private static final class Loader extends ClassLoader {
+        private final Class[] interfaces;
+
+        Loader(Class[] interfaces) {
+            super(InterfaceAdapter.class.getClassLoader());
+            this.interfaces = interfaces;
+        }
+
+        Class define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            for (Class anInt : interfaces) {
+                ClassLoader loader = anInt.getClassLoader();
+                if (loader == null)
+                    continue;
+                try {
+                    return loader.loadClass(name);
+                } catch (ClassNotFoundException e) {
+                    // try the next one
+                }
+            }
+            throw new ClassNotFoundException(name);
+        }
+    }
+}
@@ -3,21 +3,32 @@ package com.krine.lang.ast;
 import com.krine.lang.KrineBasicInterpreter;
 import com.krine.lang.classpath.ClassIdentifier;
 import com.krine.lang.classpath.GeneratedClass;
+import com.krine.lang.reflect.InlineCache;
 import com.krine.lang.reflect.Reflect;
 import com.krine.lang.reflect.ReflectException;
 import com.krine.lang.utils.CallStack;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
 /**
  * New object, new array, or inner class style allocation with body.
  */
 class KrineAllocationExpression extends SimpleNode {
+    // the Java constructors called from here
+    private transient InlineCache<Constructor> inlineCache;
+
     KrineAllocationExpression(int id) {
         super(id);
     }
 
+    private InlineCache<Constructor> getInlineCache() {
+        if (inlineCache == null)
+            inlineCache = new InlineCache<>();
+        return inlineCache;
+    }
+
     private static int innerClassCount = 0;
 
     public Object eval(CallStack callStack, KrineBasicInterpreter krineBasicInterpreter)
@@ -93,7 +104,7 @@ class KrineAllocationExpression extends SimpleNode {
         }
         Object obj;
         try {
-            obj = Reflect.constructObject(type, args);
+            obj = Reflect.constructObject(type, args, krineBasicInterpreter.getClassManager(), getInlineCache());
         } catch (ReflectException e) {
             throw new EvalError("Constructor error: " + e.getMessage(), this, callStack, e);
         } catch (InvocationTargetException e) {
@@ -7,13 +7,56 @@ import com.krine.lang.utils.CallStack;
 
 class KrineAmbiguousName extends SimpleNode {
     public String text;
+    /**
+     * The text split into its parts, made on first resolution
+     */
+    private transient CompoundName compoundName;
+    /**
+     * The frame this name was resolved against by the scope analysis
+     * of its method body, and the slot of the name in it.
+     */
+    private transient FrameLayout frameLayout;
+    private transient int slot = -1;
+    /**
+     * The resolver of this name, kept for as long as it is current in the
+     * nameSpace whose names serve the frames the name is evaluated in.
+     */
+    private transient volatile Name name;
 
     KrineAmbiguousName(int id) {
         super(id);
     }
 
+    void resolveSlot(FrameLayout layout) {
+        slot = layout.indexOf(text);
+        frameLayout = layout;
+    }
+
     public Name getName(NameSpace namespace) {
-        return namespace.getNameResolver(text);
+        return namespace.getNameResolver(getCompoundName());
+    }
+
+    /**
+     * Get the resolver of this name to evaluate in the nameSpace.  Method
+     * frames and blocks share the resolver of the nameSpace they run in,
+     * rather than each frame making its own.
+     *
+     * @see NameSpace#getNameResolverSpace()
+     */
+    Name getResolver(NameSpace namespace) {
+        NameSpace resolverSpace = namespace.getNameResolverSpace();
+        Name name = this.name;
+        if (name == null || !resolverSpace.isNameResolver(name))
+            this.name = name = resolverSpace.getNameResolver(getCompoundName());
+        return name;
+    }
+
+    private CompoundName getCompoundName() {
+        // racy, but the name is immutable and any copy will do
+        CompoundName compoundName = this.compoundName;
+        if (compoundName == null)
+            this.compoundName = compoundName = new CompoundName(text);
+        return compoundName;
     }
 
     public Object toObject(CallStack callStack, KrineBasicInterpreter krineBasicInterpreter)
@@ -24,10 +67,23 @@ class KrineAmbiguousName extends SimpleNode {
     Object toObject(
             CallStack callStack, KrineBasicInterpreter krineBasicInterpreter, boolean forceClass)
             throws EvalError {
+        NameSpace namespace = callStack.top();
+        if (!forceClass && slot >= 0) {
+            // local of the method frame on top of the stack
+            Variable var = namespace.getSlotVariable(frameLayout, slot);
+            if (var != null) {
+                try {
+                    return var.getValue();
+                } catch (UtilEvalException e) {
+                    throw e.toEvalError(this, callStack);
+                }
+            }
+        }
+
         try {
             return
-                    getName(callStack.top()).toObject(
-                            callStack, krineBasicInterpreter, forceClass);
+                    getResolver(namespace).toObject(
+                            namespace, callStack, krineBasicInterpreter, forceClass);
         } catch (UtilEvalException e) {
             throw e.toEvalError(this, callStack);
         }
@@ -36,7 +92,7 @@ class KrineAmbiguousName extends SimpleNode {
     public Class toClass(CallStack callStack, KrineBasicInterpreter krineBasicInterpreter)
             throws EvalError {
         try {
-            return getName(callStack.top()).toClass();
+            return getResolver(callStack.top()).toClass();
         } catch (ClassNotFoundException e) {
             throw new EvalError(e.getMessage(), this, callStack, e);
         } catch (UtilEvalException e2) {
@@ -47,8 +103,15 @@ class KrineAmbiguousName extends SimpleNode {
 
     public LeftValue toLHS(CallStack callStack, KrineBasicInterpreter krineBasicInterpreter)
             throws EvalError {
+        // a simple variable needs no name resolution, see Name.toLeftValue()
+        if (!getCompoundName().isCompound() && !text.equals("this")) {
+            return new LeftValue(callStack.top(), text, false/*bubble up if allowed*/);
+        }
+
         try {
-            return getName(callStack.top()).toLeftValue(callStack, krineBasicInterpreter);
+            NameSpace namespace = callStack.top();
+            return getResolver(namespace).toLeftValue(
+                    namespace, callStack, krineBasicInterpreter);
         } catch (UtilEvalException e) {
             throw e.toEvalError(this, callStack);
         }
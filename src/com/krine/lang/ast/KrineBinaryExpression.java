@@ -12,7 +12,17 @@ import com.krine.lang.utils.CallStack;
  */
 class KrineBinaryExpression extends SimpleNode
         implements ParserConstants {
+    /*
+        Operand type observed by this node, as a Primitive type tag.  The
+        node starts uninitialized, specializes on the type of its first
+        operands and falls back to the generic path for good once it sees
+        anything else.
+    */
+    private static final int UNINITIALIZED = -1;
+    private static final int GENERIC = -2;
+
     public int kind;
+    private transient int specialization = UNINITIALIZED;
 
     KrineBinaryExpression(int id) {
         super(id);
@@ -30,7 +40,7 @@ class KrineBinaryExpression extends SimpleNode
         if (kind == INSTANCEOF) {
             // null object ref is not instance of any type
             if (lhs == Primitive.NULL)
-                return new Primitive(false);
+                return Primitive.FALSE;
 
             Class rhs = ((KrineType) jjtGetChild(1)).getType(
                     callStack, krineBasicInterpreter);
@@ -47,13 +57,13 @@ class KrineBinaryExpression extends SimpleNode
 			*/
             if (lhs instanceof Primitive)
                 if (rhs == Primitive.class)
-                    return new Primitive(true);
+                    return Primitive.TRUE;
                 else
-                    return new Primitive(false);
+                    return Primitive.FALSE;
 
             // General case - perform the instanceof based on assignability
             boolean ret = Types.isJavaBaseAssignable(rhs, lhs.getClass());
-            return new Primitive(ret);
+            return Primitive.valueOf(ret);
         }
 
 
@@ -70,7 +80,7 @@ class KrineBinaryExpression extends SimpleNode
                 obj = ((Primitive) lhs).getValue();
             if (obj instanceof Boolean &&
                     (!((Boolean) obj)))
-                return new Primitive(false);
+                return Primitive.FALSE;
         }
 		/*
 			Look ahead and short circuit evaluation of the rhs if:
@@ -82,7 +92,7 @@ class KrineBinaryExpression extends SimpleNode
                 obj = ((Primitive) lhs).getValue();
             if (obj instanceof Boolean &&
                     ((Boolean) obj))
-                return new Primitive(true);
+                return Primitive.TRUE;
         }
 
         // end stuff that was tacked on for boolean short-circuiting.
@@ -91,8 +101,15 @@ class KrineBinaryExpression extends SimpleNode
 			Are both the lhs and rhs either wrappers or primitive values?
 			do binary op
 		*/
-        boolean isLhsWrapper = isWrapper(lhs);
         Object rhs = ((SimpleNode) jjtGetChild(1)).eval(callStack, krineBasicInterpreter);
+
+        if (specialization != GENERIC) {
+            Primitive result = specializedOperation(lhs, rhs);
+            if (result != null)
+                return result;
+        }
+
+        boolean isLhsWrapper = isWrapper(lhs);
         boolean isRhsWrapper = isWrapper(rhs);
         if (
                 (isLhsWrapper || isPrimitiveValue(lhs))
@@ -151,10 +168,10 @@ class KrineBinaryExpression extends SimpleNode
         //System.out.println("binary op arbitrary obj: {"+lhs+"}, {"+rhs+"}");
         switch (kind) {
             case EQ:
-                return new Primitive((lhs == rhs));
+                return Primitive.valueOf(lhs == rhs);
 
             case NE:
-                return new Primitive((lhs != rhs));
+                return Primitive.valueOf(lhs != rhs);
 
             case PLUS:
                 if (lhs instanceof String || rhs instanceof String)
@@ -177,6 +194,64 @@ class KrineBinaryExpression extends SimpleNode
         }
     }
 
+    /**
+     * Fast path for the operand types this node specialized on.
+     *
+     * @return the result, or null if the generic path must be taken.
+     */
+    private Primitive specializedOperation(Object lhs, Object rhs) {
+        if (!(lhs instanceof Primitive) || !(rhs instanceof Primitive)) {
+            specialization = GENERIC;
+            return null;
+        }
+
+        Primitive lhsPrimitive = (Primitive) lhs;
+        Primitive rhsPrimitive = (Primitive) rhs;
+        int tag = lhsPrimitive.getTag();
+        if (specialization == UNINITIALIZED)
+            specialization = specialize(tag, rhsPrimitive.getTag());
+
+        if (tag != specialization || rhsPrimitive.getTag() != specialization) {
+            // deoptimize
+            specialization = GENERIC;
+            return null;
+        }
+
+        try {
+            switch (tag) {
+                case Primitive.TAG_INT:
+                    return Primitive.intBinaryOperation(
+                            (int) lhsPrimitive.longBits(), (int) rhsPrimitive.longBits(), kind);
+                case Primitive.TAG_LONG:
+                    return Primitive.longBinaryOperation(
+                            lhsPrimitive.longBits(), rhsPrimitive.longBits(), kind);
+                default:
+                    return Primitive.doubleBinaryOperation(
+                            lhsPrimitive.doubleBits(), rhsPrimitive.doubleBits(), kind);
+            }
+        } catch (ArithmeticException | UtilEvalException e) {
+            // let the generic path report it
+            return null;
+        }
+    }
+
+    private int specialize(int lhsTag, int rhsTag) {
+        switch (kind) {
+            case LT: case LTX: case GT: case GTX: case LE: case LEX: case GE: case GEX:
+            case EQ: case NE: case PLUS: case MINUS: case STAR: case SLASH: case MOD:
+                break;
+            default:
+                return GENERIC;
+        }
+
+        if (lhsTag != rhsTag)
+            return GENERIC;
+        if (lhsTag == Primitive.TAG_INT || lhsTag == Primitive.TAG_LONG
+                || lhsTag == Primitive.TAG_DOUBLE)
+            return lhsTag;
+        return GENERIC;
+    }
+
     /*
         object is a non-null and non-void Primitive type
     */
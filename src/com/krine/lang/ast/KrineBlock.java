@@ -5,6 +5,12 @@ import com.krine.lang.utils.CallStack;
 
 class KrineBlock extends SimpleNode {
     public boolean isSynchronized = false;
+    /**
+     * Scope analysis results, computed on first use.
+     */
+    private transient volatile FrameLayout frameLayout;
+    private transient volatile Boolean declaresNames;
+    private transient volatile MethodProfile methodProfile;
 
     KrineBlock(int id) {
         super(id);
@@ -57,6 +63,9 @@ class KrineBlock extends SimpleNode {
             throws EvalError {
         Object ret = Primitive.VOID;
         NameSpace enclosingNameSpace = null;
+        // a block declaring nothing has nothing to keep in a nameSpace
+        if (!overrideNamespace && !declaresNames())
+            overrideNamespace = true;
         if (!overrideNamespace) {
             enclosingNameSpace = callStack.top();
             BlockNameSpace bodyNameSpace =
@@ -105,6 +114,79 @@ class KrineBlock extends SimpleNode {
         return ret;
     }
 
+    /**
+     * Get the frame layout of this block as the body of a method,
+     * analyzing it on first use.
+     */
+    FrameLayout getFrameLayout(String[] paramNames) {
+        FrameLayout layout = frameLayout;
+        if (layout == null) {
+            synchronized (this) {
+                layout = frameLayout;
+                if (layout == null)
+                    frameLayout = layout = FrameLayout.analyze(paramNames, this);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Get the profile of this block as the body of a method.
+     */
+    MethodProfile getMethodProfile() {
+        MethodProfile profile = methodProfile;
+        if (profile == null) {
+            synchronized (this) {
+                profile = methodProfile;
+                if (profile == null)
+                    methodProfile = profile = new MethodProfile(this);
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Scope analysis: whether evaluating the statements of this block
+     * may declare anything (typed variables, methods, classes, imports)
+     * in the block nameSpace.  Nested blocks and loops declare in their
+     * own nameSpaces and are not considered.
+     */
+    boolean declaresNames() {
+        Boolean declares = declaresNames;
+        if (declares == null) {
+            int startChild = isSynchronized ? 1 : 0;
+            boolean found = false;
+            for (int i = startChild; i < jjtGetNumChildren() && !found; i++)
+                found = declaresNames(getChild(i));
+            declaresNames = declares = found;
+        }
+        return declares;
+    }
+
+    private static boolean declaresNames(SimpleNode node) {
+        if (node instanceof KrineBlock
+                || node instanceof KrineForStatement
+                || node instanceof KrineEnhancedForStatement)
+            return false;
+
+        if (node instanceof KrineTypedVariableDeclaration
+                || node instanceof KrineMethodDeclaration
+                || node instanceof KrineClassDeclaration
+                || node instanceof KrineImportDeclaration
+                || node instanceof KrinePackageDeclaration)
+            return true;
+
+        // anonymous classes are named after the nameSpace
+        if (node instanceof KrineAllocationExpression
+                && node.getChild(node.jjtGetNumChildren() - 1) instanceof KrineBlock)
+            return true;
+
+        for (int i = 0; i < node.jjtGetNumChildren(); i++)
+            if (declaresNames(node.getChild(i)))
+                return true;
+        return false;
+    }
+
     public interface NodeFilter {
         boolean isVisible(SimpleNode node);
     }
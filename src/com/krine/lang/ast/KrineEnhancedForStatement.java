@@ -17,6 +17,10 @@ import java.util.Iterator;
  */
 class KrineEnhancedForStatement extends SimpleNode implements ParserConstants {
     String varName;
+    /**
+     * Back-edge counter of the enclosing method body, if any.
+     */
+    transient MethodProfile profile;
 
     KrineEnhancedForStatement(int id) {
         super(id);
@@ -62,6 +66,8 @@ class KrineEnhancedForStatement extends SimpleNode implements ParserConstants {
 
         Object returnControl = Primitive.VOID;
         while (iterator.hasNext()) {
+            if (profile != null)
+                profile.countBackEdge();
             try {
                 Object value = iterator.next();
                 if (value == null)
@@ -17,6 +17,10 @@ class KrineForStatement extends SimpleNode implements ParserConstants {
     private SimpleNode statement;
 
     private boolean parsed;
+    /**
+     * Back-edge counter of the enclosing method body, if any.
+     */
+    transient MethodProfile profile;
 
     KrineForStatement(int id) {
         super(id);
@@ -64,6 +68,8 @@ class KrineForStatement extends SimpleNode implements ParserConstants {
 
         Object returnControl = Primitive.VOID;
         while (true) {
+            if (profile != null)
+                profile.countBackEdge();
             if (hasExpression) {
                 boolean cond = KrineIfStatement.evaluateCondition(
                         expression, callStack, krineBasicInterpreter);
@@ -10,6 +10,7 @@ import com.krine.lang.utils.StringUtil;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * This represents an instance of a krine method declaration in a particular
@@ -39,6 +40,9 @@ public class KrineMethod
     // Begin Method components
 
     Modifiers modifiers;
+    // Flags checked on every invocation
+    private boolean isSynchronized;
+    private boolean isPrivate;
     // Scripted method body
     KrineBlock methodBody;
     private String name;
@@ -75,6 +79,8 @@ public class KrineMethod
         this.methodBody = methodBody;
         this.declaringNameSpace = declaringNameSpace;
         this.modifiers = modifiers;
+        this.isSynchronized = Modifiers.hasModifier(modifiers, Modifier.SYNCHRONIZED);
+        this.isPrivate = Modifiers.hasModifier(modifiers, Modifier.PRIVATE);
     }
 
     /*
@@ -129,7 +135,7 @@ public class KrineMethod
         if (modifiers == null) {
             modifiers = new Modifiers();
         }
-        if (!modifiers.hasModifier("public")) {
+        if (!modifiers.hasModifier(Modifier.PUBLIC)) {
             modifiers.addModifier(Modifiers.METHOD, "public");
         }
     }
@@ -218,7 +224,7 @@ public class KrineMethod
             }
 
         // is this a synchronized method?
-        if (modifiers != null && modifiers.hasModifier("synchronized")) {
+        if (isSynchronized) {
             // The lock is our declaring nameSpace's This reference
             // (the method's 'super').  Or in the case of a class it's the
             // class instance.
@@ -264,6 +270,13 @@ public class KrineMethod
                             + name, callerInfo, callStack);
         }
 
+        // hot method bodies run compiled, see MethodProfile
+        if (!overrideNameSpace && methodBody != null && !methodBody.isDebugging()) {
+            Object ret = methodBody.getMethodProfile().invoke(this, argValues);
+            if (ret != null)
+                return ret;
+        }
+
         // Make the local nameSpace for the method invocation
         NameSpace localNameSpace;
         if (overrideNameSpace)
@@ -271,6 +284,9 @@ public class KrineMethod
         else {
             localNameSpace = new NameSpace(declaringNameSpace, name);
             localNameSpace.isMethod = true;
+            // locals of the body live in slots resolved by scope analysis
+            if (methodBody != null)
+                localNameSpace.setFrameLayout(methodBody.getFrameLayout(paramNames));
         }
         // should we do this for both cases above?
         localNameSpace.setNode(callerInfo);
@@ -326,9 +342,6 @@ public class KrineMethod
         Object ret = methodBody.eval(
                 callStack, krineBasicInterpreter, true/*override*/);
 
-        // save the callStack including the called method, just for error mess
-        CallStack returnStack = callStack.copy();
-
         // Get back to caller nameSpace
         if (!overrideNameSpace)
             callStack.pop();
@@ -343,13 +356,15 @@ public class KrineMethod
             else
                 // retControl.returnPoint is the Node of the return statement
                 throw new EvalError("'continue' or 'break' in method body",
-                        retControl.returnPoint, returnStack);
+                        retControl.returnPoint,
+                        returnStack(callStack, localNameSpace, overrideNameSpace));
 
             // Check for explicit return of value from void method type.
             // retControl.returnPoint is the Node of the return statement
             if (returnType == Void.TYPE && ret != Primitive.VOID)
                 throw new EvalError("Cannot return value from void method",
-                        retControl.returnPoint, returnStack);
+                        retControl.returnPoint,
+                        returnStack(callStack, localNameSpace, overrideNameSpace));
         }
 
         if (returnType != null) {
@@ -377,10 +392,26 @@ public class KrineMethod
         return ret;
     }
 
+    /**
+     * The callStack as it was on return from the method, including the
+     * called method, for error messages.  Only built when an error occurs.
+     */
+    private static CallStack returnStack(
+            CallStack callStack, NameSpace localNameSpace, boolean overrideNameSpace) {
+        CallStack returnStack = callStack.copy();
+        if (!overrideNameSpace)
+            returnStack.push(localNameSpace);
+        return returnStack;
+    }
+
     public boolean hasModifier(String name) {
         return modifiers != null && modifiers.hasModifier(name);
     }
 
+    public boolean isPrivate() {
+        return isPrivate;
+    }
+
     public String toString() {
         return "Method: "
                 + StringUtil.methodString(name, getParameterTypes());
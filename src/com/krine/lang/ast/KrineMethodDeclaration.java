@@ -135,6 +135,20 @@ class KrineMethodDeclaration extends SimpleNode {
         }
     }
 
+    @Override
+    SimpleNode copyNode() {
+        KrineMethodDeclaration copy = (KrineMethodDeclaration) super.copyNode();
+        // the declared method shares them, KrineMethod.makePublic() adds to them
+        if (modifiers != null)
+            copy.modifiers = modifiers.copy();
+        // child nodes of this tree
+        copy.returnTypeNode = null;
+        copy.paramsNode = null;
+        copy.blockNode = null;
+        copy.returnType = null;
+        return copy;
+    }
+
     public String toString() {
         return "MethodDeclaration: " + name;
     }
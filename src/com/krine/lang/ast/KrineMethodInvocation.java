@@ -2,13 +2,18 @@ package com.krine.lang.ast;
 
 import com.krine.lang.KrineBasicInterpreter;
 import com.krine.lang.UtilEvalException;
+import com.krine.lang.reflect.InlineCache;
 import com.krine.lang.reflect.ReflectException;
 import com.krine.lang.utils.CallStack;
 import com.krine.lang.utils.InvocationUtil;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 class KrineMethodInvocation extends SimpleNode {
+    // the Java methods called from here
+    private transient InlineCache<Method> inlineCache;
+
     KrineMethodInvocation(int id) {
         super(id);
     }
@@ -21,6 +26,12 @@ class KrineMethodInvocation extends SimpleNode {
         return (KrineArguments) jjtGetChild(1);
     }
 
+    private InlineCache<Method> getInlineCache() {
+        if (inlineCache == null)
+            inlineCache = new InlineCache<>();
+        return inlineCache;
+    }
+
     /**
      * Evaluate the method invocation with the specified callStack and
      * krineBasicInterpreter
@@ -39,11 +50,12 @@ class KrineMethodInvocation extends SimpleNode {
                 )
             return Primitive.VOID;
 
-        Name name = nameNode.getName(namespace);
+        Name name = nameNode.getResolver(namespace);
         Object[] args = getArgsNode().getArguments(callStack, krineBasicInterpreter);
 
         try {
-            return name.invokeMethod(krineBasicInterpreter, args, callStack, this);
+            return name.invokeMethod(namespace, krineBasicInterpreter, args, callStack, this,
+                    getInlineCache());
         } catch (ReflectException e) {
             throw new EvalError(
                     "Error in method invocation: " + e.getMessage(),
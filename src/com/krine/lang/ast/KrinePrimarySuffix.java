@@ -3,6 +3,7 @@ package com.krine.lang.ast;
 import com.krine.lang.InterpreterException;
 import com.krine.lang.KrineBasicInterpreter;
 import com.krine.lang.UtilEvalException;
+import com.krine.lang.reflect.InlineCache;
 import com.krine.lang.reflect.Reflect;
 import com.krine.lang.reflect.ReflectException;
 import com.krine.lang.utils.CallStack;
@@ -11,6 +12,7 @@ import com.krine.lang.utils.InvocationUtil;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 class KrinePrimarySuffix extends SimpleNode {
     public static final int
@@ -21,6 +23,8 @@ class KrinePrimarySuffix extends SimpleNode {
 
     public int operation;
     public String field;
+    // the Java methods called from here
+    private transient InlineCache<Method> inlineCache;
 
     KrinePrimarySuffix(int id) {
         super(id);
@@ -118,14 +122,14 @@ class KrinePrimarySuffix extends SimpleNode {
                     throw new EvalError(
                             "Can't assign array length", this, callStack);
                 else
-                    return new Primitive(Array.getLength(obj));
+                    return Primitive.valueOf(Array.getLength(obj));
 
             // leftValue access
             if (jjtGetNumChildren() == 0)
                 if (toLHS)
-                    return Reflect.getLHSObjectField(obj, field);
+                    return Reflect.getLHSObjectField(krineBasicInterpreter.getClassManager(), obj, field);
                 else
-                    return Reflect.getObjectFieldValue(obj, field);
+                    return Reflect.getObjectFieldValue(krineBasicInterpreter.getClassManager(), obj, field);
 
             // Method invocation
             // (LeftValue or non LeftValue evaluation can both encounter method calls)
@@ -139,7 +143,8 @@ class KrinePrimarySuffix extends SimpleNode {
             // maybe move this to Reflect ?
             try {
                 return Reflect.invokeObjectMethod(
-                        obj, field, oa, krineBasicInterpreter, callStack, this);
+                        obj, field, oa, krineBasicInterpreter, callStack, this,
+                        getInlineCache());
             } catch (ReflectException e) {
                 throw new EvalError(
                         "Error in method invocation: " + e.getMessage(),
@@ -153,6 +158,12 @@ class KrinePrimarySuffix extends SimpleNode {
         }
     }
 
+    private InlineCache<Method> getInlineCache() {
+        if (inlineCache == null)
+            inlineCache = new InlineCache<>();
+        return inlineCache;
+    }
+
     /**
      */
     static int getIndexAux(
@@ -235,7 +246,7 @@ class KrinePrimarySuffix extends SimpleNode {
         }
 
         try {
-            return Reflect.getObjectProperty(obj, (String) value);
+            return Reflect.getObjectProperty(krineBasicInterpreter.getClassManager(), obj, (String) value);
         } catch (UtilEvalException e) {
             throw e.toEvalError("Property: " + value, this, callStack);
         } catch (ReflectException e) {
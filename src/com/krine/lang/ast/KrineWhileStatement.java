@@ -12,6 +12,10 @@ class KrineWhileStatement extends SimpleNode implements ParserConstants {
      * Set by Parser, default {@code false}
      */
     boolean isDoStatement;
+    /**
+     * Back-edge counter of the enclosing method body, if any.
+     */
+    transient MethodProfile profile;
 
     KrineWhileStatement(int id) {
         super(id);
@@ -43,6 +47,8 @@ class KrineWhileStatement extends SimpleNode implements ParserConstants {
 
         while (doOnceFlag || KrineIfStatement.evaluateCondition(condExp, callStack, krineBasicInterpreter)) {
             doOnceFlag = false;
+            if (profile != null)
+                profile.countBackEdge();
             // no body?
             if (body == null) {
                 continue;
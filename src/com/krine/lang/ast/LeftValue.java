@@ -125,7 +125,7 @@ public class LeftValue implements ParserConstants, java.io.Serializable {
 
         if (type == PROPERTY)
             try {
-                return Reflect.getObjectProperty(object, propName);
+                return Reflect.getObjectProperty(null/*dcm*/, object, propName);
             } catch (ReflectException e) {
                 KrineBasicInterpreter.debug(e.getMessage());
                 throw new UtilEvalException("No such property: " + propName);
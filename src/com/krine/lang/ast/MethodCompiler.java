@@ -0,0 +1,1121 @@
+package com.krine.lang.ast;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.asm.ClassWriter;
+import com.krine.lang.asm.CodeVisitor;
+import com.krine.lang.asm.Constants;
+import com.krine.lang.asm.Label;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles the body of a hot KrineMethod into a JVM method, which HotSpot
+ * can then optimize like any other code.
+ * <p>
+ * This first tier handles bodies working only on their parameters and
+ * typed locals of type int, long, double and boolean: literals,
+ * arithmetic, comparisons, casts, assignments, if statements, loops and
+ * returns.  Such a body has no effect outside of its own frame, so a
+ * compiled call which can not complete the way the interpreter would
+ * (e.g. division by zero, or falling off the end of a method returning a
+ * value) just gives up and the call is interpreted again from the start.
+ * <p>
+ * Bodies using anything else (method calls, objects, untyped variables,
+ * variables of enclosing scopes, ...) are not compiled and stay
+ * interpreted.
+ * <p>
+ * The methods of scripted classes are compiled the same way when their
+ * class is generated, straight into the class in place of the delegate
+ * calling back into the interpreter.  Such member bodies may also use the
+ * typed fields of the class, as the JVM fields they are.  Having effects
+ * beyond their frame they can't give up, so they are only compiled if
+ * they can't fall off their end and have no integer division, which the
+ * interpreter reports as a KrineTargetException at the dividing node.
+ *
+ * @see MethodProfile
+ * @see ClassGenerator#generateCompiledMethod
+ */
+final class MethodCompiler implements Constants {
+    private static final String COMPILED_METHOD = "com/krine/lang/ast/CompiledMethod";
+    private static final String PRIMITIVE = "com/krine/lang/ast/Primitive";
+    private static final String CLASS_PREFIX = "com/krine/lang/ast/jit/";
+
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    private final Class returnType;
+    private final String[] paramNames;
+    private final Class[] paramTypes;
+    private final KrineBlock body;
+    /**
+     * The fields of the class a member body can use, null for the body of
+     * a CompiledMethod.
+     */
+    private final Map<String, ClassField> fields;
+    private final boolean isStatic;
+    private final List<Map<String, Local>> scopes = new ArrayList<>();
+    private CodeVisitor code;
+    private int nextLocal = 2; // this, args
+    private Label breakLabel;
+    private Label continueLabel;
+
+    private MethodCompiler(KrineMethod method) {
+        this.returnType = method.getReturnType();
+        this.paramNames = method.getParameterNames();
+        this.paramTypes = method.getParameterTypes();
+        this.body = method.methodBody;
+        this.fields = null;
+        this.isStatic = false;
+    }
+
+    private MethodCompiler(Class returnType, String[] paramNames, Class[] paramTypes,
+                           KrineBlock body, Map<String, ClassField> fields, boolean isStatic) {
+        this.returnType = returnType;
+        this.paramNames = paramNames;
+        this.paramTypes = paramTypes;
+        this.body = body;
+        this.fields = fields;
+        this.isStatic = isStatic;
+    }
+
+    /**
+     * Compile the body of the method.
+     *
+     * @return The compiled body, or null if it can not be compiled.
+     */
+    static CompiledMethod compile(KrineMethod method) {
+        String className = CLASS_PREFIX + method.getName() + "$" + classCount.incrementAndGet();
+
+        byte[] bytes;
+        try {
+            bytes = new MethodCompiler(method).generate(className);
+        } catch (UnsupportedNodeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Not compiling " + method + ": " + e.getMessage());
+            return null;
+        }
+
+        try {
+            Class clazz = new Loader().define(className.replace('/', '.'), bytes);
+            CompiledMethod compiled = (CompiledMethod) clazz.getDeclaredConstructor().newInstance();
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Compiled " + method + " to " + clazz.getName());
+            return compiled;
+        } catch (Exception | LinkageError e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Failed to load compiled " + method + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Compile the body of a method of a scripted class into its generated
+     * class.
+     *
+     * @param owner  The internal name of the class.
+     * @param access The access flags of the method.
+     * @param vars   The typed variables the class declares as fields.
+     * @return false if the body can not be compiled, nothing has been added
+     * to the class then.
+     */
+    static boolean compileMember(ClassWriter cw, String owner, KrineMethodDelayEvaluated method,
+                                 int access, Variable[] vars) {
+        try {
+            if ((access & (ACC_ABSTRACT | ACC_SYNCHRONIZED)) != 0)
+                throw new UnsupportedNodeException("modifiers");
+
+            Class returnType = descriptorType(method.getReturnTypeDescriptor());
+            String[] descriptors = method.getParamTypeDescriptors();
+            Class[] paramTypes = new Class[descriptors.length];
+            for (int i = 0; i < descriptors.length; i++)
+                paramTypes[i] = descriptorType(descriptors[i]);
+
+            Map<String, ClassField> fields = new HashMap<>();
+            for (Variable var : vars) {
+                try {
+                    Class type = descriptorType(var.getTypeDescriptor());
+                    fields.put(var.getName(), new ClassField(owner, var.getName(), type,
+                            var.hasModifier("static"), var.hasModifier("final")));
+                } catch (UnsupportedNodeException e) {
+                    // bodies using it are not compiled
+                }
+            }
+
+            boolean isStatic = (access & ACC_STATIC) != 0;
+            // compiled twice, the first time only to find out whether it can
+            // be: a method can't be taken back from a class writer
+            ClassWriter trial = new ClassWriter(true);
+            trial.visit(ACC_PUBLIC, owner, "java/lang/Object", null, null);
+            new MethodCompiler(returnType, method.getParameterNames(), paramTypes,
+                    method.methodBody, fields, isStatic).generateMember(trial, method.getName(), access);
+            new MethodCompiler(returnType, method.getParameterNames(), paramTypes,
+                    method.methodBody, fields, isStatic).generateMember(cw, method.getName(), access);
+        } catch (UnsupportedNodeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Not compiling " + owner + "." + method.getName()
+                        + ": " + e.getMessage());
+            return false;
+        }
+
+        if (KrineBasicInterpreter.DEBUG)
+            KrineBasicInterpreter.debug("Compiled " + owner + "." + method.getName());
+        return true;
+    }
+
+    /**
+     * @return The supported type of a type descriptor, or void for "V".
+     */
+    private static Class descriptorType(String descriptor) throws UnsupportedNodeException {
+        if (descriptor != null && descriptor.length() == 1) {
+            switch (descriptor.charAt(0)) {
+                case 'I':
+                    return Integer.TYPE;
+                case 'J':
+                    return Long.TYPE;
+                case 'D':
+                    return Double.TYPE;
+                case 'Z':
+                    return Boolean.TYPE;
+                case 'V':
+                    return Void.TYPE;
+            }
+        }
+        throw new UnsupportedNodeException("type " + descriptor);
+    }
+
+    private static boolean isSupportedType(Class type) {
+        return type == Integer.TYPE || type == Long.TYPE
+                || type == Double.TYPE || type == Boolean.TYPE;
+    }
+
+    private static boolean isNumeric(Class type) {
+        return type == Integer.TYPE || type == Long.TYPE || type == Double.TYPE;
+    }
+
+    /**
+     * Java widening, as allowed by Types.castObject() for assignments.
+     */
+    private static boolean isAssignable(Class to, Class from) {
+        return to == from
+                || from == Integer.TYPE && (to == Long.TYPE || to == Double.TYPE)
+                || from == Long.TYPE && to == Double.TYPE;
+    }
+
+    /**
+     * Binary numeric promotion, see Primitive.promotePrimitives().
+     */
+    private static Class promote(Class lhs, Class rhs) {
+        if (lhs == Double.TYPE || rhs == Double.TYPE)
+            return Double.TYPE;
+        if (lhs == Long.TYPE || rhs == Long.TYPE)
+            return Long.TYPE;
+        return Integer.TYPE;
+    }
+
+    private byte[] generate(String className) throws UnsupportedNodeException {
+        if (returnType != null && returnType != Void.TYPE && !isSupportedType(returnType))
+            throw new UnsupportedNodeException("return type " + returnType);
+
+        ClassWriter cw = new ClassWriter(true);
+        cw.visit(ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, COMPILED_METHOD, null,
+                body.getSourceFile());
+
+        CodeVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, COMPILED_METHOD, "<init>", "()V");
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+
+        code = cw.visitMethod(ACC_PUBLIC, "invoke",
+                "([Ljava/lang/Object;)Ljava/lang/Object;", null);
+
+        // the parameters and the top level of the body share the method scope
+        scopes.add(new HashMap<String, Local>());
+        for (int i = 0; i < paramNames.length; i++) {
+            if (!isSupportedType(paramTypes[i]))
+                throw new UnsupportedNodeException("parameter " + paramNames[i]);
+            Local local = declare(paramNames[i], paramTypes[i]);
+            code.visitVarInsn(ALOAD, 1);
+            pushInt(i);
+            code.visitInsn(AALOAD);
+            unbox(paramTypes[i]);
+            store(local);
+        }
+
+        if (body.isSynchronized)
+            throw new UnsupportedNodeException("synchronized block");
+        for (int i = 0; i < body.jjtGetNumChildren(); i++)
+            statement(body.getChild(i));
+
+        // falling off the end returns the value of the last statement
+        if (returnType == Void.TYPE)
+            code.visitFieldInsn(GETSTATIC, PRIMITIVE, "VOID", "L" + PRIMITIVE + ";");
+        else
+            code.visitInsn(ACONST_NULL);
+        code.visitInsn(ARETURN);
+        code.visitMaxs(0, 0);
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateMember(ClassWriter cw, String name, int access)
+            throws UnsupportedNodeException {
+        if (returnType != Void.TYPE) {
+            // the interpreter would fail the call, after its effects
+            int count = body.jjtGetNumChildren();
+            SimpleNode last = count == 0 ? null : body.getChild(count - 1);
+            if (!(last instanceof KrineReturnStatement)
+                    || ((KrineReturnStatement) last).kind != ParserConstants.RETURN)
+                throw new UnsupportedNodeException("may fall off the end");
+        }
+        if (body.isSynchronized)
+            throw new UnsupportedNodeException("synchronized block");
+
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class type : paramTypes) {
+            if (!isSupportedType(type))
+                throw new UnsupportedNodeException("parameter type " + type);
+            descriptor.append(descriptor(type));
+        }
+        descriptor.append(')').append(descriptor(returnType));
+        code = cw.visitMethod(access, name, descriptor.toString(), null);
+
+        // the parameters are where the JVM passes them
+        scopes.add(new HashMap<String, Local>());
+        nextLocal = isStatic ? 0 : 1;
+        for (int i = 0; i < paramNames.length; i++)
+            declare(paramNames[i], paramTypes[i]);
+
+        for (int i = 0; i < body.jjtGetNumChildren(); i++)
+            statement(body.getChild(i));
+
+        if (returnType == Void.TYPE) {
+            code.visitInsn(RETURN);
+        } else {
+            // not reached, the last statement returns
+            code.visitInsn(ACONST_NULL);
+            code.visitInsn(ATHROW);
+        }
+        code.visitMaxs(0, 0);
+    }
+
+    // Statements
+
+    private void statement(SimpleNode node) throws UnsupportedNodeException {
+        if (node instanceof KrineBlock) {
+            block((KrineBlock) node);
+        } else if (node instanceof KrineTypedVariableDeclaration) {
+            declaration((KrineTypedVariableDeclaration) node);
+        } else if (node instanceof KrineAssignment) {
+            assignment((KrineAssignment) node);
+        } else if (node instanceof KrineUnaryExpression
+                && isIncrement(((KrineUnaryExpression) node).kind)) {
+            pop(increment((KrineUnaryExpression) node));
+        } else if (node instanceof KrineStatementExpressionList) {
+            for (int i = 0; i < node.jjtGetNumChildren(); i++)
+                statement(node.getChild(i));
+        } else if (node instanceof KrineIfStatement) {
+            ifStatement(node);
+        } else if (node instanceof KrineWhileStatement) {
+            whileStatement((KrineWhileStatement) node);
+        } else if (node instanceof KrineForStatement) {
+            forStatement((KrineForStatement) node);
+        } else if (node instanceof KrineReturnStatement) {
+            returnStatement((KrineReturnStatement) node);
+        } else {
+            throw new UnsupportedNodeException(node);
+        }
+    }
+
+    /**
+     * A single statement as the body of an if or a loop.
+     */
+    private void nestedStatement(SimpleNode node) throws UnsupportedNodeException {
+        // it would be declared in the enclosing nameSpace
+        if (node instanceof KrineTypedVariableDeclaration)
+            throw new UnsupportedNodeException(node);
+        statement(node);
+    }
+
+    private void block(KrineBlock block) throws UnsupportedNodeException {
+        if (block.isSynchronized)
+            throw new UnsupportedNodeException("synchronized block");
+
+        scopes.add(new HashMap<String, Local>());
+        for (int i = 0; i < block.jjtGetNumChildren(); i++)
+            statement(block.getChild(i));
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private void declaration(KrineTypedVariableDeclaration node) throws UnsupportedNodeException {
+        if (node.modifiers != null)
+            throw new UnsupportedNodeException("modifiers");
+
+        Class type = primitiveType(node.getChild(0));
+        for (KrineVariableDeclarator declarator : node.getDeclarators()) {
+            if (declarator.jjtGetNumChildren() > 0) {
+                Class valueType = expression(declarator.getChild(0));
+                convert(valueType, type, true);
+            } else {
+                pushDefault(type);
+            }
+
+            // redeclaring in the same scope only sets the value
+            Local local = scopes.get(scopes.size() - 1).get(declarator.name);
+            if (local == null)
+                local = declare(declarator.name, type);
+            else if (local.type != type)
+                throw new UnsupportedNodeException("redeclared " + declarator.name);
+            store(local);
+        }
+    }
+
+    private void assignment(KrineAssignment node) throws UnsupportedNodeException {
+        Local local = variable(node.getChild(0));
+
+        if (node.operator == ParserConstants.ASSIGN) {
+            convert(expression(node.getChild(1)), local.type, true);
+        } else {
+            // the left hand side value is taken before evaluating the right
+            load(local);
+            Class type = binaryOperation(local.type, node.getChild(1),
+                    assignmentOperator(node.operator), node);
+            convert(type, local.type, true);
+        }
+        store(local);
+    }
+
+    private static int assignmentOperator(int operator) {
+        switch (operator) {
+            case ParserConstants.PLUSASSIGN:
+                return ParserConstants.PLUS;
+            case ParserConstants.MINUSASSIGN:
+                return ParserConstants.MINUS;
+            case ParserConstants.STARASSIGN:
+                return ParserConstants.STAR;
+            case ParserConstants.SLASHASSIGN:
+                return ParserConstants.SLASH;
+            case ParserConstants.MODASSIGN:
+                return ParserConstants.MOD;
+            case ParserConstants.ANDASSIGN:
+            case ParserConstants.ANDASSIGNX:
+                return ParserConstants.BIT_AND;
+            case ParserConstants.ORASSIGN:
+            case ParserConstants.ORASSIGNX:
+                return ParserConstants.BIT_OR;
+            case ParserConstants.XORASSIGN:
+                return ParserConstants.XOR;
+            case ParserConstants.LSHIFTASSIGN:
+            case ParserConstants.LSHIFTASSIGNX:
+                return ParserConstants.LSHIFT;
+            case ParserConstants.RSIGNEDSHIFTASSIGN:
+            case ParserConstants.RSIGNEDSHIFTASSIGNX:
+                return ParserConstants.RSIGNEDSHIFT;
+            case ParserConstants.RUNSIGNEDSHIFTASSIGN:
+            case ParserConstants.RUNSIGNEDSHIFTASSIGNX:
+                return ParserConstants.RUNSIGNEDSHIFT;
+            default:
+                return -1;
+        }
+    }
+
+    private void ifStatement(SimpleNode node) throws UnsupportedNodeException {
+        Label elseLabel = new Label();
+        condition(node.getChild(0), elseLabel);
+        nestedStatement(node.getChild(1));
+
+        if (node.jjtGetNumChildren() > 2) {
+            Label end = new Label();
+            code.visitJumpInsn(GOTO, end);
+            code.visitLabel(elseLabel);
+            nestedStatement(node.getChild(2));
+            code.visitLabel(end);
+        } else {
+            code.visitLabel(elseLabel);
+        }
+    }
+
+    private void whileStatement(KrineWhileStatement node) throws UnsupportedNodeException {
+        Label outerBreak = breakLabel, outerContinue = continueLabel;
+        Label top = new Label(), test = new Label(), end = new Label();
+        breakLabel = end;
+        continueLabel = test;
+
+        SimpleNode condition = node.getChild(node.isDoStatement ? 1 : 0);
+        SimpleNode body = node.jjtGetNumChildren() > 1
+                ? node.getChild(node.isDoStatement ? 0 : 1) : null;
+
+        code.visitJumpInsn(GOTO, node.isDoStatement ? top : test);
+        code.visitLabel(top);
+        if (body != null)
+            nestedStatement(body);
+        code.visitLabel(test);
+        condition(condition, end);
+        code.visitJumpInsn(GOTO, top);
+        code.visitLabel(end);
+
+        breakLabel = outerBreak;
+        continueLabel = outerContinue;
+    }
+
+    private void forStatement(KrineForStatement node) throws UnsupportedNodeException {
+        Label outerBreak = breakLabel, outerContinue = continueLabel;
+        Label test = new Label(), update = new Label(), end = new Label();
+
+        int i = 0;
+        SimpleNode init = node.hasForInit ? node.getChild(i++) : null;
+        SimpleNode expression = node.hasExpression ? node.getChild(i++) : null;
+        SimpleNode forUpdate = node.hasForUpdate ? node.getChild(i++) : null;
+        SimpleNode body = i < node.jjtGetNumChildren() ? node.getChild(i) : null;
+
+        // the for init has a scope of its own
+        scopes.add(new HashMap<String, Local>());
+        if (init != null)
+            statement(init);
+
+        code.visitLabel(test);
+        if (expression != null)
+            condition(expression, end);
+
+        breakLabel = end;
+        continueLabel = update;
+        if (body != null)
+            nestedStatement(body);
+        breakLabel = outerBreak;
+        continueLabel = outerContinue;
+
+        code.visitLabel(update);
+        if (forUpdate != null)
+            statement(forUpdate);
+        code.visitJumpInsn(GOTO, test);
+        code.visitLabel(end);
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private void returnStatement(KrineReturnStatement node) throws UnsupportedNodeException {
+        if (node.kind == ParserConstants.BREAK || node.kind == ParserConstants.CONTINUE) {
+            Label target = node.kind == ParserConstants.BREAK ? breakLabel : continueLabel;
+            if (target == null || node.jjtGetNumChildren() > 0)
+                throw new UnsupportedNodeException(node);
+            code.visitJumpInsn(GOTO, target);
+            return;
+        }
+
+        if (node.jjtGetNumChildren() == 0) {
+            if (returnType != null && returnType != Void.TYPE)
+                throw new UnsupportedNodeException("missing return value");
+            if (fields != null) {
+                code.visitInsn(RETURN);
+                return;
+            }
+            code.visitFieldInsn(GETSTATIC, PRIMITIVE, "VOID", "L" + PRIMITIVE + ";");
+        } else {
+            if (returnType == Void.TYPE)
+                throw new UnsupportedNodeException("return value from void method");
+            Class type = expression(node.getChild(0));
+            if (returnType != null) {
+                convert(type, returnType, true);
+                type = returnType;
+            }
+            if (fields != null) {
+                code.visitInsn(type == Long.TYPE ? LRETURN
+                        : type == Double.TYPE ? DRETURN : IRETURN);
+                return;
+            }
+            box(type);
+        }
+        code.visitInsn(ARETURN);
+    }
+
+    // Expressions
+
+    /**
+     * Emit the code of an expression.
+     *
+     * @return The type of the value left on the stack.
+     */
+    private Class expression(SimpleNode node) throws UnsupportedNodeException {
+        if (node instanceof KrinePrimaryExpression) {
+            if (node.jjtGetNumChildren() != 1)
+                throw new UnsupportedNodeException(node);
+            return expression(node.getChild(0));
+        }
+        if (node instanceof KrineAmbiguousName) {
+            Local local = lookup(((KrineAmbiguousName) node).text, node);
+            load(local);
+            return local.type;
+        }
+        if (node instanceof KrineLiteral)
+            return literal((KrineLiteral) node);
+        if (node instanceof KrineBinaryExpression)
+            return binaryExpression((KrineBinaryExpression) node);
+        if (node instanceof KrineUnaryExpression)
+            return unaryExpression((KrineUnaryExpression) node);
+        if (node instanceof KrineTernaryExpression)
+            return ternaryExpression(node);
+        if (node instanceof KrineCastExpression)
+            return castExpression(node);
+        throw new UnsupportedNodeException(node);
+    }
+
+    /**
+     * Emit a boolean expression jumping to the label when it is false.
+     */
+    private void condition(SimpleNode node, Label whenFalse) throws UnsupportedNodeException {
+        if (expression(node) != Boolean.TYPE)
+            throw new UnsupportedNodeException("condition is not boolean");
+        code.visitJumpInsn(IFEQ, whenFalse);
+    }
+
+    private Class literal(KrineLiteral node) throws UnsupportedNodeException {
+        if (!(node.value instanceof Primitive))
+            throw new UnsupportedNodeException(node);
+
+        Object value = ((Primitive) node.value).getValue();
+        if (value instanceof Integer) {
+            pushInt((Integer) value);
+            return Integer.TYPE;
+        }
+        if (value instanceof Long) {
+            long l = (Long) value;
+            if (l == 0 || l == 1)
+                code.visitInsn(l == 0 ? LCONST_0 : LCONST_1);
+            else
+                code.visitLdcInsn(value);
+            return Long.TYPE;
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            if (Double.doubleToLongBits(d) == 0L || d == 1)
+                code.visitInsn(d == 0 ? DCONST_0 : DCONST_1);
+            else
+                code.visitLdcInsn(value);
+            return Double.TYPE;
+        }
+        if (value instanceof Boolean) {
+            code.visitInsn((Boolean) value ? ICONST_1 : ICONST_0);
+            return Boolean.TYPE;
+        }
+        throw new UnsupportedNodeException(node);
+    }
+
+    private Class binaryExpression(KrineBinaryExpression node) throws UnsupportedNodeException {
+        int kind = node.kind;
+        if (kind == ParserConstants.BOOL_AND || kind == ParserConstants.BOOL_ANDX
+                || kind == ParserConstants.BOOL_OR || kind == ParserConstants.BOOL_ORX) {
+            // short circuit
+            boolean and = kind == ParserConstants.BOOL_AND || kind == ParserConstants.BOOL_ANDX;
+            Label shortCircuit = new Label(), end = new Label();
+            if (expression(node.getChild(0)) != Boolean.TYPE)
+                throw new UnsupportedNodeException(node);
+            code.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+            if (expression(node.getChild(1)) != Boolean.TYPE)
+                throw new UnsupportedNodeException(node);
+            code.visitJumpInsn(GOTO, end);
+            code.visitLabel(shortCircuit);
+            code.visitInsn(and ? ICONST_0 : ICONST_1);
+            code.visitLabel(end);
+            return Boolean.TYPE;
+        }
+
+        Class lhs = expression(node.getChild(0));
+        return binaryOperation(lhs, node.getChild(1), kind, node);
+    }
+
+    /**
+     * Emit the right hand side and the operation, the left hand side value
+     * of the given type is already on the stack.
+     */
+    private Class binaryOperation(Class lhs, SimpleNode rhsNode, int kind, SimpleNode node)
+            throws UnsupportedNodeException {
+        if (lhs == Boolean.TYPE) {
+            if (expression(rhsNode) != Boolean.TYPE)
+                throw new UnsupportedNodeException(node);
+            return booleanOperation(kind, node);
+        }
+
+        if (!isNumeric(lhs))
+            throw new UnsupportedNodeException(node);
+        Class rhs = expression(rhsNode);
+        if (!isNumeric(rhs))
+            throw new UnsupportedNodeException(node);
+
+        Class type = promote(lhs, rhs);
+        if (lhs != type) {
+            // park the right hand side to promote the left one beneath it
+            int rhsLocal = nextLocal;
+            nextLocal += rhs == Integer.TYPE ? 1 : 2;
+            code.visitVarInsn(storeOpcode(rhs), rhsLocal);
+            convert(lhs, type, false);
+            code.visitVarInsn(loadOpcode(rhs), rhsLocal);
+        }
+        convert(rhs, type, false);
+
+        if (isShift(kind)) {
+            if (type == Double.TYPE)
+                throw new UnsupportedNodeException("can't shift doubles");
+            if (type == Long.TYPE)
+                code.visitInsn(L2I);
+        }
+        return numericOperation(kind, type, node);
+    }
+
+    private Class booleanOperation(int kind, SimpleNode node) throws UnsupportedNodeException {
+        switch (kind) {
+            case ParserConstants.EQ:
+                return compare(IF_ICMPEQ);
+            case ParserConstants.NE:
+                return compare(IF_ICMPNE);
+            case ParserConstants.BIT_AND:
+                code.visitInsn(IAND);
+                return Boolean.TYPE;
+            case ParserConstants.BIT_OR:
+                code.visitInsn(IOR);
+                return Boolean.TYPE;
+            case ParserConstants.XOR:
+                code.visitInsn(IXOR);
+                return Boolean.TYPE;
+            default:
+                throw new UnsupportedNodeException(node);
+        }
+    }
+
+    private Class numericOperation(int kind, Class type, SimpleNode node)
+            throws UnsupportedNodeException {
+        int offset = type == Integer.TYPE ? 0 : type == Long.TYPE ? 1 : 3;
+        switch (kind) {
+            case ParserConstants.LT:
+            case ParserConstants.LTX:
+                return numericCompare(type, IFLT, IF_ICMPLT);
+            case ParserConstants.GT:
+            case ParserConstants.GTX:
+                return numericCompare(type, IFGT, IF_ICMPGT);
+            case ParserConstants.LE:
+            case ParserConstants.LEX:
+                return numericCompare(type, IFLE, IF_ICMPLE);
+            case ParserConstants.GE:
+            case ParserConstants.GEX:
+                return numericCompare(type, IFGE, IF_ICMPGE);
+            case ParserConstants.EQ:
+                return numericCompare(type, IFEQ, IF_ICMPEQ);
+            case ParserConstants.NE:
+                return numericCompare(type, IFNE, IF_ICMPNE);
+            case ParserConstants.PLUS:
+                code.visitInsn(IADD + offset);
+                return type;
+            case ParserConstants.MINUS:
+                code.visitInsn(ISUB + offset);
+                return type;
+            case ParserConstants.STAR:
+                code.visitInsn(IMUL + offset);
+                return type;
+            case ParserConstants.SLASH:
+                checkDivision(type);
+                code.visitInsn(IDIV + offset);
+                return type;
+            case ParserConstants.MOD:
+                checkDivision(type);
+                code.visitInsn(IREM + offset);
+                return type;
+        }
+
+        if (type == Double.TYPE)
+            throw new UnsupportedNodeException(node);
+        switch (kind) {
+            case ParserConstants.LSHIFT:
+            case ParserConstants.LSHIFTX:
+                code.visitInsn(ISHL + offset);
+                return type;
+            case ParserConstants.RSIGNEDSHIFT:
+            case ParserConstants.RSIGNEDSHIFTX:
+                code.visitInsn(ISHR + offset);
+                return type;
+            case ParserConstants.RUNSIGNEDSHIFT:
+            case ParserConstants.RUNSIGNEDSHIFTX:
+                code.visitInsn(IUSHR + offset);
+                return type;
+            case ParserConstants.BIT_AND:
+            case ParserConstants.BIT_ANDX:
+                code.visitInsn(IAND + offset);
+                return type;
+            case ParserConstants.BIT_OR:
+            case ParserConstants.BIT_ORX:
+                code.visitInsn(IOR + offset);
+                return type;
+            case ParserConstants.XOR:
+                code.visitInsn(IXOR + offset);
+                return type;
+            default:
+                throw new UnsupportedNodeException(node);
+        }
+    }
+
+    /**
+     * A member body can't give up on division by zero, and the interpreter
+     * throws a KrineTargetException at the node rather than the plain
+     * ArithmeticException.
+     */
+    private void checkDivision(Class type) throws UnsupportedNodeException {
+        if (fields != null && type != Double.TYPE)
+            throw new UnsupportedNodeException("integer division in a member body");
+    }
+
+    private Class numericCompare(Class type, int compareOpcode, int intCompareOpcode) {
+        if (type == Integer.TYPE)
+            return compare(intCompareOpcode);
+
+        if (type == Long.TYPE)
+            code.visitInsn(LCMP);
+        else
+            // NaN compares false, except for !=
+            code.visitInsn(compareOpcode == IFLT || compareOpcode == IFLE ? DCMPG : DCMPL);
+        return compare(compareOpcode);
+    }
+
+    /**
+     * Turn a conditional jump into a boolean value.
+     */
+    private Class compare(int jumpOpcode) {
+        Label whenTrue = new Label(), end = new Label();
+        code.visitJumpInsn(jumpOpcode, whenTrue);
+        code.visitInsn(ICONST_0);
+        code.visitJumpInsn(GOTO, end);
+        code.visitLabel(whenTrue);
+        code.visitInsn(ICONST_1);
+        code.visitLabel(end);
+        return Boolean.TYPE;
+    }
+
+    private Class unaryExpression(KrineUnaryExpression node) throws UnsupportedNodeException {
+        if (isIncrement(node.kind))
+            return increment(node);
+
+        Class type = expression(node.getChild(0));
+        switch (node.kind) {
+            case ParserConstants.BANG:
+                if (type != Boolean.TYPE)
+                    throw new UnsupportedNodeException(node);
+                code.visitInsn(ICONST_1);
+                code.visitInsn(IXOR);
+                return type;
+            case ParserConstants.PLUS:
+                if (!isNumeric(type))
+                    throw new UnsupportedNodeException(node);
+                return type;
+            case ParserConstants.MINUS:
+                if (!isNumeric(type))
+                    throw new UnsupportedNodeException(node);
+                code.visitInsn(type == Integer.TYPE ? INEG : type == Long.TYPE ? LNEG : DNEG);
+                return type;
+            case ParserConstants.TILDE:
+                if (type == Integer.TYPE) {
+                    code.visitInsn(ICONST_M1);
+                    code.visitInsn(IXOR);
+                } else if (type == Long.TYPE) {
+                    code.visitLdcInsn(-1L);
+                    code.visitInsn(LXOR);
+                } else {
+                    throw new UnsupportedNodeException(node);
+                }
+                return type;
+            default:
+                throw new UnsupportedNodeException(node);
+        }
+    }
+
+    private static boolean isIncrement(int kind) {
+        return kind == ParserConstants.INCR || kind == ParserConstants.DECR;
+    }
+
+    private static boolean isShift(int kind) {
+        switch (kind) {
+            case ParserConstants.LSHIFT:
+            case ParserConstants.LSHIFTX:
+            case ParserConstants.RSIGNEDSHIFT:
+            case ParserConstants.RSIGNEDSHIFTX:
+            case ParserConstants.RUNSIGNEDSHIFT:
+            case ParserConstants.RUNSIGNEDSHIFTX:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * ++ or -- of an int or long variable, leaving its pre or post value.
+     */
+    private Class increment(KrineUnaryExpression node) throws UnsupportedNodeException {
+        Local local = variable(node.getChild(0));
+        int delta = node.kind == ParserConstants.INCR ? 1 : -1;
+
+        if (local.type == Integer.TYPE && !(local instanceof ClassField)) {
+            if (node.postfix)
+                load(local);
+            code.visitIincInsn(local.index, delta);
+            if (!node.postfix)
+                load(local);
+        } else if (local.type == Integer.TYPE || local.type == Long.TYPE) {
+            boolean wide = local.type == Long.TYPE;
+            load(local);
+            if (node.postfix)
+                code.visitInsn(wide ? DUP2 : DUP);
+            code.visitInsn(wide ? LCONST_1 : ICONST_1);
+            if (wide)
+                code.visitInsn(delta > 0 ? LADD : LSUB);
+            else
+                code.visitInsn(delta > 0 ? IADD : ISUB);
+            if (!node.postfix)
+                code.visitInsn(wide ? DUP2 : DUP);
+            store(local);
+        } else {
+            throw new UnsupportedNodeException(node);
+        }
+        return local.type;
+    }
+
+    private Class ternaryExpression(SimpleNode node) throws UnsupportedNodeException {
+        Label whenFalse = new Label(), end = new Label();
+        condition(node.getChild(0), whenFalse);
+        Class type = expression(node.getChild(1));
+        code.visitJumpInsn(GOTO, end);
+        code.visitLabel(whenFalse);
+        // the value is not promoted, both branches must agree
+        if (expression(node.getChild(2)) != type)
+            throw new UnsupportedNodeException(node);
+        code.visitLabel(end);
+        return type;
+    }
+
+    private Class castExpression(SimpleNode node) throws UnsupportedNodeException {
+        Class type = primitiveType(node.getChild(0));
+        Class from = expression(node.getChild(1));
+        if ((type == Boolean.TYPE) != (from == Boolean.TYPE))
+            throw new UnsupportedNodeException(node);
+        convert(from, type, false);
+        return type;
+    }
+
+    // Helpers
+
+    private Class primitiveType(SimpleNode typeNode) throws UnsupportedNodeException {
+        if (!(typeNode instanceof KrineType) || ((KrineType) typeNode).getArrayDims() != 0
+                || !(typeNode.getChild(0) instanceof KrinePrimitiveType))
+            throw new UnsupportedNodeException(typeNode);
+
+        Class type = ((KrinePrimitiveType) typeNode.getChild(0)).getType();
+        if (!isSupportedType(type))
+            throw new UnsupportedNodeException("type " + type);
+        return type;
+    }
+
+    /**
+     * @return The local a simple name expression assigned to refers to.
+     */
+    private Local variable(SimpleNode node) throws UnsupportedNodeException {
+        if (!(node instanceof KrinePrimaryExpression) || node.jjtGetNumChildren() != 1
+                || !(node.getChild(0) instanceof KrineAmbiguousName))
+            throw new UnsupportedNodeException(node);
+        Local local = lookup(((KrineAmbiguousName) node.getChild(0)).text, node);
+        if (local instanceof ClassField && ((ClassField) local).isFinal)
+            throw new UnsupportedNodeException("final field at line " + node.getLineNumber());
+        return local;
+    }
+
+    private Local lookup(String name, SimpleNode node) throws UnsupportedNodeException {
+        if (fields != null && !isStatic && name.startsWith("this.")) {
+            Local field = fields.get(name.substring("this.".length()));
+            if (field != null)
+                return field;
+            throw new UnsupportedNodeException(node);
+        }
+
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Local local = scopes.get(i).get(name);
+            if (local != null)
+                return local;
+        }
+
+        // a field of the class, only static ones for a static method
+        ClassField field = fields == null ? null : fields.get(name);
+        if (field != null && (field.isStatic || !isStatic))
+            return field;
+
+        // anything but a local of this frame
+        throw new UnsupportedNodeException(node);
+    }
+
+    private Local declare(String name, Class type) {
+        Local local = new Local(nextLocal, type);
+        nextLocal += type == Long.TYPE || type == Double.TYPE ? 2 : 1;
+        scopes.get(scopes.size() - 1).put(name, local);
+        return local;
+    }
+
+    private void load(Local local) {
+        if (local instanceof ClassField) {
+            ClassField field = (ClassField) local;
+            if (field.isStatic) {
+                code.visitFieldInsn(GETSTATIC, field.owner, field.name, descriptor(field.type));
+            } else {
+                code.visitVarInsn(ALOAD, 0);
+                code.visitFieldInsn(GETFIELD, field.owner, field.name, descriptor(field.type));
+            }
+            return;
+        }
+        code.visitVarInsn(loadOpcode(local.type), local.index);
+    }
+
+    private void store(Local local) {
+        if (local instanceof ClassField) {
+            ClassField field = (ClassField) local;
+            if (field.isStatic) {
+                code.visitFieldInsn(PUTSTATIC, field.owner, field.name, descriptor(field.type));
+            } else {
+                // the instance goes beneath the value
+                code.visitVarInsn(ALOAD, 0);
+                if (field.type == Long.TYPE || field.type == Double.TYPE) {
+                    code.visitInsn(DUP_X2);
+                    code.visitInsn(POP);
+                } else {
+                    code.visitInsn(SWAP);
+                }
+                code.visitFieldInsn(PUTFIELD, field.owner, field.name, descriptor(field.type));
+            }
+            return;
+        }
+        code.visitVarInsn(storeOpcode(local.type), local.index);
+    }
+
+    private static String descriptor(Class type) {
+        return type == Integer.TYPE ? "I" : type == Long.TYPE ? "J"
+                : type == Double.TYPE ? "D" : type == Boolean.TYPE ? "Z" : "V";
+    }
+
+    private static int loadOpcode(Class type) {
+        return type == Long.TYPE ? LLOAD : type == Double.TYPE ? DLOAD : ILOAD;
+    }
+
+    private static int storeOpcode(Class type) {
+        return type == Long.TYPE ? LSTORE : type == Double.TYPE ? DSTORE : ISTORE;
+    }
+
+    private void pop(Class type) {
+        code.visitInsn(type == Long.TYPE || type == Double.TYPE ? POP2 : POP);
+    }
+
+    /**
+     * Convert the value on the stack between primitive types.
+     *
+     * @param assignment if true only widening is allowed
+     */
+    private void convert(Class from, Class to, boolean assignment) throws UnsupportedNodeException {
+        if (from == to)
+            return;
+        if (assignment && !isAssignable(to, from) || !isNumeric(from) || !isNumeric(to))
+            throw new UnsupportedNodeException("can't convert " + from + " to " + to);
+
+        if (from == Integer.TYPE)
+            code.visitInsn(to == Long.TYPE ? I2L : I2D);
+        else if (from == Long.TYPE)
+            code.visitInsn(to == Integer.TYPE ? L2I : L2D);
+        else
+            code.visitInsn(to == Integer.TYPE ? D2I : D2L);
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5)
+            code.visitInsn(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            code.visitIntInsn(BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            code.visitIntInsn(SIPUSH, value);
+        else
+            code.visitLdcInsn(value);
+    }
+
+    private void pushDefault(Class type) {
+        if (type == Long.TYPE)
+            code.visitInsn(LCONST_0);
+        else if (type == Double.TYPE)
+            code.visitInsn(DCONST_0);
+        else
+            code.visitInsn(ICONST_0);
+    }
+
+    private void unbox(Class type) {
+        String wrapper = type == Integer.TYPE ? "java/lang/Integer"
+                : type == Long.TYPE ? "java/lang/Long"
+                : type == Double.TYPE ? "java/lang/Double" : "java/lang/Boolean";
+        String getter = type.getName() + "Value";
+        code.visitTypeInsn(CHECKCAST, wrapper);
+        code.visitMethodInsn(INVOKEVIRTUAL, wrapper, getter,
+                "()" + (type == Boolean.TYPE ? "Z" : type == Integer.TYPE ? "I"
+                        : type == Long.TYPE ? "J" : "D"));
+    }
+
+    private void box(Class type) {
+        String descriptor = type == Boolean.TYPE ? "Z" : type == Integer.TYPE ? "I"
+                : type == Long.TYPE ? "J" : "D";
+        code.visitMethodInsn(INVOKESTATIC, COMPILED_METHOD, "box",
+                "(" + descriptor + ")Ljava/lang/Object;");
+    }
+
+    private static class Local {
+        final int index;
+        final Class type;
+
+        Local(int index, Class type) {
+            this.index = index;
+            this.type = type;
+        }
+    }
+
+    /**
+     * A field of the class of a member body, used like a local.
+     */
+    private static final class ClassField extends Local {
+        final String owner;
+        final String name;
+        final boolean isStatic;
+        final boolean isFinal;
+
+        ClassField(String owner, String name, Class type, boolean isStatic, boolean isFinal) {
+            super(-1, type);
+            this.owner = owner;
+            this.name = name;
+            this.isStatic = isStatic;
+            this.isFinal = isFinal;
+        }
+    }
+
+    /**
+     * The body uses something the compiler does not handle.
+     */
+    private static final class UnsupportedNodeException extends Exception {
+        UnsupportedNodeException(String message) {
+            super(message);
+        }
+
+        UnsupportedNodeException(SimpleNode node) {
+            super(node + " at line " + node.getLineNumber());
+        }
+    }
+
+    /**
+     * Each compiled method gets a loader of its own, so it can be unloaded
+     * with the method.
+     */
+    private static final class Loader extends ClassLoader {
+        Loader() {
+            super(CompiledMethod.class.getClassLoader());
+        }
+
+        Class define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
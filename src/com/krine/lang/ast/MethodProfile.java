@@ -0,0 +1,144 @@
+package com.krine.lang.ast;
+
+import com.krine.lang.UtilEvalException;
+import com.krine.lang.utils.Capabilities;
+
+import java.util.Arrays;
+
+/**
+ * Invocation and loop back-edge counters of a method body, and the
+ * compiled body once it got hot.
+ * <p>
+ * The profile belongs to the method body, so it is shared by all the
+ * KrineMethods declared by the same declaration.  Loops of the body count
+ * their iterations as back-edges.  When either counter passes its
+ * threshold the body is handed to the MethodCompiler, a body it can not
+ * compile is not tried again and stays interpreted.  There is no on stack
+ * replacement: a method compiled while running keeps running interpreted,
+ * its next invocations run compiled.
+ * <p>
+ * The invocation threshold is read from the "krine.jit.threshold" system
+ * property (back-edges use ten times that), compilation can be turned off
+ * with "krine.jit" set to false.  It is always off on Android, where JVM
+ * bytecode can not be loaded directly.
+ */
+final class MethodProfile {
+    static final int DEFAULT_THRESHOLD = 1000;
+
+    static final boolean ENABLED = isEnabledByDefault();
+    private static final int INVOCATION_THRESHOLD = getThreshold();
+    private static final int BACK_EDGE_THRESHOLD = INVOCATION_THRESHOLD * 10;
+
+    private int invocationCount;
+    private int backEdgeCount;
+    private volatile CompiledMethod compiled;
+    private volatile boolean failed;
+    // the signature the body was compiled for
+    private Class returnType;
+    private Class[] paramTypes;
+
+    MethodProfile(KrineBlock body) {
+        attachLoops(body);
+    }
+
+    private static boolean isEnabledByDefault() {
+        try {
+            return !"false".equals(System.getProperty("krine.jit"))
+                    && !Capabilities.isAndroid();
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    private static int getThreshold() {
+        try {
+            return Math.max(1, Integer.getInteger("krine.jit.threshold", DEFAULT_THRESHOLD));
+        } catch (SecurityException e) {
+            return DEFAULT_THRESHOLD;
+        }
+    }
+
+    /**
+     * Let the loops of the body count their back-edges here.
+     */
+    private void attachLoops(SimpleNode node) {
+        if (node instanceof KrineWhileStatement)
+            ((KrineWhileStatement) node).profile = this;
+        else if (node instanceof KrineForStatement)
+            ((KrineForStatement) node).profile = this;
+        else if (node instanceof KrineEnhancedForStatement)
+            ((KrineEnhancedForStatement) node).profile = this;
+
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            SimpleNode child = node.getChild(i);
+            // nested methods have profiles of their own
+            if (!(child instanceof KrineMethodDeclaration || child instanceof KrineClassDeclaration))
+                attachLoops(child);
+        }
+    }
+
+    void countBackEdge() {
+        ++backEdgeCount;
+    }
+
+    /**
+     * Run the method body compiled, compiling it first if it just got hot.
+     *
+     * @return The return value, or null if the method must be interpreted.
+     */
+    Object invoke(KrineMethod method, Object[] argValues) {
+        CompiledMethod compiled = this.compiled;
+        if (compiled == null) {
+            if (!ENABLED || failed)
+                return null;
+            if (++invocationCount < INVOCATION_THRESHOLD && backEdgeCount < BACK_EDGE_THRESHOLD)
+                return null;
+            compiled = compile(method);
+            if (compiled == null)
+                return null;
+        }
+
+        if (returnType != method.getReturnType()
+                || !Arrays.equals(paramTypes, method.getParameterTypes()))
+            return null;
+
+        Object[] args = new Object[argValues.length];
+        try {
+            for (int i = 0; i < args.length; i++)
+                args[i] = Primitive.unwrap(
+                        Types.castObject(argValues[i], paramTypes[i], Types.ASSIGNMENT));
+        } catch (UtilEvalException e) {
+            // let the interpreter report it
+            return null;
+        }
+
+        try {
+            return compiled.invoke(args);
+        } catch (ArithmeticException e) {
+            // integer division by zero, the only exception compiled bodies
+            // throw: the interpreter reports it at the dividing node
+            return null;
+        }
+    }
+
+    private synchronized CompiledMethod compile(KrineMethod method) {
+        if (compiled == null && !failed) {
+            CompiledMethod compiledMethod = MethodCompiler.compile(method);
+            if (compiledMethod == null) {
+                failed = true;
+            } else {
+                returnType = method.getReturnType();
+                paramTypes = method.getParameterTypes();
+                compiled = compiledMethod;
+            }
+        }
+        return compiled;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodProfile: invocations=" + invocationCount
+                + ", backEdges=" + backEdgeCount
+                + (compiled != null ? ", compiled" : failed ? ", not compilable" : "");
+    }
+}
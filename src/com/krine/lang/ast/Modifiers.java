@@ -1,8 +1,11 @@
 package com.krine.lang.ast;
 
-import java.util.Hashtable;
+import java.lang.reflect.Modifier;
 
 /**
+ * The modifiers of a class, method or field declaration, kept as a bitmask
+ * of the java.lang.reflect.Modifier flags.
+ *
  * @author Pat Niemeyer (pat@pat.net)
  */
 /*
@@ -10,24 +13,43 @@ import java.util.Hashtable;
 */
 public class Modifiers implements java.io.Serializable {
     public static final int CLASS = 0, METHOD = 1, FIELD = 2;
-    Hashtable modifiers;
+
+    private static final String[] NAMES = {
+            "public", "private", "protected", "static", "final", "synchronized",
+            "volatile", "transient", "native", "abstract", "strictfp"
+    };
+    private static final int[] FLAGS = {
+            Modifier.PUBLIC, Modifier.PRIVATE, Modifier.PROTECTED, Modifier.STATIC,
+            Modifier.FINAL, Modifier.SYNCHRONIZED, Modifier.VOLATILE,
+            Modifier.TRANSIENT, Modifier.NATIVE, Modifier.ABSTRACT, Modifier.STRICT
+    };
+
+    int flags;
+
+    /**
+     * @return The java.lang.reflect.Modifier flag of the modifier name, or 0
+     * if it is not a modifier.
+     */
+    public static int getFlag(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name))
+                return FLAGS[i];
+        }
+        return 0;
+    }
 
     /**
      * @param context is METHOD or FIELD
      */
     public void addModifier(int context, String name) {
-        if (modifiers == null)
-            modifiers = new Hashtable();
-
-        Object existing = modifiers.put(name, Void.TYPE/*arbitrary flag*/);
-        if (existing != null)
+        int flag = getFlag(name);
+        if (flag == 0)
+            throw new IllegalStateException("Unknown modifier: " + name);
+        if ((flags & flag) != 0)
             throw new IllegalStateException("Duplicate modifier: " + name);
+        flags |= flag;
 
-        int count = 0;
-        if (hasModifier("private")) ++count;
-        if (hasModifier("protected")) ++count;
-        if (hasModifier("public")) ++count;
-        if (count > 1)
+        if (Integer.bitCount(flags & (Modifier.PRIVATE | Modifier.PROTECTED | Modifier.PUBLIC)) > 1)
             throw new IllegalStateException(
                     "public/private/protected cannot be used in combination.");
 
@@ -44,38 +66,63 @@ public class Modifiers implements java.io.Serializable {
         }
     }
 
+    Modifiers copy() {
+        Modifiers copy = new Modifiers();
+        copy.flags = flags;
+        return copy;
+    }
+
     public boolean hasModifier(String name) {
-        if (modifiers == null)
-            modifiers = new Hashtable();
-        return modifiers.get(name) != null;
+        return hasModifier(getFlag(name));
+    }
+
+    /**
+     * @param flag is a java.lang.reflect.Modifier flag.
+     */
+    public boolean hasModifier(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @return The modifiers as java.lang.reflect.Modifier flags.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Check a modifier flag of possibly absent modifiers.
+     */
+    static boolean hasModifier(Modifiers modifiers, int flag) {
+        return modifiers != null && modifiers.hasModifier(flag);
     }
 
     // could refactor these a bit
     private void validateForMethod() {
-        insureNo("volatile", "Method");
-        insureNo("transient", "Method");
+        insureNo(Modifier.VOLATILE, "Method");
+        insureNo(Modifier.TRANSIENT, "Method");
     }
 
     private void validateForField() {
-        insureNo("synchronized", "Variable");
-        insureNo("native", "Variable");
-        insureNo("abstract", "Variable");
+        insureNo(Modifier.SYNCHRONIZED, "Variable");
+        insureNo(Modifier.NATIVE, "Variable");
+        insureNo(Modifier.ABSTRACT, "Variable");
     }
 
     private void validateForClass() {
         validateForMethod(); // volatile, transient
-        insureNo("native", "Class");
-        insureNo("synchronized", "Class");
+        insureNo(Modifier.NATIVE, "Class");
+        insureNo(Modifier.SYNCHRONIZED, "Class");
     }
 
-    private void insureNo(String modifier, String context) {
-        if (hasModifier(modifier))
+    private void insureNo(int flag, String context) {
+        if (hasModifier(flag))
             throw new IllegalStateException(
-                    context + " cannot be declared '" + modifier + "'");
+                    context + " cannot be declared '" + Modifier.toString(flag) + "'");
     }
 
     public String toString() {
-        return "Modifiers: " + modifiers;
+        return "Modifiers: " + Modifier.toString(flags);
     }
 
 }
@@ -7,6 +7,7 @@ import com.krine.lang.UtilTargetException;
 import com.krine.lang.classpath.ClassIdentifier;
 import com.krine.lang.classpath.ClassPathException;
 import com.krine.lang.classpath.KrineClassManager;
+import com.krine.lang.reflect.InlineCache;
 import com.krine.lang.reflect.Reflect;
 import com.krine.lang.reflect.ReflectException;
 import com.krine.lang.utils.CallStack;
@@ -14,6 +15,7 @@ import com.krine.lang.utils.CallStack;
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 /**
  * Name() is a somewhat ambiguous thing in the grammar and so is this.
@@ -35,8 +37,16 @@ import java.lang.reflect.InvocationTargetException;
 /*
     <strong>Implementation notes</strong>
 	<pre>
-	Thread safety: all of the work methods in this class must be synchronized
-	because they share the internal intermediate evaluation state.
+	Thread safety: a Name is shared by every evaluation of the name in its
+	nameSpace.  The intermediate state of an evaluation is kept in an
+	Evaluation of its own, the Name itself only caches results which are
+	the same for every evaluation.
+
+	Method frames and blocks which import nothing share the names of the
+	nameSpace they run in (see NameSpace getNameResolverSpace()).  Those
+	evaluations are given the frame or block, which is used for variables,
+	'this' and methods; classes are still looked up through the nameSpace of
+	the Name.
 
 	Note about invokeMethod():  We could simply use resolveMethod and return
 	the MethodInvoker (KrineMethod or JavaMethod) however there is no easy way
@@ -70,45 +80,38 @@ import java.lang.reflect.InvocationTargetException;
 	</pre>
 */
 public class Name implements Serializable {
-    private static String FINISHED = null; // null evalName and we're finished
     // These do not change during evaluation
     public NameSpace nameSpace;
 
-    // ---------------------------------------------------------
-    // The following instance variables mutate during evaluation and should
-    // be reset by the reset() method where necessary
-
-    // For evaluation
-    String value = null;
-    /**
-     * The result is a class
-     */
-    Class asClass;
-    /**
-     * The result is a static method call on the following class
-     */
-    Class classOfStaticMethod;
+    final String value;
     /**
-     * Remaining text to evaluate
+     * The value split into its parts
      */
-    private String evalName;
+    final CompoundName compound;
     /**
-     * The last part of the name evaluated.  This is really only used for
-     * this, caller, and super resolution.
+     * The names version of the nameSpace when this was made
+     *
+     * @see NameSpace#isNameResolver(Name)
      */
-    private String lastEvalName;
-
-    //
-    //  End mutable instance variables.
-    // ---------------------------------------------------------
+    final int namesVersion;
 
     // Begin Cached result structures
     // These are optimizations
 
     // Note: it's ok to cache class resolution here because when the class
     // space changes the nameSpace will discard cached names.
-    private Object evalBaseObject;    // base object for current eval
-    private int callStackDepth;        // number of times eval hit 'this.caller'
+    /**
+     * The result is a class
+     */
+    volatile Class asClass;
+    /**
+     * The result is a static method call on the following class
+     */
+    volatile Class classOfStaticMethod;
+    /**
+     * The resolver of the prefix of a method name
+     */
+    private volatile Name targetName;
 
     // End Cached result structures
 
@@ -120,8 +123,14 @@ public class Name implements Serializable {
      */
     // I wish I could make this "friendly" to only NameSpace
     Name(NameSpace nameSpace, String s) {
+        this(nameSpace, new CompoundName(s));
+    }
+
+    Name(NameSpace nameSpace, CompoundName compound) {
         this.nameSpace = nameSpace;
-        value = s;
+        this.compound = compound;
+        value = compound.text;
+        namesVersion = nameSpace.getNamesVersion();
     }
 
     /**
@@ -200,10 +209,55 @@ public class Name implements Serializable {
         return (index == -1) ? value : value.substring(index + 1);
     }
 
-    private void reset() {
-        evalName = value;
-        evalBaseObject = null;
-        callStackDepth = 0;
+    /**
+     * The intermediate state of one resolution of the name.  It is kept
+     * apart from the Name, which is shared by every evaluation of the name
+     * in its nameSpace, possibly on several threads.
+     */
+    private static final class Evaluation {
+        final CompoundName name;
+        /**
+         * The nameSpace the name is evaluated in
+         */
+        final NameSpace nameSpace;
+        /**
+         * The next part of the name to evaluate
+         */
+        int next;
+        /**
+         * The last part of the name evaluated.  This is really only used for
+         * this, caller, and super resolution.
+         */
+        String lastEvalName;
+        Object evalBaseObject;    // base object for current eval
+        int callStackDepth;        // number of times eval hit 'this.caller'
+
+        Evaluation(CompoundName name, NameSpace nameSpace) {
+            this.name = name;
+            this.nameSpace = nameSpace;
+        }
+
+        boolean isFinished() {
+            return next == name.size();
+        }
+
+        /**
+         * @return true if more than the next part remains.
+         */
+        boolean isCompound() {
+            return next < name.size() - 1;
+        }
+
+        String nextPart() {
+            return name.part(next);
+        }
+
+        /**
+         * @return The remaining text to evaluate.
+         */
+        String rest() {
+            return name.suffix(next);
+        }
     }
 
     /**
@@ -238,14 +292,25 @@ public class Name implements Serializable {
      *                   that we want a class; where in general the var path may be taken.
      * @see #toObject(CallStack, KrineBasicInterpreter)
      */
-    synchronized public Object toObject(
+    public Object toObject(
             CallStack callStack, KrineBasicInterpreter krineBasicInterpreter, boolean forceClass)
             throws UtilEvalException {
-        reset();
+        return toObject(nameSpace, callStack, krineBasicInterpreter, forceClass);
+    }
+
+    /**
+     * @param namespace the nameSpace to evaluate in, this Name's or one
+     *                  which shares its names.
+     * @see #toObject(CallStack, KrineBasicInterpreter, boolean)
+     */
+    Object toObject(NameSpace namespace,
+            CallStack callStack, KrineBasicInterpreter krineBasicInterpreter, boolean forceClass)
+            throws UtilEvalException {
+        Evaluation eval = new Evaluation(compound, namespace);
 
         Object obj = null;
-        while (evalName != null)
-            obj = consumeNextObjectField(
+        while (!eval.isFinished())
+            obj = consumeNextObjectField(eval,
                     callStack, krineBasicInterpreter, forceClass, false/*autoalloc*/);
 
         if (obj == null)
@@ -254,13 +319,16 @@ public class Name implements Serializable {
         return obj;
     }
 
-    private Object completeRound(
-            String lastEvalName, String nextEvalName, Object returnObject) {
+    /**
+     * @param parts The number of parts of the name consumed.
+     */
+    private static Object completeRound(Evaluation eval,
+            String lastEvalName, int parts, Object returnObject) {
         if (returnObject == null)
             throw new InterpreterException("lastEvalName = " + lastEvalName);
-        this.lastEvalName = lastEvalName;
-        this.evalName = nextEvalName;
-        this.evalBaseObject = returnObject;
+        eval.lastEvalName = lastEvalName;
+        eval.next += parts;
+        eval.evalBaseObject = returnObject;
         return returnObject;
     }
 
@@ -268,12 +336,12 @@ public class Name implements Serializable {
     // I guess we could move these to StringUtil someday
 
     /**
-     * Get the next object by consuming one or more components of evalName.
+     * Get the next object by consuming one or more parts of the name.
      * Often this consumes just one component, but if the name is a classname
      * it will consume all of the components necessary to make the class
      * identifier.
      */
-    private Object consumeNextObjectField(
+    private Object consumeNextObjectField(Evaluation eval,
             CallStack callStack, KrineBasicInterpreter krineBasicInterpreter,
             boolean forceClass, boolean autoAllocateThis)
             throws UtilEvalException {
@@ -283,13 +351,13 @@ public class Name implements Serializable {
 			vs. imported class names (at least in the simple case - see
 			tests/precedence1.krine).  It should also speed things up a bit.
 		*/
-        if ((evalBaseObject == null && !isCompound(evalName))
+        if ((eval.evalBaseObject == null && !eval.isCompound())
                 && !forceClass) {
-            Object obj = resolveThisFieldReference(
-                    callStack, nameSpace, krineBasicInterpreter, evalName, false);
+            Object obj = resolveThisFieldReference(eval,
+                    callStack, eval.nameSpace, krineBasicInterpreter, eval.nextPart(), false);
 
             if (obj != Primitive.VOID)
-                return completeRound(evalName, FINISHED, obj);
+                return completeRound(eval, eval.nextPart(), 1, obj);
         }
 
 		/*
@@ -297,20 +365,20 @@ public class Name implements Serializable {
 			If we're just starting the eval of name (no base object)
 			or we're evaluating relative to a This type reference check.
 		*/
-        String varName = prefix(evalName, 1);
-        if ((evalBaseObject == null || evalBaseObject instanceof This)
+        String varName = eval.nextPart();
+        if ((eval.evalBaseObject == null || eval.evalBaseObject instanceof This)
                 && !forceClass) {
             if (KrineBasicInterpreter.DEBUG)
                 KrineBasicInterpreter.debug("trying to resolve variable: " + varName);
 
             Object obj;
             // switch nameSpace and special var visibility
-            if (evalBaseObject == null) {
-                obj = resolveThisFieldReference(
-                        callStack, nameSpace, krineBasicInterpreter, varName, false);
+            if (eval.evalBaseObject == null) {
+                obj = resolveThisFieldReference(eval,
+                        callStack, eval.nameSpace, krineBasicInterpreter, varName, false);
             } else {
-                obj = resolveThisFieldReference(
-                        callStack, ((This) evalBaseObject).namespace,
+                obj = resolveThisFieldReference(eval,
+                        callStack, ((This) eval.evalBaseObject).namespace,
                         krineBasicInterpreter, varName, true);
             }
 
@@ -318,9 +386,9 @@ public class Name implements Serializable {
                 // Resolved the variable
                 if (KrineBasicInterpreter.DEBUG)
                     KrineBasicInterpreter.debug("resolved variable: " + varName +
-                            " in nameSpace: " + nameSpace);
+                            " in nameSpace: " + eval.nameSpace);
 
-                return completeRound(varName, suffix(evalName), obj);
+                return completeRound(eval, varName, 1, obj);
             }
         }
 
@@ -328,9 +396,9 @@ public class Name implements Serializable {
 			Is it a class name?
 			If we're just starting eval of name try to make it, else fail.
 		*/
-        if (evalBaseObject == null) {
+        if (eval.evalBaseObject == null) {
             if (KrineBasicInterpreter.DEBUG)
-                KrineBasicInterpreter.debug("trying class: " + evalName);
+                KrineBasicInterpreter.debug("trying class: " + eval.rest());
 
 			/*
                 Keep adding parts until we have a class
@@ -338,35 +406,35 @@ public class Name implements Serializable {
             Class clazz = null;
             int i = 1;
             String className = null;
-            for (; i <= countParts(evalName); i++) {
-                className = prefix(evalName, i);
+            for (; i <= compound.size(); i++) {
+                className = compound.prefix(i);
                 if ((clazz = nameSpace.getClass(className)) != null)
                     break;
             }
 
             if (clazz != null) {
-                return completeRound(
+                return completeRound(eval,
                         className,
-                        suffix(evalName, countParts(evalName) - i),
+                        i,
                         new ClassIdentifier(clazz)
                 );
             }
             // not a class (or variable per above)
             if (KrineBasicInterpreter.DEBUG)
-                KrineBasicInterpreter.debug("not a class, trying var prefix " + evalName);
+                KrineBasicInterpreter.debug("not a class, trying var prefix " + eval.rest());
         }
 
         // No variable or class found in 'this' type ref.
         // if autoAllocateThis then create one; a child 'this'.
-        if ((evalBaseObject == null || evalBaseObject instanceof This)
+        if ((eval.evalBaseObject == null || eval.evalBaseObject instanceof This)
                 && !forceClass && autoAllocateThis) {
             NameSpace targetNameSpace =
-                    (evalBaseObject == null) ?
-                            nameSpace : ((This) evalBaseObject).namespace;
+                    (eval.evalBaseObject == null) ?
+                            eval.nameSpace : ((This) eval.evalBaseObject).namespace;
             Object obj = new NameSpace(
                     targetNameSpace, "auto: " + varName).getThis(krineBasicInterpreter);
             targetNameSpace.setVariable(varName, obj, false);
-            return completeRound(varName, suffix(evalName), obj);
+            return completeRound(eval, varName, 1, obj);
         }
 
 		/*
@@ -377,12 +445,12 @@ public class Name implements Serializable {
 			reference.
 			- If we are compound then we must fail at this point.
 		*/
-        if (evalBaseObject == null) {
-            if (!isCompound(evalName)) {
-                return completeRound(evalName, FINISHED, Primitive.VOID);
+        if (eval.evalBaseObject == null) {
+            if (!eval.isCompound()) {
+                return completeRound(eval, eval.nextPart(), 1, Primitive.VOID);
             } else
                 throw new UtilEvalException(
-                        "Class or variable not found: " + evalName);
+                        "Class or variable not found: " + eval.rest());
         }
 
 		/*
@@ -396,15 +464,15 @@ public class Name implements Serializable {
 			Do some basic validity checks.
 		*/
 
-        if (evalBaseObject == Primitive.NULL) // previous round produced null
+        if (eval.evalBaseObject == Primitive.NULL) // previous round produced null
             throw new UtilTargetException(new NullPointerException(
                     "Null Pointer while evaluating: " + value));
 
-        if (evalBaseObject == Primitive.VOID) // previous round produced void
+        if (eval.evalBaseObject == Primitive.VOID) // previous round produced void
             throw new UtilEvalException(
                     "Undefined variable or class name while evaluating: " + value);
 
-        if (evalBaseObject instanceof Primitive)
+        if (eval.evalBaseObject instanceof Primitive)
             throw new UtilEvalException("Can't treat primitive like an object. " +
                     "Error while evaluating: " + value);
 
@@ -412,22 +480,22 @@ public class Name implements Serializable {
             Resolve relative to a class type
 			static leftValue, inner class, ?
 		*/
-        if (evalBaseObject instanceof ClassIdentifier) {
-            Class clazz = ((ClassIdentifier) evalBaseObject).getTargetClass();
-            String field = prefix(evalName, 1);
+        if (eval.evalBaseObject instanceof ClassIdentifier) {
+            Class clazz = ((ClassIdentifier) eval.evalBaseObject).getTargetClass();
+            String field = eval.nextPart();
 
             // Class qualified 'this' reference from inner class.
             // e.g. 'MyOuterClass.this'
             if (field.equals("this")) {
                 // find the enclosing class instance space of the class name
-                NameSpace ns = nameSpace;
+                NameSpace ns = eval.nameSpace;
                 while (ns != null) {
                     // getClassInstance() throws exception if not there
                     if (ns.classInstance != null
                             && ns.classInstance.getClass() == clazz
                             )
-                        return completeRound(
-                                field, suffix(evalName), ns.classInstance);
+                        return completeRound(eval,
+                                field, 1, ns.classInstance);
                     ns = ns.getParent();
                 }
                 throw new UtilEvalException(
@@ -440,7 +508,7 @@ public class Name implements Serializable {
                 if (KrineBasicInterpreter.DEBUG)
                     KrineBasicInterpreter.debug("Name call to getStaticFieldValue, class: "
                             + clazz + ", leftValue:" + field);
-                obj = Reflect.getStaticFieldValue(clazz, field);
+                obj = Reflect.getStaticFieldValue(nameSpace.getClassManager(), clazz, field);
             } catch (ReflectException e) {
                 if (KrineBasicInterpreter.DEBUG)
                     KrineBasicInterpreter.debug("leftValue reflect error: " + e);
@@ -459,7 +527,7 @@ public class Name implements Serializable {
                         "No static leftValue or inner class: "
                                 + field + " of " + clazz);
 
-            return completeRound(field, suffix(evalName), obj);
+            return completeRound(eval, field, 1, obj);
         }
 
 		/*
@@ -474,24 +542,24 @@ public class Name implements Serializable {
             Some kind of leftValue access?
 		*/
 
-        String field = prefix(evalName, 1);
+        String field = eval.nextPart();
 
         // length access on array?
-        if (field.equals("length") && evalBaseObject.getClass().isArray()) {
-            Object obj = new Primitive(Array.getLength(evalBaseObject));
-            return completeRound(field, suffix(evalName), obj);
+        if (field.equals("length") && eval.evalBaseObject.getClass().isArray()) {
+            Object obj = Primitive.valueOf(Array.getLength(eval.evalBaseObject));
+            return completeRound(eval, field, 1, obj);
         }
 
         // Check for leftValue on object
         // Note: could eliminate throwing the exception somehow
         try {
-            Object obj = Reflect.getObjectFieldValue(evalBaseObject, field);
-            return completeRound(field, suffix(evalName), obj);
+            Object obj = Reflect.getObjectFieldValue(nameSpace.getClassManager(), eval.evalBaseObject, field);
+            return completeRound(eval, field, 1, obj);
         } catch (ReflectException e) { /* not a leftValue */ }
 
         // if we get here we have failed
         throw new UtilEvalException(
-                "Cannot access leftValue: " + field + ", on object: " + evalBaseObject);
+                "Cannot access leftValue: " + field + ", on object: " + eval.evalBaseObject);
     }
 
     /**
@@ -509,7 +577,7 @@ public class Name implements Serializable {
      * @param thisNameSpace the nameSpace of the this reference (should be the
      *                      same as the top of the stack?
      */
-    Object resolveThisFieldReference(
+    private Object resolveThisFieldReference(Evaluation eval,
             CallStack callStack, NameSpace thisNameSpace, KrineBasicInterpreter krineBasicInterpreter,
             String varName, boolean specialFieldsVisible)
             throws UtilEvalException {
@@ -532,7 +600,7 @@ public class Name implements Serializable {
 
             NameSpace classNameSpace = getClassNameSpace(thisNameSpace);
             if (classNameSpace != null) {
-                if (isCompound(evalName))
+                if (eval.isCompound())
                     result = classNameSpace.getThis(krineBasicInterpreter);
                 else
                     result = classNameSpace.getClassInstance();
@@ -585,7 +653,7 @@ public class Name implements Serializable {
                     obj = thisNameSpace.getMethodNames();
                     break;
                 case "krineBasicInterpreter":
-                    if (lastEvalName.equals("this"))
+                    if (eval.lastEvalName.equals("this"))
                         obj = krineBasicInterpreter;
                     else
                         throw new UtilEvalException(
@@ -595,11 +663,11 @@ public class Name implements Serializable {
         }
 
         if (obj == null && specialFieldsVisible && varName.equals("caller")) {
-            if (lastEvalName.equals("this") || lastEvalName.equals("caller")) {
+            if (eval.lastEvalName.equals("this") || eval.lastEvalName.equals("caller")) {
                 // get the previous context (see notes for this class)
                 if (callStack == null)
                     throw new InterpreterException("no callStack");
-                obj = callStack.get(++callStackDepth).getThis(
+                obj = callStack.get(++eval.callStackDepth).getThis(
                         krineBasicInterpreter);
             } else
                 throw new UtilEvalException(
@@ -611,7 +679,7 @@ public class Name implements Serializable {
 
         if (obj == null && specialFieldsVisible
                 && varName.equals("callStack")) {
-            if (lastEvalName.equals("this")) {
+            if (eval.lastEvalName.equals("this")) {
                 // get the previous context (see notes for this class)
                 if (callStack == null)
                     throw new InterpreterException("no callStack");
@@ -639,19 +707,17 @@ public class Name implements Serializable {
      * @throws ClassPathException     (type of EvalError) on special case of
      *                                ambiguous unqualified name after super import.
      */
-    synchronized public Class toClass()
+    public Class toClass()
             throws ClassNotFoundException, UtilEvalException {
         if (asClass != null)
             return asClass;
 
-        reset();
-
         // "var" means untyped, return null class
-        if (evalName.equals("var"))
-            return asClass = null;
+        if (value.equals("var"))
+            return null;
 
 		/* Try straightforward class name first */
-        Class clazz = nameSpace.getClass(evalName);
+        Class clazz = nameSpace.getClass(value);
 
         if (clazz == null) {
             /*
@@ -680,28 +746,39 @@ public class Name implements Serializable {
 
     /*
     */
-    synchronized public LeftValue toLeftValue(
+    public LeftValue toLeftValue(
+            CallStack callStack, KrineBasicInterpreter krineBasicInterpreter)
+            throws UtilEvalException {
+        return toLeftValue(nameSpace, callStack, krineBasicInterpreter);
+    }
+
+    /**
+     * @param namespace the nameSpace to evaluate in, this Name's or one
+     *                  which shares its names.
+     * @see #toLeftValue(CallStack, KrineBasicInterpreter)
+     */
+    LeftValue toLeftValue(NameSpace namespace,
             CallStack callStack, KrineBasicInterpreter krineBasicInterpreter)
             throws UtilEvalException {
         // Should clean this up to a single return statement
-        reset();
+        Evaluation eval = new Evaluation(compound, namespace);
         LeftValue lhs;
 
         // Simple (non-compound) variable assignment e.g. x=5;
-        if (!isCompound(evalName)) {
-            if (evalName.equals("this"))
+        if (!compound.isCompound()) {
+            if (value.equals("this"))
                 throw new UtilEvalException("Can't assign to 'this'.");
 
             // KrineInterpreter.debug("Simple var LeftValue...");
-            lhs = new LeftValue(nameSpace, evalName, false/*bubble up if allowed*/);
+            lhs = new LeftValue(namespace, value, false/*bubble up if allowed*/);
             return lhs;
         }
 
         // Field e.g. foo.bar=5;
         Object obj = null;
         try {
-            while (evalName != null && isCompound(evalName)) {
-                obj = consumeNextObjectField(callStack, krineBasicInterpreter,
+            while (eval.isCompound()) {
+                obj = consumeNextObjectField(eval, callStack, krineBasicInterpreter,
                         false/*forcclass*/, true/*autoallocthis*/);
             }
         } catch (UtilEvalException e) {
@@ -709,7 +786,7 @@ public class Name implements Serializable {
         }
 
         // Finished eval and its a class.
-        if (evalName == null && obj instanceof ClassIdentifier)
+        if (eval.isFinished() && obj instanceof ClassIdentifier)
             throw new UtilEvalException("Can't assign to class: " + value);
 
         if (obj == null)
@@ -717,15 +794,16 @@ public class Name implements Serializable {
 
         // e.g. this.x=5;  or someThisType.x=5;
         if (obj instanceof This) {
+            String field = eval.nextPart();
             // disallow assignment to magic fields
             if (
-                    evalName.equals("nameSpace")
-                            || evalName.equals("variables")
-                            || evalName.equals("methods")
-                            || evalName.equals("caller")
+                    field.equals("nameSpace")
+                            || field.equals("variables")
+                            || field.equals("methods")
+                            || field.equals("caller")
                     )
                 throw new UtilEvalException(
-                        "Can't assign to special variable: " + evalName);
+                        "Can't assign to special variable: " + field);
 
             KrineBasicInterpreter.debug("found This reference evaluating LeftValue");
 			/*
@@ -738,18 +816,19 @@ public class Name implements Serializable {
 
 				In the old scoping rules super didn't do this.
 			*/
-            boolean localVar = !lastEvalName.equals("super");
-            return new LeftValue(((This) obj).namespace, evalName, localVar);
+            boolean localVar = !eval.lastEvalName.equals("super");
+            return new LeftValue(((This) obj).namespace, field, localVar);
         }
 
-        if (evalName != null) {
+        if (!eval.isFinished()) {
+            String field = eval.nextPart();
             try {
                 if (obj instanceof ClassIdentifier) {
                     Class clazz = ((ClassIdentifier) obj).getTargetClass();
-                    lhs = Reflect.getLHSStaticField(clazz, evalName);
+                    lhs = Reflect.getLHSStaticField(nameSpace.getClassManager(), clazz, field);
                     return lhs;
                 } else {
-                    lhs = Reflect.getLHSObjectField(obj, evalName);
+                    lhs = Reflect.getLHSObjectField(nameSpace.getClassManager(), obj, field);
                     return lhs;
                 }
             } catch (ReflectException e) {
@@ -789,20 +868,50 @@ public class Name implements Serializable {
             SimpleNode callerInfo
     )
             throws UtilEvalException, EvalError, ReflectException, InvocationTargetException {
-        String methodName = Name.suffix(value, 1);
+        return invokeMethod(krineBasicInterpreter, args, callStack, callerInfo, null);
+    }
+
+    /**
+     * Resolve and invoke the method, using and filling the inline cache of
+     * the call site for Java methods.
+     *
+     * @param cache may be null
+     */
+    public Object invokeMethod(
+            KrineBasicInterpreter krineBasicInterpreter, Object[] args, CallStack callStack,
+            SimpleNode callerInfo, InlineCache<Method> cache
+    )
+            throws UtilEvalException, EvalError, ReflectException, InvocationTargetException {
+        return invokeMethod(callStack.top(),
+                krineBasicInterpreter, args, callStack, callerInfo, cache);
+    }
+
+    /**
+     * @param namespace the nameSpace to invoke in, this Name's or one
+     *                  which shares its names.
+     * @see #invokeMethod(KrineBasicInterpreter, Object[], CallStack, SimpleNode, InlineCache)
+     */
+    Object invokeMethod(NameSpace namespace,
+            KrineBasicInterpreter krineBasicInterpreter, Object[] args, CallStack callStack,
+            SimpleNode callerInfo, InlineCache<Method> cache
+    )
+            throws UtilEvalException, EvalError, ReflectException, InvocationTargetException {
+        String methodName = compound.lastPart();
         KrineClassManager dcm = krineBasicInterpreter.getClassManager();
-        NameSpace namespace = callStack.top();
 
         // Optimization - If classOfStaticMethod is set then we have already
         // been here and determined that this is a static method invocation.
+        // A frame sharing this Name may hide the class with a variable.
         // Note: maybe factor this out with path below... clean up.
-        if (classOfStaticMethod != null) {
+        Class classOfStaticMethod = this.classOfStaticMethod;
+        if (classOfStaticMethod != null
+                && !namespace.hidesName(compound.part(0), nameSpace)) {
             return Reflect.invokeStaticMethod(
-                    dcm, classOfStaticMethod, methodName, args);
+                    dcm, classOfStaticMethod, methodName, args, cache);
         }
 
-        if (!Name.isCompound(value))
-            return invokeLocalMethod(
+        if (!compound.isCompound())
+            return invokeLocalMethod(namespace,
                     krineBasicInterpreter, args, callStack, callerInfo);
 
         // Note: if we want methods declared inside blocks to be accessible via
@@ -811,10 +920,10 @@ public class Name implements Serializable {
         // for BlockNameSpace case.  They currently work via the direct name
         // e.g. methodName().
 
-        String prefix = Name.prefix(value);
+        CompoundName prefix = compound.getPrefixName();
 
         // Superclass method invocation? (e.g. super.foo())
-        if (prefix.equals("super") && Name.countParts(value) == 2) {
+        if (compound.size() == 2 && prefix.text.equals("super")) {
             // Allow getThis() to work through block namespaces first
             This ths = namespace.getThis(krineBasicInterpreter);
             NameSpace thisNameSpace = ths.getNameSpace();
@@ -827,8 +936,10 @@ public class Name implements Serializable {
         }
 
         // Find target object or class identifier
-        Name targetName = namespace.getNameResolver(prefix);
-        Object obj = targetName.toObject(callStack, krineBasicInterpreter);
+        Name targetName = this.targetName;
+        if (targetName == null || !nameSpace.isNameResolver(targetName))
+            this.targetName = targetName = nameSpace.getNameResolver(prefix);
+        Object obj = targetName.toObject(namespace, callStack, krineBasicInterpreter, false);
 
         if (obj == Primitive.VOID)
             throw new UtilEvalException("Attempt to resolve method: " + methodName
@@ -855,7 +966,7 @@ public class Name implements Serializable {
 
             // found an object and it's not an undefined variable
             return Reflect.invokeObjectMethod(
-                    obj, methodName, args, krineBasicInterpreter, callStack, callerInfo);
+                    obj, methodName, args, krineBasicInterpreter, callStack, callerInfo, cache);
         }
 
         // It's a class
@@ -867,10 +978,11 @@ public class Name implements Serializable {
         Class clazz = ((ClassIdentifier) obj).getTargetClass();
 
         // cache the fact that this is a static method invocation on this class
-        classOfStaticMethod = clazz;
+        if (!namespace.hidesName(compound.part(0), nameSpace))
+            this.classOfStaticMethod = clazz;
 
         if (clazz != null)
-            return Reflect.invokeStaticMethod(dcm, clazz, methodName, args);
+            return Reflect.invokeStaticMethod(dcm, clazz, methodName, args, cache);
 
         // return null; ???
         throw new UtilEvalException("invokeMethod: unknown target: " + targetName);
@@ -887,7 +999,7 @@ public class Name implements Serializable {
 		scope it by the nameSpace that imported the command... so it probably
 		needs to be integrated into NameSpace.
 	*/
-    private Object invokeLocalMethod(
+    private Object invokeLocalMethod(NameSpace nameSpace,
             KrineBasicInterpreter krineBasicInterpreter, Object[] args, CallStack callStack,
             SimpleNode callerInfo
     )
@@ -917,7 +1029,7 @@ public class Name implements Serializable {
             // We only prevent modules to call main program's methods.
             // But there's no limit when calling a Java method.
             NameSpace checkNameSpace = nameSpace.isMethod ? nameSpace.getParent() : nameSpace;
-            if (method.getModifiers().hasModifier("private")
+            if (method.isPrivate()
                     && method.getDeclaringNameSpace() != checkNameSpace) {
                 throw new EvalError(method.toString() + " is private in this scope.", callerInfo, callStack);
             }
@@ -12,7 +12,10 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A nameSpace	in which methods, variables, and imports (class names) live.
@@ -25,13 +28,19 @@ import java.util.*;
  * an KrineInterpreter instance.  Together they comprise a Krine scripted object
  * context.
  * <p>
+ * A nameSpace is not thread-safe unless it is made concurrent, see
+ * setConcurrent().
  */
-// not at all thread-safe - fschmidt
 public class NameSpace implements Serializable, KrineClassManager.Listener, NameSource, Cloneable {
 
     public static final NameSpace JAVA_CODE =
             new NameSpace((KrineClassManager) null, "Called from compiled Java code.");
     private static final long serialVersionUID = 5004976946651004751L;
+    /**
+     * Source of methodsVersion stamps, see getMethodsVersion().
+     */
+    private static final AtomicInteger methodsVersions = new AtomicInteger();
+    private static final int MAX_RESOLVED_SIGNATURES = 8;
 
     static {
         JAVA_CODE.isMethod = true;
@@ -40,7 +49,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     // Begin instance data
     // Note: if we add something here we should reset it in the clear() method.
 
-    protected Map<String, String> importedClasses;
+    protected volatile Map<String, String> importedClasses;
     /**
      * Note that the nameSpace is a method body nameSpace.  This is used for
      * printing stack traces in exceptions.
@@ -57,6 +66,12 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     boolean isClass;
     Class classStatic;
     Object classInstance;
+    /**
+     * The typed fields of a generated class by name, shared by its static
+     * nameSpace and all of its instance nameSpaces.  Scripts read and write
+     * these JVM fields directly instead of variables of their own.
+     */
+    transient Map<String, Field> classFields;
     List<Listener> nameSourceListeners;
     /**
      * The name of this nameSpace.  If the nameSpace is a method body
@@ -65,19 +80,57 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      */
     private String nsName;
     private NameSpace parent;
-    private Map<String, Variable> variables;
-    private Map<String, List<KrineMethod>> methods;
-    private List<String> importedPackages;
-    private List<Object> importedObjects;
-    private List<Class> importedStatic;
+    /**
+     * The nameSpace may be used by several threads at once, see
+     * setConcurrent().
+     */
+    private volatile boolean concurrent;
+    private volatile Map<String, Variable> variables;
+    /**
+     * Array backed locals of a method frame, see FrameLayout.
+     */
+    private FrameLayout frameLayout;
+    private Variable[] slots;
+    /**
+     * Method lists are copied on write.
+     */
+    private volatile Map<String, List<KrineMethod>> methods;
+    /**
+     * Stamped whenever the methods visible through this nameSpace itself
+     * change: methods, object or static imports or the parent.
+     */
+    private volatile int methodsVersion;
+    /**
+     * Methods resolved by getMethod() through this nameSpace and its
+     * parents, by name and signature.  Misses are cached too.
+     */
+    transient private volatile MethodCache methodCache;
+    // import lists are copied on write
+    private volatile List<String> importedPackages;
+    private volatile List<Object> importedObjects;
+    private volatile List<Class> importedStatic;
+    /**
+     * The imported objects and static imports by member name, rebuilt on
+     * demand if missing.
+     */
+    transient private volatile ImportIndex importIndex;
+    /**
+     * The import index is shared with a copy of this nameSpace, see copy().
+     */
+    transient private boolean importIndexShared;
     private String packageName;
     transient private KrineClassManager classManager;
     // See notes in getThis()
-    private This thisReference;
+    private volatile This thisReference;
     /**
      * Name resolver objects
      */
-    private Map<String, Name> names;
+    private volatile Map<String, Name> names;
+    /**
+     * Changed whenever the name resolvers are dropped, so that those kept
+     * by call sites can tell theirs are stale.
+     */
+    private volatile int namesVersion;
     /**
      * The node associated with the creation of this nameSpace.
      * This is used support getInvocationLine() and getInvocationText().
@@ -89,7 +142,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * are cached here (those which might be imported).  Qualified names are
      * always absolute and are cached by KrineClassManager.
      */
-    transient private Map<String, Class> classCache;
+    transient private volatile Map<String, Class> classCache;
 
     /**
      * @parent the parent nameSpace of this nameSpace.  Child namespaces
@@ -118,7 +171,11 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         // create our own class manager?
 
         setName(name);
-        setParent(parent);
+        // as setParent(), nothing can have resolved through us yet
+        this.parent = parent;
+        this.concurrent = parent != null && parent.concurrent;
+        if (parent == null)
+            importDefaultPackages();
         setClassManager(classManager);
 
         // Register for notification of classloader change
@@ -161,9 +218,15 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
                     "Can't resolve class instance 'this' in: " + this);
     }
 
+    /**
+     * The instance is searched like an imported object, but it is not
+     * added to the object imports: it has a nameSpace of its own, an import
+     * index for each instance would cost far more than the instance itself.
+     */
     void setClassInstance(Object instance) {
         this.classInstance = instance;
-        importObject(instance);
+        nameSpaceChanged();
+        methodsChanged();
     }
 
     /**
@@ -199,6 +262,35 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         callerInfoNode = node;
     }
 
+    /**
+     * Let several threads evaluate through this nameSpace at once, e.g.
+     * request handlers sharing a global nameSpace.  The nameSpaces created
+     * under it, such as method frames and class instances, are concurrent
+     * as well.
+     * <p>
+     * Lookups in a concurrent nameSpace read lock-free maps and immutable
+     * snapshots of the resolution caches; changes of its declarations are
+     * made one at a time.  Variable values are shared the way the fields of
+     * Java objects are, without synchronization of their own.
+     * <p>
+     * Set this before handing the nameSpace to other threads.
+     */
+    public synchronized void setConcurrent(boolean concurrent) {
+        if (this.concurrent == concurrent)
+            return;
+        this.concurrent = concurrent;
+        variables = clone(variables);
+        methods = clone(methods);
+        importedClasses = clone(importedClasses);
+        importIndex = null;
+        nameSpaceChanged();
+        methodsChanged();
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
     /**
      * Resolve name to an object through this nameSpace.
      */
@@ -265,8 +357,6 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     void setVariable(
             String name, Object value, boolean strictJava, boolean recurse)
             throws UtilEvalException {
-        ensureVariables();
-
         // primitives should have been wrapped
         if (value == null)
             throw new InterpreterException("null variable value");
@@ -289,7 +379,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
             // This modification makes default allocation local
             NameSpace varScope = this;
 
-            varScope.variables.put(
+            varScope.putLocalVariable(
                     name, new Variable(name, value, null/*modifiers*/));
 
             // nameSpaceChanged() on new variable addition
@@ -297,15 +387,90 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         }
     }
 
-    private void ensureVariables() {
-        if (variables == null)
-            variables = new HashMap<>();
+    private Map<String, Variable> ensureVariables() {
+        Map<String, Variable> variables = this.variables;
+        if (variables != null)
+            return variables;
+        if (!concurrent)
+            return this.variables = new HashMap<>();
+
+        synchronized (this) {
+            if (this.variables == null)
+                this.variables = newMap();
+            return this.variables;
+        }
+    }
+
+    /**
+     * Keep the variables named by the layout in indexed slots instead of
+     * the variable map.  This must be set before any variable is.
+     */
+    void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+        this.slots = new Variable[frameLayout.size()];
+    }
+
+    /**
+     * Get a local variable by slot, without any name lookup.
+     *
+     * @return the variable or null if this is not a frame of the layout
+     * or the slot is not set.
+     */
+    Variable getSlotVariable(FrameLayout layout, int slot) {
+        if (layout == null || layout != frameLayout)
+            return null;
+        return slots[slot];
+    }
+
+    private Variable getLocalVariable(String name) {
+        if (slots != null) {
+            int slot = frameLayout.indexOf(name);
+            if (slot >= 0)
+                return slots[slot];
+        }
+        Map<String, Variable> variables = this.variables;
+        return variables == null ? null : variables.get(name);
+    }
+
+    private void putLocalVariable(String name, Variable var) {
+        if (slots != null) {
+            int slot = frameLayout.indexOf(name);
+            if (slot >= 0) {
+                slots[slot] = var;
+                return;
+            }
+        }
+        ensureVariables().put(name, var);
+    }
+
+    private Map<String, Variable> getLocalVariables() {
+        Map<String, Variable> variables = this.variables;
+        if (slots == null)
+            return variables == null
+                    ? Collections.<String, Variable>emptyMap() : variables;
+
+        Map<String, Variable> all = new LinkedHashMap<>();
+        for (int i = 0; i < slots.length; i++)
+            if (slots[i] != null)
+                all.put(frameLayout.getName(i), slots[i]);
+        if (variables != null)
+            all.putAll(variables);
+        return all;
     }
 
     /**
      * Remove the variable from the nameSpace.
      */
     public void unsetVariable(String name) {
+        if (slots != null) {
+            int slot = frameLayout.indexOf(name);
+            if (slot >= 0) {
+                slots[slot] = null;
+                nameSpaceChanged();
+                return;
+            }
+        }
+        Map<String, Variable> variables = this.variables;
         if (variables != null) {
             variables.remove(name);
             nameSpaceChanged();
@@ -317,10 +482,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * (This does not show variables in parent namespaces).
      */
     public String[] getVariableNames() {
-        if (variables == null)
-            return new String[0];
-        else
-            return variables.keySet().toArray(new String[0]);
+        return getLocalVariables().keySet().toArray(new String[0]);
     }
 
     /**
@@ -328,6 +490,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * (This does not include methods in parent namespaces).
      */
     public String[] getMethodNames() {
+        Map<String, List<KrineMethod>> methods = this.methods;
         if (methods == null)
             return new String[0];
         else
@@ -340,6 +503,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * Note: This will probably be renamed getDeclaredMethods()
      */
     public KrineMethod[] getMethods() {
+        Map<String, List<KrineMethod>> methods = this.methods;
         if (methods == null) {
             return new KrineMethod[0];
         } else {
@@ -362,6 +526,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
 
     public void setParent(NameSpace parent) {
         this.parent = parent;
+        methodsChanged();
 
         // If we are disconnected from root we need to handle the def imports
         if (parent == null)
@@ -421,10 +586,18 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
 		krineBasicInterpreter, so we'd be sure to get the top krineBasicInterpreter.
 	*/
     public This getThis(KrineBasicInterpreter declaringKrineBasicInterpreter) {
-        if (thisReference == null)
-            thisReference = This.getThis(this, declaringKrineBasicInterpreter);
-
-        return thisReference;
+        This thisReference = this.thisReference;
+        if (thisReference != null)
+            return thisReference;
+        if (!concurrent)
+            return this.thisReference = This.getThis(this, declaringKrineBasicInterpreter);
+
+        // there may only be one
+        synchronized (this) {
+            if (this.thisReference == null)
+                this.thisReference = This.getThis(this, declaringKrineBasicInterpreter);
+            return this.thisReference;
+        }
     }
 
     public KrineClassManager getClassManager() {
@@ -511,8 +684,8 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         if (isClass)
             var = getImportedVar(name);
 
-        if (var == null && variables != null)
-            var = variables.get(name);
+        if (var == null)
+            var = getLocalVariable(name);
 
         // Change import precedence if we are a class body/instance
         if (var == null && !isClass)
@@ -529,9 +702,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         Get variables declared in this nameSpace.
     */
     public Variable[] getDeclaredVariables() {
-        if (variables == null)
-            return new Variable[0];
-        return variables.values().toArray(new Variable[0]);
+        return getLocalVariables().values().toArray(new Variable[0]);
     }
 
     /**
@@ -569,8 +740,6 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
             throws UtilEvalException {
         //checkVariableModifiers( name, modifiers );
 
-        ensureVariables();
-
         // Setting a typed variable is always a local operation.
         Variable existing = getVariableImpl(name, false/*recurse*/);
 
@@ -605,7 +774,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         }
 
         // Add the new typed var
-        variables.put(name, new Variable(name, type, value, modifiers));
+        putLocalVariable(name, new Variable(name, type, value, modifiers));
     }
 
     /**
@@ -614,12 +783,13 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * @see KrineBasicInterpreter#source(String)
      * @see KrineBasicInterpreter#eval(String)
      */
-    public void setMethod(KrineMethod method)
+    public synchronized void setMethod(KrineMethod method)
             throws UtilEvalException {
         //checkMethodModifiers( method );
 
+        Map<String, List<KrineMethod>> methods = this.methods;
         if (methods == null)
-            methods = new HashMap<>();
+            this.methods = methods = newMap();
 
         String name = method.getName();
         List<KrineMethod> list = methods.get(name);
@@ -627,13 +797,12 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         if (list == null) {
             methods.put(name, Collections.singletonList(method));
         } else {
-            if (!(list instanceof ArrayList)) {
-                list = new ArrayList<>(list);
-                methods.put(name, list);
-            }
+            list = new ArrayList<>(list);
             list.remove(method);
             list.add(method);
+            methods.put(name, list);
         }
+        methodsChanged();
     }
 
     /**
@@ -662,6 +831,48 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     public KrineMethod getMethod(
             String name, Class[] sig, boolean declaredOnly)
             throws UtilEvalException {
+        if (declaredOnly)
+            return findMethod(name, sig, true);
+
+        // Nothing of our own, e.g. a method body: leave caching to the parent
+        if (methods == null && importedObjects == null && importedStatic == null
+                && classInstance == null)
+            return parent == null ? null : parent.getMethod(name, sig);
+
+        int version = getMethodsVersion();
+        int generation = KrineClassManager.getResolveGeneration();
+        MethodCache cache = methodCache;
+        if (cache == null || cache.version != version
+                || cache.generation != generation) {
+            cache = new MethodCache(version, generation,
+                    this.<String, ResolvedMethod[]>newMap());
+            methodCache = cache;
+        }
+
+        ResolvedMethod[] resolved = cache.methods.get(name);
+        if (resolved != null)
+            for (ResolvedMethod r : resolved)
+                if (r.matches(sig))
+                    return r.method;
+
+        KrineMethod method = findMethod(name, sig, false);
+        // don't grow without bound on calls with ever new argument types
+        int size = resolved == null ? 0 : resolved.length;
+        if (size < MAX_RESOLVED_SIGNATURES) {
+            resolved = resolved == null
+                    ? new ResolvedMethod[1] : Arrays.copyOf(resolved, size + 1);
+            resolved[size] = new ResolvedMethod(sig == null ? null : sig.clone(), method);
+            cache.methods.put(name, resolved);
+        }
+        return method;
+    }
+
+    /**
+     * The uncached lookup of getMethod().
+     */
+    private KrineMethod findMethod(
+            String name, Class[] sig, boolean declaredOnly)
+            throws UtilEvalException {
         KrineMethod method = null;
 
         // Change import precedence if we are a class body/instance
@@ -669,6 +880,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         if (method == null && isClass && !declaredOnly)
             method = getImportedMethod(name, sig);
 
+        Map<String, List<KrineMethod>> methods = this.methods;
         if (method == null && methods != null) {
             List<KrineMethod> list = methods.get(name);
 
@@ -699,9 +911,10 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * Import a class name.
      * Subsequent imports override earlier ones
      */
-    public void importClass(String name) {
+    public synchronized void importClass(String name) {
+        Map<String, String> importedClasses = this.importedClasses;
         if (importedClasses == null)
-            importedClasses = new HashMap<>();
+            this.importedClasses = importedClasses = newMap();
 
         importedClasses.put(Name.suffix(name, 1), name);
         nameSpaceChanged();
@@ -710,22 +923,53 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     /**
      * subsequent imports override earlier ones
      */
-    public void importPackage(String name) {
-        if (importedPackages == null)
-            importedPackages = new ArrayList<>();
+    public synchronized void importPackage(String name) {
+        List<String> importedPackages = copyOf(this.importedPackages);
 
         // If it exists, remove it and add it at the end (avoid memory leak)
         importedPackages.remove(name);
 
         importedPackages.add(name);
+        this.importedPackages = importedPackages;
         nameSpaceChanged();
     }
 
+    /**
+     * Whether a single method of this name is visible through this
+     * nameSpace: one scripted method, declared here or in a parent, and no
+     * imported method of the name.  Calls of overloaded methods have to be
+     * resolved with the types of their arguments.
+     */
+    boolean hasSingleMethod(String name) {
+        int count = 0;
+        for (NameSpace nameSpace = this; nameSpace != null; nameSpace = nameSpace.parent) {
+            Map<String, List<KrineMethod>> methods = nameSpace.methods;
+            List<KrineMethod> list = methods == null ? null : methods.get(name);
+            if (list != null && (count += list.size()) > 1)
+                return false;
+
+            ImportIndex importIndex = nameSpace.getImportIndex();
+            if (importIndex != null && importIndex.getMethodCandidates(name) != null)
+                return false;
+            Object classInstance = nameSpace.classInstance;
+            if (classInstance != null
+                    && ImportIndex.hasMethod(classInstance.getClass(), name))
+                return false;
+        }
+        return count == 1;
+    }
+
     protected KrineMethod getImportedMethod(String name, Class[] sig)
             throws UtilEvalException {
+        ImportIndex importIndex = getImportIndex();
+        ImportIndex.Candidates candidates = importIndex == null
+                ? null : importIndex.getMethodCandidates(name);
+        if (candidates == null && classInstance == null)
+            return null;
+
         // Try object imports
-        if (importedObjects != null)
-            for (Object object : importedObjects) {
+        if (candidates != null)
+            for (Object object : candidates.objects) {
                 Class clazz = object.getClass();
                 Method method = Reflect.resolveJavaMethod(
                         getClassManager(), clazz, name, sig, false/*onlyStatic*/);
@@ -733,49 +977,110 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
                     return new KrineMethod(method, object);
             }
 
+        // Try the class instance, imported last
+        if (classInstance != null
+                && ImportIndex.hasMethod(classInstance.getClass(), name)) {
+            Method method = Reflect.resolveJavaMethod(getClassManager(),
+                    classInstance.getClass(), name, sig, false/*onlyStatic*/);
+            if (method != null)
+                return new KrineMethod(method, classInstance);
+        }
+        if (candidates == null)
+            return null;
+
         // Try static imports
-        if (importedStatic != null)
-            for (Class clazz : importedStatic) {
-                Method method = Reflect.resolveJavaMethod(
-                        getClassManager(), clazz, name, sig, true/*onlyStatic*/);
-                if (method != null)
-                    return new KrineMethod(method, null/*object*/);
-            }
+        for (Class clazz : candidates.statics) {
+            Method method = Reflect.resolveJavaMethod(
+                    getClassManager(), clazz, name, sig, true/*onlyStatic*/);
+            if (method != null)
+                return new KrineMethod(method, null/*object*/);
+        }
 
         return null;
     }
 
     protected Variable getImportedVar(String name)
             throws UtilEvalException {
+        ImportIndex importIndex = getImportIndex();
+        ImportIndex.Candidates candidates = importIndex == null
+                ? null : importIndex.getFieldCandidates(name);
+        if (candidates == null && classInstance == null && classFields == null)
+            return null;
+
         // Try object imports
-        if (importedObjects != null)
-            for (Object object : importedObjects) {
+        if (candidates != null)
+            for (Object object : candidates.objects) {
                 Class clazz = object.getClass();
-                Field field = Reflect.resolveJavaField(
+                Field field = Reflect.resolveJavaField(getClassManager(),
                         clazz, name, false/*onlyStatic*/);
                 if (field != null)
                     return new Variable(
                             name, field.getType(), new LeftValue(object, field));
             }
 
+        // Try the fields of the class and its instance
+        Variable var = getClassVar(name);
+        if (var != null || candidates == null)
+            return var;
+
         // Try static imports
-        if (importedStatic != null)
-            for (Class clazz : importedStatic) {
-                Field field = Reflect.resolveJavaField(
-                        clazz, name, true/*onlyStatic*/);
-                if (field != null)
-                    return new Variable(name, field.getType(), new LeftValue(field));
-            }
+        for (Class clazz : candidates.statics) {
+            Field field = Reflect.resolveJavaField(getClassManager(),
+                    clazz, name, true/*onlyStatic*/);
+            if (field != null)
+                return new Variable(name, field.getType(), new LeftValue(field));
+        }
 
         return null;
     }
 
+    /**
+     * @return The variable of a field of the generated class or of its
+     * instance, or null.
+     */
+    private Variable getClassVar(String name) throws UtilEvalException {
+        Field field = classFields == null ? null : classFields.get(name);
+        if (field != null) {
+            if (Modifier.isStatic(field.getModifiers()))
+                return new Variable(name, field.getType(), new LeftValue(field));
+            if (classInstance != null)
+                return new Variable(
+                        name, field.getType(), new LeftValue(classInstance, field));
+        }
+
+        if (classInstance != null
+                && ImportIndex.hasField(classInstance.getClass(), name)) {
+            field = Reflect.resolveJavaField(getClassManager(),
+                    classInstance.getClass(), name, false/*onlyStatic*/);
+            if (field != null)
+                return new Variable(
+                        name, field.getType(), new LeftValue(classInstance, field));
+        }
+        return null;
+    }
+
+    /**
+     * @return The index of the imported objects and static imports, or null
+     * if there are none.
+     */
+    private ImportIndex getImportIndex() {
+        ImportIndex importIndex = this.importIndex;
+        if (importIndex == null && (importedObjects != null || importedStatic != null)) {
+            // built from snapshots of the import lists, see importObject()
+            importIndex = new ImportIndex(importedObjects, importedStatic);
+            importIndexShared = false;
+            this.importIndex = importIndex;
+        }
+        return importIndex;
+    }
+
     /**
      * Helper that caches class.
      */
     private void cacheClass(String name, Class c) {
+        Map<String, Class> classCache = this.classCache;
         if (classCache == null) {
-            classCache = new HashMap<>();
+            this.classCache = classCache = newMap();
             //cacheCount++; // debug
         }
 
@@ -824,6 +1129,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
         Class c = null;
 
         // Check the cache
+        Map<String, Class> classCache = this.classCache;
         if (classCache != null) {
             c = classCache.get(name);
 
@@ -871,6 +1177,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
             throws UtilEvalException {
         // Try explicitly imported class, e.g. import foo.Bar;
         String fullname = null;
+        Map<String, String> importedClasses = this.importedClasses;
         if (importedClasses != null)
             fullname = importedClasses.get(name);
 
@@ -916,6 +1223,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
 			in reverse order of import...
 			(give later imports precedence...)
 		*/
+        List<String> importedPackages = this.importedPackages;
         if (importedPackages != null)
             for (int i = importedPackages.size() - 1; i >= 0; i--) {
                 String s = importedPackages.get(i) + "." + name;
@@ -960,7 +1268,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * Helper for implementing NameSource
      */
     protected void getAllNamesAux(List<String> list) {
-        list.addAll(variables.keySet());
+        list.addAll(getLocalVariables().keySet());
         list.addAll(methods.keySet());
         if (parent != null)
             parent.getAllNamesAux(list);
@@ -1002,7 +1310,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     private synchronized void writeObject(java.io.ObjectOutputStream s)
             throws IOException {
         // clear name resolvers... don't know if this is necessary.
-        names = null;
+        namesChanged();
 
         s.defaultWriteObject();
     }
@@ -1042,6 +1350,28 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      */
     public void classLoaderChanged() {
         nameSpaceChanged();
+        methodsChanged();
+    }
+
+    /**
+     * Drop the methods resolved through this nameSpace and its children.
+     */
+    private void methodsChanged() {
+        methodsVersion = methodsVersions.incrementAndGet();
+        methodCache = null;
+    }
+
+    /**
+     * Stamps are handed out in increasing order, so the latest stamp along
+     * the parent chain changes whenever anything visible to getMethod()
+     * changes in any of these namespaces, or the chain itself does.
+     */
+    int getMethodsVersion() {
+        int version = methodsVersion;
+        for (NameSpace ns = parent; ns != null; ns = ns.parent)
+            if (ns.methodsVersion > version)
+                version = ns.methodsVersion;
+        return version;
     }
 
     /**
@@ -1049,7 +1379,7 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      */
     public void nameSpaceChanged() {
         classCache = null;
-        names = null;
+        namesChanged();
     }
 
     private void importDefaultPackages() {
@@ -1094,19 +1424,87 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * Use get() instead.
      */
     public Name getNameResolver(String ambiguousName) {
-        if (names == null)
-            names = new HashMap<>();
+        Map<String, Name> names = this.names;
+        Name name = names == null ? null : names.get(ambiguousName);
+        if (name == null)
+            name = cacheNameResolver(new Name(this, ambiguousName));
 
-        Name name = names.get(ambiguousName);
+        return name;
+    }
 
-        if (name == null) {
-            name = new Name(this, ambiguousName);
-            names.put(ambiguousName, name);
-        }
+    /**
+     * Get the name resolver of a name already split into its parts, e.g.
+     * by the call site.
+     */
+    Name getNameResolver(CompoundName ambiguousName) {
+        Map<String, Name> names = this.names;
+        Name name = names == null ? null : names.get(ambiguousName.text);
+        if (name == null)
+            name = cacheNameResolver(new Name(this, ambiguousName));
 
         return name;
     }
 
+    /**
+     * Whether the name resolver is one of this nameSpace's current ones.
+     */
+    boolean isNameResolver(Name name) {
+        return name.nameSpace == this && name.namesVersion == namesVersion;
+    }
+
+    int getNamesVersion() {
+        return namesVersion;
+    }
+
+    private void namesChanged() {
+        names = null;
+        namesVersion++;
+    }
+
+    /**
+     * The nameSpace whose name resolvers serve this one.  Method frames and
+     * blocks which import nothing themselves resolve class names through
+     * their parent, so they share its resolvers, evaluated with the frame
+     * or block for its variables, rather than making their own on each
+     * call.
+     *
+     * @see KrineAmbiguousName#getResolver(NameSpace)
+     */
+    NameSpace getNameResolverSpace() {
+        NameSpace nameSpace = this;
+        while ((nameSpace.isMethod || nameSpace instanceof BlockNameSpace)
+                && nameSpace.parent != null && !nameSpace.hasOwnImports())
+            nameSpace = nameSpace.parent;
+        return nameSpace;
+    }
+
+    /**
+     * Whether a variable of the name is declared in this nameSpace or a
+     * parent of it below the resolverSpace.
+     */
+    boolean hidesName(String name, NameSpace resolverSpace) {
+        for (NameSpace nameSpace = this; nameSpace != resolverSpace && nameSpace != null;
+             nameSpace = nameSpace.parent)
+            if (nameSpace.getLocalVariable(name) != null)
+                return true;
+        return false;
+    }
+
+    private boolean hasOwnImports() {
+        return importedClasses != null || importedPackages != null
+                || importedObjects != null || importedStatic != null
+                || isClass || classInstance != null;
+    }
+
+    private Name cacheNameResolver(Name name) {
+        Map<String, Name> names = this.names;
+        if (names == null)
+            this.names = names = newMap();
+
+        names.put(name.value, name);
+        return name;
+    }
+
     public int getInvocationLine() {
         SimpleNode node = getNode();
         if (node != null)
@@ -1130,16 +1528,20 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      *
      * @see #importDefaultPackages()
      */
-    public void clear() {
+    public synchronized void clear() {
         variables = null;
+        if (slots != null)
+            slots = new Variable[slots.length];
         methods = null;
         importedClasses = null;
         importedPackages = null;
         importedObjects = null;
+        importIndex = null;
         if (parent == null)
             importDefaultPackages();
         classCache = null;
-        names = null;
+        namesChanged();
+        methodsChanged();
     }
 
     /**
@@ -1147,14 +1549,18 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
      * And re-import core classes.
      * This method is mainly for Java Package Wrap.
      */
-    public void clearWithCoreImports() {
+    public synchronized void clearWithCoreImports() {
         variables = null;
+        if (slots != null)
+            slots = new Variable[slots.length];
         methods = null;
         importedClasses = null;
         importedPackages = null;
         importedObjects = null;
+        importIndex = null;
         classCache = null;
-        names = null;
+        namesChanged();
+        methodsChanged();
 
         importClass("com.krine.lang.ast.EvalError");
         importClass("com.krine.lang.KrineInterpreter");
@@ -1173,29 +1579,39 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
 		Note: this impor pattern is becoming common... could factor it out into
 		an importedObject Vector class.
 	*/
-    public void importObject(Object obj) {
-        if (importedObjects == null)
-            importedObjects = new ArrayList<>();
+    public synchronized void importObject(Object obj) {
+        List<Object> importedObjects = copyOf(this.importedObjects);
 
         // If it exists, remove it and add it at the end (avoid memory leak)
-        importedObjects.remove(obj);
+        ImportIndex importIndex = this.importIndex;
+        if (importedObjects.remove(obj) || importIndexShared || concurrent)
+            this.importIndex = null; // import order changed, or not ours to change
+        else if (importIndex != null)
+            importIndex.addObject(obj);
 
         importedObjects.add(obj);
+        this.importedObjects = importedObjects;
         nameSpaceChanged();
+        methodsChanged();
 
     }
 
     /**
      */
-    public void importStatic(Class clazz) {
-        if (importedStatic == null)
-            importedStatic = new ArrayList<>();
+    public synchronized void importStatic(Class clazz) {
+        List<Class> importedStatic = copyOf(this.importedStatic);
 
         // If it exists, remove it and add it at the end (avoid memory leak)
-        importedStatic.remove(clazz);
+        ImportIndex importIndex = this.importIndex;
+        if (importedStatic.remove(clazz) || importIndexShared || concurrent)
+            this.importIndex = null; // import order changed, or not ours to change
+        else if (importIndex != null)
+            importIndex.addStatic(clazz);
 
         importedStatic.add(clazz);
+        this.importedStatic = importedStatic;
         nameSpaceChanged();
+        methodsChanged();
     }
 
     String getPackage() {
@@ -1221,12 +1637,18 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
             final NameSpace clone = (NameSpace) clone();
             clone.thisReference = null;
             clone.variables = clone(variables);
+            if (slots != null)
+                clone.slots = slots.clone();
             clone.methods = clone(methods);
             clone.importedClasses = clone(importedClasses);
-            clone.importedPackages = clone(importedPackages);
-            clone.importedObjects = clone(importedObjects);
-            clone.importedStatic = clone(importedStatic);
+            // the import lists are copied on write and can be shared, so can
+            // the index until either of us imports anything more,
+            // copies are made for every instance of a scripted class
+            ImportIndex importIndex = getImportIndex();
+            clone.importIndex = importIndex;
+            importIndexShared = clone.importIndexShared = importIndex != null;
             clone.names = clone(names);
+            clone.methodCache = null;
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new IllegalStateException(e);
@@ -1234,17 +1656,68 @@ public class NameSpace implements Serializable, KrineClassManager.Listener, Name
     }
 
 
+    /**
+     * The methods resolved by getMethod() for one methods version and
+     * resolve generation.  The resolved signatures of a name are copied
+     * on write.
+     */
+    private static final class MethodCache {
+        final int version;
+        final int generation;
+        final Map<String, ResolvedMethod[]> methods;
+
+        MethodCache(int version, int generation, Map<String, ResolvedMethod[]> methods) {
+            this.version = version;
+            this.generation = generation;
+            this.methods = methods;
+        }
+    }
+
+    /**
+     * A getMethod() result for one signature, method is null for a miss.
+     */
+    private static final class ResolvedMethod {
+        final Class[] sig;
+        final KrineMethod method;
+
+        ResolvedMethod(Class[] sig, KrineMethod method) {
+            this.sig = sig;
+            this.method = method;
+        }
+
+        boolean matches(Class[] sig) {
+            if (sig == this.sig)
+                return true;
+            if (sig == null || this.sig == null || sig.length != this.sig.length)
+                return false;
+            for (int i = 0; i < sig.length; i++)
+                if (sig[i] != this.sig[i])
+                    return false;
+            return true;
+        }
+    }
+
+
     private <K, V> Map<K, V> clone(final Map<K, V> map) {
         if (map == null) {
             return null;
         }
-        return new HashMap<>(map);
+        Map<K, V> clone = newMap();
+        clone.putAll(map);
+        return clone;
     }
 
+    /**
+     * A map for this nameSpace, safe for concurrent use if the nameSpace
+     * is concurrent.
+     */
+    private <K, V> Map<K, V> newMap() {
+        return concurrent ? new ConcurrentHashMap<K, V>() : new HashMap<K, V>();
+    }
 
-    private <T> List<T> clone(final List<T> list) {
+    private static <T> List<T> copyOf(final List<T> list) {
         if (list == null) {
-            return null;
+            return new ArrayList<>(1);
         }
         return new ArrayList<>(list);
     }
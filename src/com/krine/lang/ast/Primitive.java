@@ -14,6 +14,11 @@ import java.util.Map;
  * Wrapper for primitive types in Krine.  This is package public because it
  * is used in the implementation of some krine commands.
  * <p>
+ * The value is kept unboxed: a type tag and the raw value bits.  The
+ * java.lang wrapper is only created when getValue() asks for it.  Use the
+ * valueOf() factories where identity does not matter, they share the
+ * instances for true, false and small ints.
+ * <p>
  * See the note in LeftValue.java about wrapping objects.
  */
 /*
@@ -43,116 +48,252 @@ public final class Primitive implements ParserConstants, Serializable {
         wrapperMap.put(Double.class, Double.TYPE);
     }
 
+    // Type tags, numeric types are ordered by binary numeric promotion
+    static final int TAG_NULL = 0;
+    static final int TAG_VOID = 1;
+    static final int TAG_BOOLEAN = 2;
+    static final int TAG_BYTE = 3;
+    static final int TAG_SHORT = 4;
+    static final int TAG_CHAR = 5;
+    static final int TAG_INT = 6;
+    static final int TAG_LONG = 7;
+    static final int TAG_FLOAT = 8;
+    static final int TAG_DOUBLE = 9;
+
+    // The range of the shared int instances
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+
     /**
-     * The primitive value stored in its java.lang wrapper class
+     * The type of the value
      */
-    private Object value;
+    private final int tag;
 
-    private static class Special implements java.io.Serializable {
-        private Special() {
-        }
+    /**
+     * The raw value: booleans and integral types as a long, float and
+     * double as the bits of a double.
+     */
+    private final long bits;
 
-        public static final Special NULL_VALUE = new Special() {
-            private Object readResolve() throws ObjectStreamException {
-                return Special.NULL_VALUE;
-            }
-        };
-        public static final Special VOID_TYPE = new Special() {
-            private Object readResolve() throws ObjectStreamException {
-                return Special.VOID_TYPE;
-            }
-        };
-    }
+    /**
+     * The value in its java.lang wrapper class, created on demand
+     */
+    private transient Object value;
 
     /*
         NULL means "no value".
         This ia a placeholder for primitive null value.
     */
-    public static final Primitive NULL = new Primitive(Special.NULL_VALUE);
+    public static final Primitive NULL = new Primitive(TAG_NULL, 0);
 
     /**
      * VOID means "no type".
      * Strictly speaking, this makes no sense here.  But for practical
      * reasons we'll consider the lack of a type to be a special value.
      */
-    public static final Primitive VOID = new Primitive(Special.VOID_TYPE);
+    public static final Primitive VOID = new Primitive(TAG_VOID, 0);
+
+    public static final Primitive TRUE = new Primitive(true);
+    public static final Primitive FALSE = new Primitive(false);
+
+    private static final Primitive[] intCache = new Primitive[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < intCache.length; i++)
+            intCache[i] = new Primitive(i + CACHE_LOW);
+    }
 
     private Object readResolve() throws ObjectStreamException {
-        if (value == Special.NULL_VALUE) {
+        if (tag == TAG_NULL) {
             return Primitive.NULL;
-        } else if (value == Special.VOID_TYPE) {
+        } else if (tag == TAG_VOID) {
             return Primitive.VOID;
         } else {
             return this;
         }
     }
 
+    private Primitive(int tag, long bits) {
+        this.tag = tag;
+        this.bits = bits;
+    }
+
     // private to prevent invocation with param that isn't a primitive-wrapper
     public Primitive(Object value) {
-        if (value == null)
-            throw new InterpreterException(
-                    "Use Primitive.NULL instead of Primitive(null)");
-
-        if (value != Special.NULL_VALUE
-                && value != Special.VOID_TYPE &&
-                !isWrapperType(value.getClass())
-                )
-            throw new InterpreterException("Not a wrapper type: " + value);
-
+        this(tagOf(value), bitsOf(value));
         this.value = value;
     }
 
     public Primitive(boolean value) {
-        this(Boolean.valueOf(value));
+        this(TAG_BOOLEAN, value ? 1 : 0);
     }
 
     public Primitive(byte value) {
-        this(new Byte(value));
+        this(TAG_BYTE, value);
     }
 
     public Primitive(short value) {
-        this(new Short(value));
+        this(TAG_SHORT, value);
     }
 
     public Primitive(char value) {
-        this(new Character(value));
+        this(TAG_CHAR, value);
     }
 
     public Primitive(int value) {
-        this(new Integer(value));
+        this(TAG_INT, value);
     }
 
     public Primitive(long value) {
-        this(new Long(value));
+        this(TAG_LONG, value);
     }
 
     public Primitive(float value) {
-        this(new Float(value));
+        this(TAG_FLOAT, Double.doubleToRawLongBits(value));
     }
 
     public Primitive(double value) {
-        this(new Double(value));
+        this(TAG_DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Get the shared Primitive.TRUE or Primitive.FALSE.
+     */
+    public static Primitive valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Get a Primitive int, shared for small values.
+     */
+    public static Primitive valueOf(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH)
+            return intCache[value - CACHE_LOW];
+        return new Primitive(value);
+    }
+
+    /**
+     * Get a Primitive for the value in its java.lang wrapper class, shared
+     * where possible.
+     */
+    public static Primitive valueOf(Object value) {
+        if (value instanceof Integer)
+            return valueOf(((Integer) value).intValue());
+        if (value instanceof Boolean)
+            return valueOf(((Boolean) value).booleanValue());
+        return new Primitive(value);
+    }
+
+    private static int tagOf(Object value) {
+        if (value == null)
+            throw new InterpreterException(
+                    "Use Primitive.NULL instead of Primitive(null)");
+
+        if (value instanceof Boolean)
+            return TAG_BOOLEAN;
+        if (value instanceof Byte)
+            return TAG_BYTE;
+        if (value instanceof Short)
+            return TAG_SHORT;
+        if (value instanceof Character)
+            return TAG_CHAR;
+        if (value instanceof Integer)
+            return TAG_INT;
+        if (value instanceof Long)
+            return TAG_LONG;
+        if (value instanceof Float)
+            return TAG_FLOAT;
+        if (value instanceof Double)
+            return TAG_DOUBLE;
+
+        throw new InterpreterException("Not a wrapper type: " + value);
+    }
+
+    private static long bitsOf(Object value) {
+        if (value instanceof Boolean)
+            return (Boolean) value ? 1 : 0;
+        if (value instanceof Character)
+            return (Character) value;
+        if (value instanceof Float || value instanceof Double)
+            return Double.doubleToRawLongBits(((Number) value).doubleValue());
+        return ((Number) value).longValue();
+    }
+
+    int getTag() {
+        return tag;
+    }
+
+    /**
+     * The value of an integral or char Primitive, as a long.
+     */
+    long longBits() {
+        return bits;
+    }
+
+    /**
+     * The value of a numeric Primitive, as a double.
+     */
+    double doubleBits() {
+        return tag >= TAG_FLOAT ? Double.longBitsToDouble(bits) : (double) bits;
+    }
+
+    private float floatBits() {
+        return tag >= TAG_FLOAT ? (float) Double.longBitsToDouble(bits) : (float) bits;
     }
 
     /**
      * Return the primitive value stored in its java.lang wrapper class
      */
     public Object getValue() {
-        if (value == Special.NULL_VALUE)
-            return null;
-        else if (value == Special.VOID_TYPE)
-            throw new InterpreterException("attempt to unwrap void type");
-        else
-            return value;
+        Object value = this.value;
+        if (value == null) {
+            if (tag == TAG_NULL)
+                return null;
+            else if (tag == TAG_VOID)
+                throw new InterpreterException("attempt to unwrap void type");
+            this.value = value = box();
+        }
+        return value;
+    }
+
+    private Object box() {
+        switch (tag) {
+            case TAG_BOOLEAN:
+                return bits != 0;
+            case TAG_BYTE:
+                return (byte) bits;
+            case TAG_SHORT:
+                return (short) bits;
+            case TAG_CHAR:
+                return (char) bits;
+            case TAG_INT:
+                return (int) bits;
+            case TAG_LONG:
+                return bits;
+            case TAG_FLOAT:
+                return floatBits();
+            default:
+                return doubleBits();
+        }
     }
 
     public String toString() {
-        if (value == Special.NULL_VALUE)
-            return "null";
-        else if (value == Special.VOID_TYPE)
-            return "void";
-        else
-            return value.toString();
+        switch (tag) {
+            case TAG_NULL:
+                return "null";
+            case TAG_VOID:
+                return "void";
+            case TAG_BOOLEAN:
+                return String.valueOf(bits != 0);
+            case TAG_CHAR:
+                return String.valueOf((char) bits);
+            case TAG_FLOAT:
+                return String.valueOf(floatBits());
+            case TAG_DOUBLE:
+                return String.valueOf(doubleBits());
+            default:
+                return String.valueOf(bits);
+        }
     }
 
     /**
@@ -162,15 +303,30 @@ public final class Primitive implements ParserConstants, Serializable {
      * Primitive.VOID or null value for type of Primitive.NULL
      */
     public Class getType() {
-        if (this == Primitive.VOID)
-            return Void.TYPE;
-
-        // NULL return null as type... we currently use null type to indicate
-        // loose typing throughout krine.
-        if (this == Primitive.NULL)
-            return null;
-
-        return unboxType(value.getClass());
+        switch (tag) {
+            case TAG_VOID:
+                return Void.TYPE;
+            // NULL return null as type... we currently use null type to indicate
+            // loose typing throughout krine.
+            case TAG_NULL:
+                return null;
+            case TAG_BOOLEAN:
+                return Boolean.TYPE;
+            case TAG_BYTE:
+                return Byte.TYPE;
+            case TAG_SHORT:
+                return Short.TYPE;
+            case TAG_CHAR:
+                return Character.TYPE;
+            case TAG_INT:
+                return Integer.TYPE;
+            case TAG_LONG:
+                return Long.TYPE;
+            case TAG_FLOAT:
+                return Float.TYPE;
+            default:
+                return Double.TYPE;
+        }
     }
 
     /**
@@ -192,24 +348,13 @@ public final class Primitive implements ParserConstants, Serializable {
                     "Undefined variable, class, or 'void' literal in binary operation");
 
         // keep track of the original types
-        Class lhsOrgType = obj1.getClass();
-        Class rhsOrgType = obj2.getClass();
-
-        // Unwrap primitives
-        if (obj1 instanceof Primitive)
-            obj1 = ((Primitive) obj1).getValue();
-        if (obj2 instanceof Primitive)
-            obj2 = ((Primitive) obj2).getValue();
-
-        Object[] operands = promotePrimitives(obj1, obj2);
-        Object lhs = operands[0];
-        Object rhs = operands[1];
+        boolean isPrimitiveResult = obj1 instanceof Primitive && obj2 instanceof Primitive;
 
-        if (lhs.getClass() != rhs.getClass())
-            throw new UtilEvalException("Type mismatch in operator.  "
-                    + lhs.getClass() + " cannot be used with " + rhs.getClass());
+        // Wrap java.lang wrappers
+        Primitive lhs = toPrimitive(obj1);
+        Primitive rhs = toPrimitive(obj2);
 
-        Object result;
+        Primitive result;
         try {
             result = binaryOperationImpl(lhs, rhs, kind);
         } catch (ArithmeticException e) {
@@ -219,127 +364,144 @@ public final class Primitive implements ParserConstants, Serializable {
         // If both original args were Primitives return a Primitive result
         // else it was mixed (wrapper/primitive) return the wrapper type
         // Exception is for boolean result, return the primitive
-        if ((lhsOrgType == Primitive.class && rhsOrgType == Primitive.class)
-                || result instanceof Boolean
-                )
-            return new Primitive(result);
-        else
+        if (isPrimitiveResult || result.tag == TAG_BOOLEAN)
             return result;
+        else
+            return result.getValue();
     }
 
-    private static Object binaryOperationImpl(Object lhs, Object rhs, int kind)
-            throws UtilEvalException {
-        if (lhs instanceof Boolean)
-            return booleanBinaryOperation((Boolean) lhs, (Boolean) rhs, kind);
-        else if (lhs instanceof Integer)
-            return intBinaryOperation((Integer) lhs, (Integer) rhs, kind);
-        else if (lhs instanceof Long)
-            return longBinaryOperation((Long) lhs, (Long) rhs, kind);
-        else if (lhs instanceof Float)
-            return floatBinaryOperation((Float) lhs, (Float) rhs, kind);
-        else if (lhs instanceof Double)
-            return doubleBinaryOperation((Double) lhs, (Double) rhs, kind);
-        else
+    private static Primitive toPrimitive(Object obj) throws UtilEvalException {
+        if (obj instanceof Primitive)
+            return (Primitive) obj;
+        if (!isWrapperType(obj.getClass()))
             throw new UtilEvalException("Invalid types in binary operator");
+        return new Primitive(obj);
+    }
+
+    /**
+     * Promote the pair of primitives to the maximum type of the two and
+     * perform the operation in that type.
+     * e.g. [int,long]->[long,long]
+     */
+    private static Primitive binaryOperationImpl(Primitive lhs, Primitive rhs, int kind)
+            throws UtilEvalException {
+        if (lhs.tag == TAG_BOOLEAN || rhs.tag == TAG_BOOLEAN) {
+            if (lhs.tag != rhs.tag)
+                throw new UtilEvalException("Type mismatch in operator.  "
+                        + promotedClass(lhs) + " cannot be used with "
+                        + promotedClass(rhs));
+            return booleanBinaryOperation(lhs.bits != 0, rhs.bits != 0, kind);
+        }
+
+        switch (Math.max(TAG_INT, Math.max(lhs.tag, rhs.tag))) {
+            case TAG_INT:
+                return intBinaryOperation((int) lhs.bits, (int) rhs.bits, kind);
+            case TAG_LONG:
+                return longBinaryOperation(lhs.bits, rhs.bits, kind);
+            case TAG_FLOAT:
+                return floatBinaryOperation(lhs.floatBits(), rhs.floatBits(), kind);
+            default:
+                return doubleBinaryOperation(lhs.doubleBits(), rhs.doubleBits(), kind);
+        }
     }
 
-    private static Boolean booleanBinaryOperation(Boolean B1, Boolean B2, int kind) {
-        boolean lhs = B1;
-        boolean rhs = B2;
+    private static Class promotedClass(Primitive value) {
+        // byte, short and char are promoted to int
+        if (value.tag != TAG_BOOLEAN && value.tag < TAG_INT)
+            return Integer.class;
+        return value.getValue().getClass();
+    }
 
+    private static Primitive booleanBinaryOperation(boolean lhs, boolean rhs, int kind) {
         switch (kind) {
             case EQ:
-                return lhs == rhs;
+                return valueOf(lhs == rhs);
 
             case NE:
-                return lhs != rhs;
+                return valueOf(lhs != rhs);
 
             case BOOL_OR:
             case BOOL_ORX:
             case BIT_OR:
-                return lhs || rhs;
+                return valueOf(lhs || rhs);
 
             case BOOL_AND:
             case BOOL_ANDX:
             case BIT_AND:
-                return lhs && rhs;
+                return valueOf(lhs && rhs);
 
             case XOR:
-                return lhs ^ rhs;
+                return valueOf(lhs ^ rhs);
 
             default:
                 throw new InterpreterException("unimplemented binary operator");
         }
     }
 
-    // returns Object covering both Long and Boolean return types
-    private static Object longBinaryOperation(Long L1, Long L2, int kind) {
-        long lhs = L1;
-        long rhs = L2;
-
+    static Primitive longBinaryOperation(long lhs, long rhs, int kind) {
         switch (kind) {
             // boolean
             case LT:
             case LTX:
-                return lhs < rhs;
+                return valueOf(lhs < rhs);
 
             case GT:
             case GTX:
-                return lhs > rhs;
+                return valueOf(lhs > rhs);
 
             case EQ:
-                return lhs == rhs;
+                return valueOf(lhs == rhs);
 
             case LE:
             case LEX:
-                return lhs <= rhs;
+                return valueOf(lhs <= rhs);
 
             case GE:
             case GEX:
-                return lhs >= rhs;
+                return valueOf(lhs >= rhs);
 
             case NE:
-                return lhs != rhs;
+                return valueOf(lhs != rhs);
 
             // arithmetic
             case PLUS:
-                return lhs + rhs;
+                return new Primitive(lhs + rhs);
 
             case MINUS:
-                return lhs - rhs;
+                return new Primitive(lhs - rhs);
 
             case STAR:
-                return lhs * rhs;
+                return new Primitive(lhs * rhs);
 
             case SLASH:
-                return lhs / rhs;
+                return new Primitive(lhs / rhs);
 
             case MOD:
-                return lhs % rhs;
+                return new Primitive(lhs % rhs);
 
             // bitwise
             case LSHIFT:
             case LSHIFTX:
-                return lhs << rhs;
+                return new Primitive(lhs << rhs);
 
             case RSIGNEDSHIFT:
             case RSIGNEDSHIFTX:
-                return lhs >> rhs;
+                return new Primitive(lhs >> rhs);
 
             case RUNSIGNEDSHIFT:
             case RUNSIGNEDSHIFTX:
-                return lhs >>> rhs;
+                return new Primitive(lhs >>> rhs);
 
             case BIT_AND:
             case BIT_ANDX:
-                return lhs & rhs;
+                return new Primitive(lhs & rhs);
 
             case BIT_OR:
             case BIT_ORX:
-                return lhs | rhs;
+                return new Primitive(lhs | rhs);
 
             case XOR:
-                return lhs ^ rhs;
+                return new Primitive(lhs ^ rhs);
 
             default:
                 throw new InterpreterException(
@@ -347,74 +509,70 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    // returns Object covering both Integer and Boolean return types
-    private static Object intBinaryOperation(Integer I1, Integer I2, int kind) {
-        int lhs = I1;
-        int rhs = I2;
-
+    static Primitive intBinaryOperation(int lhs, int rhs, int kind) {
         switch (kind) {
             // boolean
             case LT:
             case LTX:
-                return lhs < rhs;
+                return valueOf(lhs < rhs);
 
             case GT:
             case GTX:
-                return lhs > rhs;
+                return valueOf(lhs > rhs);
 
             case EQ:
-                return lhs == rhs;
+                return valueOf(lhs == rhs);
 
             case LE:
             case LEX:
-                return lhs <= rhs;
+                return valueOf(lhs <= rhs);
 
             case GE:
             case GEX:
-                return lhs >= rhs;
+                return valueOf(lhs >= rhs);
 
             case NE:
-                return lhs != rhs;
+                return valueOf(lhs != rhs);
 
             // arithmetic
             case PLUS:
-                return lhs + rhs;
+                return valueOf(lhs + rhs);
 
             case MINUS:
-                return lhs - rhs;
+                return valueOf(lhs - rhs);
 
             case STAR:
-                return lhs * rhs;
+                return valueOf(lhs * rhs);
 
             case SLASH:
-                return lhs / rhs;
+                return valueOf(lhs / rhs);
 
             case MOD:
-                return lhs % rhs;
+                return valueOf(lhs % rhs);
 
             // bitwise
             case LSHIFT:
             case LSHIFTX:
-                return lhs << rhs;
+                return valueOf(lhs << rhs);
 
             case RSIGNEDSHIFT:
             case RSIGNEDSHIFTX:
-                return lhs >> rhs;
+                return valueOf(lhs >> rhs);
 
             case RUNSIGNEDSHIFT:
             case RUNSIGNEDSHIFTX:
-                return lhs >>> rhs;
+                return valueOf(lhs >>> rhs);
 
             case BIT_AND:
             case BIT_ANDX:
-                return lhs & rhs;
+                return valueOf(lhs & rhs);
 
             case BIT_OR:
             case BIT_ORX:
-                return lhs | rhs;
+                return valueOf(lhs | rhs);
 
             case XOR:
-                return lhs ^ rhs;
+                return valueOf(lhs ^ rhs);
 
             default:
                 throw new InterpreterException(
@@ -422,51 +580,47 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    // returns Object covering both Double and Boolean return types
-    private static Object doubleBinaryOperation(Double D1, Double D2, int kind)
+    static Primitive doubleBinaryOperation(double lhs, double rhs, int kind)
             throws UtilEvalException {
-        double lhs = D1;
-        double rhs = D2;
-
         switch (kind) {
             // boolean
             case LT:
             case LTX:
-                return lhs < rhs;
+                return valueOf(lhs < rhs);
 
             case GT:
             case GTX:
-                return lhs > rhs;
+                return valueOf(lhs > rhs);
 
             case EQ:
-                return lhs == rhs;
+                return valueOf(lhs == rhs);
 
             case LE:
             case LEX:
-                return lhs <= rhs;
+                return valueOf(lhs <= rhs);
 
             case GE:
             case GEX:
-                return lhs >= rhs;
+                return valueOf(lhs >= rhs);
 
             case NE:
-                return lhs != rhs;
+                return valueOf(lhs != rhs);
 
             // arithmetic
             case PLUS:
-                return lhs + rhs;
+                return new Primitive(lhs + rhs);
 
             case MINUS:
-                return lhs - rhs;
+                return new Primitive(lhs - rhs);
 
             case STAR:
-                return lhs * rhs;
+                return new Primitive(lhs * rhs);
 
             case SLASH:
-                return lhs / rhs;
+                return new Primitive(lhs / rhs);
 
             case MOD:
-                return lhs % rhs;
+                return new Primitive(lhs % rhs);
 
             // can't shift floating-point values
             case LSHIFT:
@@ -483,51 +637,47 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    // returns Object covering both Long and Boolean return types
-    private static Object floatBinaryOperation(Float F1, Float F2, int kind)
+    private static Primitive floatBinaryOperation(float lhs, float rhs, int kind)
             throws UtilEvalException {
-        float lhs = F1;
-        float rhs = F2;
-
         switch (kind) {
             // boolean
             case LT:
             case LTX:
-                return lhs < rhs;
+                return valueOf(lhs < rhs);
 
             case GT:
             case GTX:
-                return lhs > rhs;
+                return valueOf(lhs > rhs);
 
             case EQ:
-                return lhs == rhs;
+                return valueOf(lhs == rhs);
 
             case LE:
             case LEX:
-                return lhs <= rhs;
+                return valueOf(lhs <= rhs);
 
             case GE:
             case GEX:
-                return lhs >= rhs;
+                return valueOf(lhs >= rhs);
 
             case NE:
-                return lhs != rhs;
+                return valueOf(lhs != rhs);
 
             // arithmetic
             case PLUS:
-                return lhs + rhs;
+                return new Primitive(lhs + rhs);
 
             case MINUS:
-                return lhs - rhs;
+                return new Primitive(lhs - rhs);
 
             case STAR:
-                return lhs * rhs;
+                return new Primitive(lhs * rhs);
 
             case SLASH:
-                return lhs / rhs;
+                return new Primitive(lhs / rhs);
 
             case MOD:
-                return lhs % rhs;
+                return new Primitive(lhs % rhs);
 
             // can't shift floats
             case LSHIFT:
@@ -556,41 +706,6 @@ public final class Primitive implements ParserConstants, Serializable {
         return wrapper;
     }
 
-    /**
-     * Promote the pair of primitives to the maximum type of the two.
-     * e.g. [int,long]->[long,long]
-     */
-    private static Object[] promotePrimitives(Object lhs, Object rhs) {
-        lhs = promoteToInteger(lhs);
-        rhs = promoteToInteger(rhs);
-
-        if ((lhs instanceof Number) && (rhs instanceof Number)) {
-            Number leftNumber = (Number) lhs;
-            Number rightNumber = (Number) rhs;
-
-            boolean b;
-
-            if ((b = (leftNumber instanceof Double)) || (rightNumber instanceof Double)) {
-                if (b)
-                    rhs = rightNumber.doubleValue();
-                else
-                    lhs = leftNumber.doubleValue();
-            } else if ((b = (leftNumber instanceof Float)) || (rightNumber instanceof Float)) {
-                if (b)
-                    rhs = rightNumber.floatValue();
-                else
-                    lhs = leftNumber.floatValue();
-            } else if ((b = (leftNumber instanceof Long)) || (rightNumber instanceof Long)) {
-                if (b)
-                    rhs = rightNumber.longValue();
-                else
-                    lhs = leftNumber.longValue();
-            }
-        }
-
-        return new Object[]{lhs, rhs};
-    }
-
     public static Primitive unaryOperation(Primitive val, int kind)
             throws UtilEvalException {
         if (val == NULL)
@@ -600,39 +715,34 @@ public final class Primitive implements ParserConstants, Serializable {
             throw new UtilEvalException(
                     "illegal use of undefined object or 'void' literal");
 
-        Class operandType = val.getType();
-        Object operand = promoteToInteger(val.getValue());
-
-        if (operand instanceof Boolean)
-            return new Primitive(booleanUnaryOperation((Boolean) operand, kind));
-        else if (operand instanceof Integer) {
-            int result = intUnaryOperation((Integer) operand, kind);
-
-            // ++ and -- must be cast back the original type
-            if (kind == INCR || kind == DECR) {
-                if (operandType == Byte.TYPE)
-                    return new Primitive((byte) result);
-                if (operandType == Short.TYPE)
-                    return new Primitive((short) result);
-                if (operandType == Character.TYPE)
-                    return new Primitive((char) result);
-            }
-
-            return new Primitive(result);
-        } else if (operand instanceof Long)
-            return new Primitive(longUnaryOperation((Long) operand, kind));
-        else if (operand instanceof Float)
-            return new Primitive(floatUnaryOperation((Float) operand, kind));
-        else if (operand instanceof Double)
-            return new Primitive(doubleUnaryOperation((Double) operand, kind));
-        else
-            throw new InterpreterException(
-                    "An error occurred.  Please call technical support.");
+        switch (val.tag) {
+            case TAG_BOOLEAN:
+                return valueOf(booleanUnaryOperation(val.bits != 0, kind));
+            case TAG_LONG:
+                return new Primitive(longUnaryOperation(val.bits, kind));
+            case TAG_FLOAT:
+                return new Primitive(floatUnaryOperation(val.floatBits(), kind));
+            case TAG_DOUBLE:
+                return new Primitive(doubleUnaryOperation(val.doubleBits(), kind));
+        }
+
+        int result = intUnaryOperation((int) val.bits, kind);
+
+        // ++ and -- must be cast back the original type
+        if (kind == INCR || kind == DECR) {
+            if (val.tag == TAG_BYTE)
+                return new Primitive((byte) result);
+            if (val.tag == TAG_SHORT)
+                return new Primitive((short) result);
+            if (val.tag == TAG_CHAR)
+                return new Primitive((char) result);
+        }
+
+        return valueOf(result);
     }
 
-    static boolean booleanUnaryOperation(Boolean B, int kind)
+    static boolean booleanUnaryOperation(boolean operand, int kind)
             throws UtilEvalException {
-        boolean operand = B;
         switch (kind) {
             case BANG:
                 return !operand;
@@ -641,9 +751,7 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    static int intUnaryOperation(Integer I, int kind) {
-        int operand = I;
-
+    static int intUnaryOperation(int operand, int kind) {
         switch (kind) {
             case PLUS:
                 return operand;
@@ -660,9 +768,7 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    static long longUnaryOperation(Long L, int kind) {
-        long operand = L;
-
+    static long longUnaryOperation(long operand, int kind) {
         switch (kind) {
             case PLUS:
                 return operand;
@@ -679,9 +785,7 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    static float floatUnaryOperation(Float F, int kind) {
-        float operand = F;
-
+    static float floatUnaryOperation(float operand, int kind) {
         switch (kind) {
             case PLUS:
                 return operand;
@@ -692,9 +796,7 @@ public final class Primitive implements ParserConstants, Serializable {
         }
     }
 
-    static double doubleUnaryOperation(Double D, int kind) {
-        double operand = D;
-
+    static double doubleUnaryOperation(double operand, int kind) {
         switch (kind) {
             case PLUS:
                 return operand;
@@ -706,15 +808,15 @@ public final class Primitive implements ParserConstants, Serializable {
     }
 
     public int intValue() throws UtilEvalException {
-        if (value instanceof Number)
-            return ((Number) value).intValue();
+        if (isNumber() && tag != TAG_CHAR)
+            return tag >= TAG_FLOAT ? (int) doubleBits() : (int) bits;
         else
             throw new UtilEvalException("Primitive not a number");
     }
 
     public boolean booleanValue() throws UtilEvalException {
-        if (value instanceof Boolean)
-            return (Boolean) value;
+        if (tag == TAG_BOOLEAN)
+            return bits != 0;
         else
             throw new UtilEvalException("Primitive not a boolean");
     }
@@ -724,19 +826,16 @@ public final class Primitive implements ParserConstants, Serializable {
      * i.e. not boolean, null, or void (but including char)
      */
     public boolean isNumber() {
-        return (!(value instanceof Boolean)
-                && !(this == NULL) && !(this == VOID));
+        return tag > TAG_BOOLEAN;
     }
 
     public Number numberValue() throws UtilEvalException {
-        Object value = this.value;
-
         // Promote character to Number type for these purposes
-        if (value instanceof Character)
-            value = (int) (Character) value;
+        if (tag == TAG_CHAR)
+            return (int) bits;
 
-        if (value instanceof Number)
-            return (Number) value;
+        if (isNumber())
+            return (Number) getValue();
         else
             throw new UtilEvalException("Primitive not a number");
     }
@@ -746,7 +845,17 @@ public final class Primitive implements ParserConstants, Serializable {
      * wrapped value.
      */
     public boolean equals(Object obj) {
-        return obj instanceof Primitive && ((Primitive) obj).value.equals(this.value);
+        if (!(obj instanceof Primitive))
+            return false;
+
+        Primitive other = (Primitive) obj;
+        if (tag != other.tag)
+            return false;
+        if (tag >= TAG_FLOAT)
+            // as Double.equals(), NaN equals itself
+            return Double.doubleToLongBits(doubleBits())
+                    == Double.doubleToLongBits(other.doubleBits());
+        return tag > TAG_VOID ? bits == other.bits : this == other;
     }
 
     /**
@@ -754,7 +863,9 @@ public final class Primitive implements ParserConstants, Serializable {
      * shifted so that they are not the same.
      */
     public int hashCode() {
-        return this.value.hashCode() * 21; // arbitrary
+        if (tag <= TAG_VOID)
+            return System.identityHashCode(this);
+        return getValue().hashCode() * 21; // arbitrary
     }
 
     /**
@@ -818,7 +929,7 @@ public final class Primitive implements ParserConstants, Serializable {
             return Primitive.NULL;
 
         if (type.isPrimitive())
-            return new Primitive(value);
+            return valueOf(value);
 
         return value;
     }
@@ -831,7 +942,7 @@ public final class Primitive implements ParserConstants, Serializable {
         if (type == null || !type.isPrimitive())
             return Primitive.NULL;
         if (type == Boolean.TYPE)
-            return new Primitive(false);
+            return FALSE;
 
         // non boolean primitive, get appropriate flavor of zero
         try {
@@ -928,11 +1039,6 @@ public final class Primitive implements ParserConstants, Serializable {
                 throw Types.castError(Reflect.normalizeClassName(toType),
                         "void value", operation);
 
-        // unwrap Primitive fromValue to its wrapper value, etc.
-        Object value = null;
-        if (fromValue != null)
-            value = fromValue.getValue();
-
         if (toType.isPrimitive()) {
             // Trying to cast null to primitive type?
             if (fromType == null)
@@ -982,7 +1088,49 @@ public final class Primitive implements ParserConstants, Serializable {
         }
 
         return checkOnly ? Types.VALID_CAST :
-                new Primitive(castWrapper(toType, value));
+                fromValue.castNumber(toType);
+    }
+
+    /**
+     * Cast a numeric Primitive to the numeric primitive TYPE, as castWrapper()
+     * would, without boxing.
+     */
+    private Primitive castNumber(Class toType) {
+        if (tag >= TAG_FLOAT) {
+            double value = doubleBits();
+            if (toType == Byte.TYPE)
+                return new Primitive((byte) value);
+            if (toType == Short.TYPE)
+                return new Primitive((short) value);
+            if (toType == Character.TYPE)
+                return new Primitive((char) (int) value);
+            if (toType == Integer.TYPE)
+                return valueOf((int) value);
+            if (toType == Long.TYPE)
+                return new Primitive((long) value);
+            if (toType == Float.TYPE)
+                return tag == TAG_FLOAT ? this : new Primitive((float) value);
+            if (toType == Double.TYPE)
+                return tag == TAG_DOUBLE ? this : new Primitive(value);
+        } else {
+            long value = bits;
+            if (toType == Byte.TYPE)
+                return tag == TAG_BYTE ? this : new Primitive((byte) value);
+            if (toType == Short.TYPE)
+                return tag == TAG_SHORT ? this : new Primitive((short) value);
+            if (toType == Character.TYPE)
+                return tag == TAG_CHAR ? this : new Primitive((char) value);
+            if (toType == Integer.TYPE)
+                return tag == TAG_INT ? this : valueOf((int) value);
+            if (toType == Long.TYPE)
+                return tag == TAG_LONG ? this : new Primitive(value);
+            if (toType == Float.TYPE)
+                return new Primitive((float) value);
+            if (toType == Double.TYPE)
+                return new Primitive((double) value);
+        }
+
+        throw new InterpreterException("error in wrapper cast");
     }
 
     public static boolean isWrapperType(Class type) {
@@ -56,7 +56,7 @@ import com.krine.lang.utils.CallStack;
 	try to remember to mark these as transient to highlight them.
 
 */
-public class SimpleNode implements Node {
+public class SimpleNode implements Node, Cloneable {
     public static SimpleNode JAVA_CODE =
             new SimpleNode(-1) {
                 public String getSourceFile() {
@@ -168,6 +168,37 @@ public class SimpleNode implements Node {
         jjtSetParent(null);
     }
 
+    /**
+     * Copy the tree as parsed, to be evaluated apart from this one.
+     * Evaluation keeps state in the nodes, e.g. resolved types, which is
+     * only good for the nameSpace it ran in, so copy trees which were
+     * never evaluated.
+     */
+    public SimpleNode copyTree() {
+        SimpleNode copy = copyNode();
+        if (children != null) {
+            copy.children = new Node[children.length];
+            for (int i = 0; i < children.length; i++) {
+                SimpleNode child = ((SimpleNode) children[i]).copyTree();
+                child.parent = copy;
+                copy.children[i] = child;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copy the node without its children.  Nodes holding parse data which
+     * evaluation may change copy that as well.
+     */
+    SimpleNode copyNode() {
+        try {
+            return (SimpleNode) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InterpreterException("Can't copy node: " + this);
+        }
+    }
+
     /**
      * This is the general signature for evaluation of a node.
      */
@@ -220,11 +251,14 @@ public class SimpleNode implements Node {
      * Get the text of the tokens comprising this node.
      */
     public String getText() {
+        if (firstToken instanceof CompiledFile.SourceToken)
+            return ((CompiledFile.SourceToken) firstToken).getText();
+
         StringBuilder text = new StringBuilder();
         Token t = firstToken;
         while (t != null) {
             text.append(t.image);
-            if (!t.image.equals("."))
+            if (!t.image.isEmpty() && !t.image.equals("."))
                 text.append(" ");
             if (t == lastToken ||
                     t.image.equals("{") || t.image.equals(";"))
@@ -240,6 +274,10 @@ public class SimpleNode implements Node {
         isDebugging = debugger != null;
     }
 
+    boolean isDebugging() {
+        return isDebugging;
+    }
+
     protected void waitForDebugger() {
         if (!isDebugging) {
             return;
@@ -3,13 +3,16 @@ package com.krine.lang.ast;
 import com.krine.lang.KrineBasicInterpreter;
 import com.krine.lang.UtilEvalException;
 import com.krine.lang.utils.CallStack;
+import com.krine.lang.utils.Capabilities;
 import com.krine.lang.utils.StringUtil;
 import krine.core.KRuntimeException;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -35,10 +38,9 @@ public final class This implements java.io.Serializable, Runnable {
      */
     transient KrineBasicInterpreter declaringKrineBasicInterpreter;
     /**
-     * A cache of proxy interface handlers.
-     * Currently just one per interface.
+     * A cache of interface implementations, one per set of interfaces.
      */
-    private Map<Integer, Object> interfaces;
+    private Map<List<Class>, Object> interfaces;
 
     This(NameSpace namespace, KrineBasicInterpreter declaringKrineBasicInterpreter) {
         this.namespace = namespace;
@@ -122,31 +124,35 @@ public final class This implements java.io.Serializable, Runnable {
     }
 
     /**
-     * Get dynamic proxy for interface, caching those it creates.
+     * Get an implementation of the interface, caching those it creates.
      */
     public Object getInterface(Class clazz) {
         return getInterface(new Class[]{clazz});
     }
 
     /**
-     * Get dynamic proxy for interface, caching those it creates.
+     * Get an implementation of the interfaces, caching those it creates.
+     * Where possible this is an InterfaceAdapter generated for the set of
+     * interfaces, otherwise a dynamic proxy.
      */
     public Object getInterface(Class[] ca) {
         if (interfaces == null)
             interfaces = new HashMap<>();
 
-        // Make a hash of the interface hashcode in order to cache them
-        int hash = 21;
-        for (Class aCa : ca) hash *= aCa.hashCode() + 3;
-        Integer hashKey = hash;
-
-        Object interf = interfaces.get(hashKey);
+        List<Class> key = Arrays.asList(ca.clone());
+        Object interf = interfaces.get(key);
 
         if (interf == null) {
-            ClassLoader classLoader = ca[0].getClassLoader(); // ?
-            interf = Proxy.newProxyInstance(
-                    classLoader, ca, invocationHandler);
-            interfaces.put(hashKey, interf);
+            InterfaceAdapter.Type adapterType = Capabilities.isAndroid()
+                    ? null : namespace.getClassManager().getInterfaceAdapter(key);
+            if (adapterType != null) {
+                interf = adapterType.newInstance(this);
+            } else {
+                ClassLoader classLoader = ca[0].getClassLoader(); // ?
+                interf = Proxy.newProxyInstance(
+                        classLoader, ca, invocationHandler);
+            }
+            interfaces.put(key, interf);
         }
 
         return interf;
@@ -320,6 +326,39 @@ public final class This implements java.io.Serializable, Runnable {
                 callerInfo, callStack);
     }
 
+    /**
+     * Turn an error from a scripted method called back from Java into the
+     * exception to throw to the Java caller.
+     */
+    static Throwable unwrapScriptException(This ths, Throwable e) {
+        if (e instanceof KrineTargetException) {
+            // Unwrap target exception.  If the interface declares that
+            // it throws the ex it will be delivered.  If not it will be
+            // wrapped in an UndeclaredThrowable
+
+            // This isn't simple because unwrapping this loses all context info.
+            // So rewrap is better than unwrap.  - fschmidt
+            Throwable t = ((KrineTargetException) e).getTarget();
+            Class<? extends Throwable> c = t.getClass();
+            String msg = t.getMessage();
+            try {
+                Throwable t2 = msg == null
+                        ? c.getConstructor().newInstance()
+                        : c.getConstructor(String.class).newInstance(msg);
+                t2.initCause(e);
+                return t2;
+            } catch (ReflectiveOperationException ex) {
+                return t;
+            }
+        }
+        if (e instanceof EvalError && KrineBasicInterpreter.DEBUG) {
+            // Ease debugging...
+            KrineBasicInterpreter.debug("EvalError in scripted interface: "
+                    + ths.toString() + ": " + e);
+        }
+        return e;
+    }
+
     /**
      * This is the invocation handler for the dynamic proxy.
      * <p>
@@ -337,32 +376,8 @@ public final class This implements java.io.Serializable, Runnable {
                 throws Throwable {
             try {
                 return invokeImpl(proxy, method, args);
-            } catch (KrineTargetException te) {
-                // Unwrap target exception.  If the interface declares that
-                // it throws the ex it will be delivered.  If not it will be
-                // wrapped in an UndeclaredThrowable
-
-                // This isn't simple because unwrapping this loses all context info.
-                // So rewrap is better than unwrap.  - fschmidt
-                Throwable t = te.getTarget();
-                Class<? extends Throwable> c = t.getClass();
-                String msg = t.getMessage();
-                try {
-                    Throwable t2 = msg == null
-                            ? c.getConstructor().newInstance()
-                            : c.getConstructor(String.class).newInstance(msg);
-                    t2.initCause(te);
-                    throw t2;
-                } catch (NoSuchMethodException e) {
-                    throw t;
-                }
-            } catch (EvalError ee) {
-                // Ease debugging...
-                // XThis.this refers to the enclosing class instance
-                if (KrineBasicInterpreter.DEBUG)
-                    KrineBasicInterpreter.debug("EvalError in scripted interface: "
-                            + This.this.toString() + ": " + ee);
-                throw ee;
+            } catch (EvalError e) {
+                throw unwrapScriptException(This.this, e);
             }
         }
 
@@ -379,34 +394,38 @@ public final class This implements java.io.Serializable, Runnable {
 				otherwise callers from outside in Java will not see a the
 				proxy object as equal to itself.
 			*/
-            KrineMethod equalsMethod = null;
-            try {
-                equalsMethod = namespace.getMethod(
-                        "equals", new Class[]{Object.class});
-            } catch (UtilEvalException e) {/*leave null*/ }
-            if (methodName.equals("equals") && equalsMethod == null) {
-                Object obj = args[0];
-                return proxy == obj;
+            if (methodName.equals("equals") && args != null && args.length == 1) {
+                KrineMethod equalsMethod = null;
+                try {
+                    equalsMethod = namespace.getMethod(
+                            "equals", new Class[]{Object.class});
+                } catch (UtilEvalException e) {/*leave null*/ }
+                if (equalsMethod == null) {
+                    Object obj = args[0];
+                    return proxy == obj;
+                }
             }
 
 			/*
                 If toString() is not explicitly defined override the default
 				to show the proxy interfaces.
 			*/
-            KrineMethod toStringMethod = null;
-            try {
-                toStringMethod =
-                        namespace.getMethod("toString", new Class[]{});
-            } catch (UtilEvalException e) {/*leave null*/ }
-
-            if (methodName.equals("toString") && toStringMethod == null) {
-                Class[] ints = proxy.getClass().getInterfaces();
-                // XThis.this refers to the enclosing class instance
-                StringBuilder sb = new StringBuilder(
-                        This.this.toString() + "\nimplements:");
-                for (Class anInt : ints)
-                    sb.append(" ").append(anInt.getName()).append((ints.length > 1) ? "," : "");
-                return sb.toString();
+            if (methodName.equals("toString") && (args == null || args.length == 0)) {
+                KrineMethod toStringMethod = null;
+                try {
+                    toStringMethod =
+                            namespace.getMethod("toString", new Class[]{});
+                } catch (UtilEvalException e) {/*leave null*/ }
+
+                if (toStringMethod == null) {
+                    Class[] ints = proxy.getClass().getInterfaces();
+                    // XThis.this refers to the enclosing class instance
+                    StringBuilder sb = new StringBuilder(
+                            This.this.toString() + "\nimplements:");
+                    for (Class anInt : ints)
+                        sb.append(" ").append(anInt.getName()).append((ints.length > 1) ? "," : "");
+                    return sb.toString();
+                }
             }
 
             Class[] paramTypes = method.getParameterTypes();
@@ -415,4 +434,3 @@ public final class This implements java.io.Serializable, Runnable {
         }
     }
 }
-
@@ -2,6 +2,8 @@ package com.krine.lang.ast;
 
 import com.krine.lang.UtilEvalException;
 
+import java.lang.reflect.Modifier;
+
 public class Variable implements java.io.Serializable {
     static final int DECLARATION = 0, ASSIGNMENT = 1;
     /**
@@ -12,6 +14,7 @@ public class Variable implements java.io.Serializable {
     String typeDescriptor;
     Object value;
     Modifiers modifiers;
+    boolean isFinal;
     LeftValue lhs;
 
     Variable(String name, Class type, LeftValue lhs) {
@@ -45,6 +48,7 @@ public class Variable implements java.io.Serializable {
         this.name = name;
         this.type = type;
         this.modifiers = modifiers;
+        this.isFinal = Modifiers.hasModifier(modifiers, Modifier.FINAL);
         setValue(value, DECLARATION);
     }
 
@@ -59,7 +63,7 @@ public class Variable implements java.io.Serializable {
             throws UtilEvalException {
 
         // check this.value
-        if (hasModifier("final")) {
+        if (isFinal) {
             if (this.value != null) {
                 throw new UtilEvalException("Final variable '" + getName() + "', can't re-assign.");
             } else if (value == null && context == DECLARATION) {
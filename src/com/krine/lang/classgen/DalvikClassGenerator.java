@@ -1,5 +1,6 @@
 package com.krine.lang.classgen;
 
+import com.android.dx.Version;
 import com.krine.lang.ast.KrineMethodDelayEvaluated;
 import com.krine.lang.ast.Modifiers;
 import com.krine.lang.ast.NameSpace;
@@ -14,25 +15,11 @@ import java.io.IOException;
  * @date 2017/3/18
  */
 class DalvikClassGenerator extends JavaClassGenerator implements IClassGenerator {
-    private static DexConverter DEX_CONVERTER = null;
-
-    private static DexConverter getDexConverter() {
-        if (DEX_CONVERTER == null) {
-            synchronized (DalvikClassGenerator.class) {
-                DEX_CONVERTER = new DexConverter();
-            }
-        }
-        return DEX_CONVERTER;
-    }
-
     @Override
     public byte[] generateClass(Modifiers classModifiers, String className, String packageName, Class superClass, Class[] interfaces, Variable[] vars, KrineMethodDelayEvaluated[] dragonMethods, NameSpace classStaticNameSpace, boolean isInterface) {
-        byte[] javaClass = super.generateClass(classModifiers, className, packageName, superClass, interfaces, vars, dragonMethods, classStaticNameSpace, isInterface);
-
-        DexConverter dexConverter = getDexConverter();
-        byte[] out = dexConverter.convertJavaClass(packageName + "." + className, javaClass);
+        byte[] out = super.generateClass(classModifiers, className, packageName, superClass, interfaces, vars, dragonMethods, classStaticNameSpace, isInterface);
 
-        if (System.getProperty("krineDexDebugDir") != null) {
+        if (out != null && System.getProperty("krineDexDebugDir") != null) {
             File dexFile = new File(System.getProperty("krineDexDebugDir"), className + ".dex");
             FileOutputStream os = null;
             
@@ -55,4 +42,15 @@ class DalvikClassGenerator extends JavaClassGenerator implements IClassGenerator
 
         return out;
     }
+
+    @Override
+    String getOutputSuffix() {
+        // dex files depend on the dx version as well
+        return "-dx" + Version.VERSION + ".dex";
+    }
+
+    @Override
+    byte[] convert(String fullClassName, byte[] javaClass) {
+        return DexConverter.getInstance().convertJavaClass(fullClassName, javaClass);
+    }
 }
@@ -0,0 +1,152 @@
+package com.krine.lang.classgen;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.utils.CacheDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of the bytes generated for scripted classes, so that later
+ * startups need not generate (and on Android convert to dex) them again.
+ * <p>
+ * Entries are keyed by everything the generated bytes depend on: the
+ * declaration of the class, its fields and methods with their bodies, the
+ * resolved super class and interfaces, the output format and the code of
+ * the generator itself.  Entries store their whole key and only match it
+ * exactly, so any change to those makes a miss rather than a stale class.
+ * <p>
+ * The cache is off unless the "krine.classCache" system property is set,
+ * to "true" for ~/.krine/classes or to the directory to use.  On the JVM
+ * it makes the first startup slower, writing the classes, and later ones
+ * only a little faster, see tests/benchmark-class-cache.k; it pays off
+ * with dex output, where it saves the conversion.  It is limited to 32
+ * megabytes, or "krine.classCacheSize", least recently used classes are
+ * deleted first.
+ *
+ * @see JavaClassGenerator#generateClass
+ * @see CacheDirectory
+ */
+final class GeneratedClassCache {
+    private static final int CACHE_VERSION = 1;
+    private static final CacheDirectory CACHE_DIR =
+            CacheDirectory.get("krine.classCache", "classes", false, 32, ".class", ".dex");
+
+    /**
+     * The classes whose code decides what gets generated.
+     */
+    private static final String[] GENERATOR_CLASSES = {
+            "/com/krine/lang/classgen/JavaClassGenerator.class",
+            "/com/krine/lang/classgen/DalvikClassGenerator.class",
+            "/com/krine/lang/classgen/DexConverter.class",
+            "/com/krine/lang/ast/ClassGenerator.class",
+            "/com/krine/lang/ast/MethodCompiler.class",
+    };
+    private static long generatorChecksum;
+
+    private GeneratedClassCache() {
+    }
+
+    static boolean isEnabled() {
+        return CACHE_DIR != null;
+    }
+
+    /**
+     * Start a key, which already covers the generator.
+     */
+    static DataOutputStream newKey(ByteArrayOutputStream key) throws IOException {
+        DataOutputStream out = new DataOutputStream(key);
+        out.writeInt(CACHE_VERSION);
+        out.writeLong(getGeneratorChecksum());
+        return out;
+    }
+
+    private static synchronized long getGeneratorChecksum() {
+        if (generatorChecksum == 0) {
+            CRC32 checksum = new CRC32();
+            byte[] buffer = new byte[8192];
+            for (String name : GENERATOR_CLASSES) {
+                checksum.update(name.getBytes());
+                // e.g. on Android there are no class files, only the version counts
+                try (InputStream in = GeneratedClassCache.class.getResourceAsStream(name)) {
+                    if (in == null)
+                        continue;
+                    int n;
+                    while ((n = in.read(buffer)) != -1)
+                        checksum.update(buffer, 0, n);
+                } catch (IOException e) {
+                    checksum.update(0);
+                }
+            }
+            generatorChecksum = checksum.getValue() | 1L << 32;
+        }
+        return generatorChecksum;
+    }
+
+    private static File getCacheFile(byte[] key, String suffix) {
+        // several keys may share the file name
+        CRC32 checksum = new CRC32();
+        checksum.update(key);
+        return CACHE_DIR.getFile(Long.toHexString(checksum.getValue())
+                + "-" + Integer.toHexString(key.length) + suffix);
+    }
+
+    /**
+     * @param suffix The file name suffix of the output format, e.g. ".class".
+     * @return The cached bytes, or null if there are none.
+     */
+    static byte[] read(byte[] key, String suffix) {
+        if (CACHE_DIR == null)
+            return null;
+        File file = getCacheFile(key, suffix);
+        if (!file.isFile())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != CACHE_VERSION || in.readInt() != key.length)
+                return null;
+            byte[] fileKey = new byte[key.length];
+            in.readFully(fileKey);
+            if (!Arrays.equals(fileKey, key))
+                return null;
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            CACHE_DIR.used(file);
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Generated class cache: can't read " + file + ": " + e);
+            return null;
+        }
+    }
+
+    static void write(final byte[] key, String suffix, final byte[] bytes) {
+        if (CACHE_DIR == null)
+            return;
+
+        File file = getCacheFile(key, suffix);
+        try {
+            CACHE_DIR.write(file, new CacheDirectory.Contents() {
+                public void write(DataOutputStream out) throws IOException {
+                    out.writeInt(CACHE_VERSION);
+                    out.writeInt(key.length);
+                    out.write(key);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Generated class cache: can't write " + file + ": " + e);
+        }
+    }
+}
@@ -9,6 +9,9 @@ import com.krine.lang.classpath.GeneratedClass;
 import com.krine.lang.utils.CallStack;
 import com.krine.lang.utils.Capabilities;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -41,28 +44,13 @@ class JavaClassGenerator implements IClassGenerator, Constants {
      * Translate krine.Modifiers into ASM modifier bitflags.
      */
     private static int getASMModifiers(Modifiers modifiers) {
-        int mods = 0;
         if (modifiers == null) {
-            return mods;
+            return 0;
         }
 
-        if (modifiers.hasModifier("public")) {
-            mods += ACC_PUBLIC;
-        }
-        if (modifiers.hasModifier("protected")) {
-            mods += ACC_PROTECTED;
-        }
-        if (modifiers.hasModifier("static")) {
-            mods += ACC_STATIC;
-        }
-        if (modifiers.hasModifier("synchronized")) {
-            mods += ACC_SYNCHRONIZED;
-        }
-        if (modifiers.hasModifier("abstract")) {
-            mods += ACC_ABSTRACT;
-        }
-
-        return mods;
+        // ASM access flags have the values of java.lang.reflect.Modifier
+        return modifiers.getFlags()
+                & (ACC_PUBLIC | ACC_PROTECTED | ACC_STATIC | ACC_SYNCHRONIZED | ACC_ABSTRACT);
     }
 
     /**
@@ -475,9 +463,48 @@ class JavaClassGenerator implements IClassGenerator, Constants {
         this.isInterface = isInterface;
     }
 
+    /**
+     * Generate the class, or take it from the GeneratedClassCache.  The
+     * class nameSpace is prepared either way.
+     */
     @Override
     public byte[] generateClass(Modifiers classModifiers, String className, String packageName, Class superClass, Class[] interfaces, Variable[] vars, KrineMethodDelayEvaluated[] dragonMethods, NameSpace classStaticNameSpace, boolean isInterface) {
         prepare(classModifiers, className, packageName, superClass, interfaces, vars, dragonMethods, classStaticNameSpace, isInterface);
+
+        byte[] key = GeneratedClassCache.isEnabled() ? getCacheKey() : null;
+        if (key != null) {
+            byte[] code = GeneratedClassCache.read(key, getOutputSuffix());
+            if (code != null) {
+                return code;
+            }
+        }
+
+        byte[] code = convert(fqClassName.replace('/', '.'), generateJavaClass());
+        if (key != null && code != null) {
+            GeneratedClassCache.write(key, getOutputSuffix(), code);
+        }
+        return code;
+    }
+
+    /**
+     * The file name suffix of the output format, which is also part of the
+     * cache key.
+     */
+    String getOutputSuffix() {
+        return ".class";
+    }
+
+    /**
+     * Convert the generated class to the output format.
+     *
+     * @param fullClassName The fully qualified name of the class.
+     * @return null if it can't be converted.
+     */
+    byte[] convert(String fullClassName, byte[] javaClass) {
+        return javaClass;
+    }
+
+    private byte[] generateJavaClass() {
         int classMods = getASMModifiers(classModifiers) | ACC_PUBLIC;
         if (isInterface) {
             classMods |= ACC_INTERFACE;
@@ -492,7 +519,8 @@ class JavaClassGenerator implements IClassGenerator, Constants {
         }
 
         String sourceFile = "Krine Generated via ASM (www.objectweb.org)";
-        ClassWriter cw = new ClassWriter(false);
+        // compute the maxs, compiled method bodies have no fudged ones
+        ClassWriter cw = new ClassWriter(true);
         cw.visit(classMods, fqClassName, superClassName, interfaceNames, sourceFile);
 
         if (!isInterface) {
@@ -507,9 +535,9 @@ class JavaClassGenerator implements IClassGenerator, Constants {
         for (Variable var : vars) {
             String type = var.getTypeDescriptor();
 
-            // Don't generate private or loosely typed fields
+            // Don't generate loosely typed fields
             // Note: loose types aren't currently parsed anyway...
-            if (var.hasModifier("private") || type == null) {
+            if (type == null) {
                 continue;
             }
 
@@ -517,7 +545,12 @@ class JavaClassGenerator implements IClassGenerator, Constants {
             if (isInterface) {
                 modifiers = ACC_PUBLIC | ACC_STATIC | ACC_FINAL;
             } else {
+                // private fields are real fields as well, the class
+                // nameSpaces access them reflectively
                 modifiers = getASMModifiers(var.getModifiers());
+                if (var.hasModifier("private")) {
+                    modifiers |= ACC_PRIVATE;
+                }
             }
 
             generateField(var.getName(), type, modifiers, cw);
@@ -555,7 +588,10 @@ class JavaClassGenerator implements IClassGenerator, Constants {
                 modifiers |= (ACC_PUBLIC | ACC_ABSTRACT);
             }
 
-            generateMethod(className, fqClassName, method.getName(), returnType, method.getParamTypeDescriptors(), modifiers, cw);
+            // Simple bodies are compiled into the class, the others delegate
+            if (isInterface || !ClassGenerator.generateCompiledMethod(cw, fqClassName, method, modifiers, vars)) {
+                generateMethod(className, fqClassName, method.getName(), returnType, method.getParamTypeDescriptors(), modifiers, cw);
+            }
 
             boolean isStatic = (modifiers & ACC_STATIC) > 0;
             boolean overridden = classContainsMethod(superClass, method.getName(), method.getParamTypeDescriptors());
@@ -567,6 +603,82 @@ class JavaClassGenerator implements IClassGenerator, Constants {
         return cw.toByteArray();
     }
 
+    /**
+     * Write everything the generated class depends on as a key, as resolved
+     * by prepare().
+     *
+     * @return The key, or null if the class can't be cached.
+     */
+    private byte[] getCacheKey() {
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = GeneratedClassCache.newKey(key);
+            out.writeUTF(getOutputSuffix());
+            out.writeUTF(fqClassName);
+            out.writeInt(getFlags(classModifiers));
+            out.writeBoolean(isInterface);
+
+            // the constructor switch has a branch for each super constructor
+            out.writeUTF(superClassName);
+            out.writeInt(superConstructors.length);
+            for (Constructor constructor : superConstructors) {
+                writeDescriptors(getTypeDescriptors(constructor.getParameterTypes()), out);
+            }
+            out.writeInt(interfaces.length);
+            for (Class anInt : interfaces) {
+                out.writeUTF(Type.getInternalName(anInt));
+            }
+
+            out.writeInt(vars.length);
+            for (Variable var : vars) {
+                out.writeUTF(var.getName());
+                writeDescriptor(var.getTypeDescriptor(), out);
+                out.writeInt(getFlags(var.getModifiers()));
+            }
+
+            out.writeInt(constructors.length);
+            for (KrineMethodDelayEvaluated constructor : constructors) {
+                writeMethod(constructor, out);
+            }
+            out.writeInt(methods.length);
+            for (KrineMethodDelayEvaluated method : methods) {
+                writeMethod(method, out);
+                // whether there is a super delegate
+                if (!method.hasModifier("private")) {
+                    out.writeBoolean(classContainsMethod(superClass, method.getName(), method.getParamTypeDescriptors()));
+                }
+            }
+        } catch (IOException e) {
+            // e.g. a string too long to write
+            return null;
+        }
+        return key.toByteArray();
+    }
+
+    private static void writeMethod(KrineMethodDelayEvaluated method, DataOutputStream out) throws IOException {
+        out.writeUTF(method.getName());
+        writeDescriptor(method.getReturnTypeDescriptor(), out);
+        writeDescriptors(method.getParamTypeDescriptors(), out);
+        out.writeInt(getFlags(method.getModifiers()));
+        ClassGenerator.writeMethodBodyKey(method, out);
+    }
+
+    private static void writeDescriptors(String[] descriptors, DataOutputStream out) throws IOException {
+        out.writeInt(descriptors.length);
+        for (String descriptor : descriptors) {
+            writeDescriptor(descriptor, out);
+        }
+    }
+
+    private static void writeDescriptor(String descriptor, DataOutputStream out) throws IOException {
+        // loose types have none
+        out.writeUTF(descriptor == null ? "" : descriptor);
+    }
+
+    private static int getFlags(Modifiers modifiers) {
+        return modifiers == null ? 0 : modifiers.getFlags();
+    }
+
     /**
      * Generate a constructor.
      */
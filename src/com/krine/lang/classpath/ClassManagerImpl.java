@@ -136,6 +136,11 @@ public class ClassManagerImpl extends KrineClassManager {
      */
     private Map loaderMap;
 
+    /**
+     * The classes of the JDK and user class path packages.
+     */
+    private final PackageIndex packageIndex = PackageIndex.getSystemIndex();
+
     /**
      * Used by KrineClassManager singleton constructor
      */
@@ -172,6 +177,10 @@ public class ClassManagerImpl extends KrineClassManager {
             }
             // Should be there since it was explicitly mapped
             // throw an error if c == null)?
+        } else if (isIndexedNonClass(name)) {
+            if (KrineBasicInterpreter.DEBUG) KrineBasicInterpreter.debug("package index miss: " + name);
+            cacheClassInfo(name, null);
+            return null;
         }
 
         // insure that lang classes are loaded from the same loader
@@ -243,6 +252,54 @@ public class ClassManagerImpl extends KrineClassManager {
         return c;
     }
 
+    /**
+     * Tell from the package index that no class loader we would ask has
+     * the class.  Where it is not certain that the index covers all of
+     * them, or the index is not ready yet, this is false.
+     */
+    private boolean isIndexedNonClass(String name) {
+        int i = name.lastIndexOf('.');
+        if (i == -1)
+            return false;
+        String pack = name.substring(0, i);
+        String className = name.substring(i + 1);
+
+        Set<String> classes = packageIndex.getJdkClasses(pack);
+        if (classes != null) {
+            if (classes.contains(className))
+                return false;
+            // a class path component with the package may still have it,
+            // e.g. for a loader which does not delegate to the boot layer
+            return isIndexedClassPath() && packageIndex.getClassPathClasses(pack) == null;
+        }
+
+        if (!isIndexedClassPath())
+            return false;
+        classes = packageIndex.getClassPathClasses(pack);
+        return classes != null && !classes.contains(className);
+    }
+
+    /**
+     * The user class path only covers everything when all the loaders we
+     * would ask see nothing else.
+     */
+    private boolean isIndexedClassPath() {
+        if (externalClassLoader != null)
+            return false;
+        if (baseLoader != null && baseClassPath.getPathComponents().length > 0)
+            return false;
+
+        ClassLoader systemLoader = ClassLoader.getSystemClassLoader();
+        if (ClassManagerImpl.class.getClassLoader() != systemLoader)
+            return false;
+        try {
+            ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+            return contextLoader == null || contextLoader == systemLoader;
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
     /**
      * Get a resource URL using the Krine classpath
      *
@@ -0,0 +1,298 @@
+package com.krine.lang.classpath;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.utils.CacheDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lists the classes of class path components: directories, jars and the
+ * JDK module image (jrt:/).
+ * <p>
+ * Jars are read through their central directory rather than streamed, the
+ * module image through the jrt file system, and the components of a path
+ * are mapped in parallel on a small pool of daemon threads shared by all
+ * mappings, bounded by the number of processors.  The class lists of jars
+ * and of the module image are kept in an on-disk index, keyed by the path
+ * and its modification time and size, so that they need not be read again
+ * on later startups.  Directories are cheap to list and change too often
+ * to be worth it.
+ * <p>
+ * The index directory is set by the "krine.classPathIndex" system
+ * property and defaults to ~/.krine/classpath.  Set it to "false" to turn
+ * the index off.  It is limited to 16 megabytes, or
+ * "krine.classPathIndexSize", and entries of jars or JDKs which are not
+ * used any more are deleted after a while.
+ *
+ * @see KrineClassPath#map(URL[])
+ * @see PackageIndex
+ * @see CacheDirectory
+ */
+final class ClassPathMapper {
+    /**
+     * The URL of the JDK module image.
+     */
+    static final String JRT = "jrt:/";
+
+    private static final int INDEX_VERSION = 1;
+    private static final CacheDirectory INDEX_DIR =
+            CacheDirectory.get("krine.classPathIndex", "classpath", true, 16, ".idx");
+
+    private static ThreadPoolExecutor mapperPool;
+
+    private ClassPathMapper() {
+    }
+
+    private static synchronized ThreadPoolExecutor getMapperPool() {
+        if (mapperPool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            mapperPool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(4 * threads),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "Krine class path mapper");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            mapperPool.allowCoreThreadTimeOut(true);
+        }
+        return mapperPool;
+    }
+
+    /**
+     * @return The jrt:/ URL, or null if this VM has no module image.
+     */
+    static URL getModuleImageURL() {
+        if (getModuleImage() == null)
+            return null;
+        try {
+            return new URL(JRT);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    private static FileSystem getModuleImage() {
+        try {
+            return FileSystems.getFileSystem(URI.create(JRT));
+        } catch (RuntimeException e) {
+            // ProviderNotFoundException or FileSystemNotFoundException
+            return null;
+        }
+    }
+
+    /**
+     * Map the components in parallel.
+     *
+     * @return The class names of each component, in the order of the
+     * components.  Components which can't be mapped throw their exception
+     * from the corresponding future.
+     */
+    static List<Future<String[]>> mapAll(URL[] urls) {
+        List<Future<String[]>> results = new ArrayList<>(urls.length);
+        if (urls.length <= 1) {
+            for (URL url : urls)
+                results.add(mapNow(url));
+            return results;
+        }
+
+        // the caller maps itself when the queue is full
+        ThreadPoolExecutor pool = getMapperPool();
+        for (final URL url : urls)
+            results.add(pool.submit(new Callable<String[]>() {
+                public String[] call() throws IOException {
+                    return map(url);
+                }
+            }));
+        return results;
+    }
+
+    private static Future<String[]> mapNow(final URL url) {
+        FutureTask<String[]> task =
+                new FutureTask<>(new Callable<String[]>() {
+                    public String[] call() throws IOException {
+                        return map(url);
+                    }
+                });
+        task.run();
+        return task;
+    }
+
+    /**
+     * Get the class names of the future, rethrowing what mapping threw.
+     */
+    static String[] get(Future<String[]> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause().toString());
+        }
+    }
+
+    /**
+     * List the classes of a single component.
+     *
+     * @return The fully qualified class names.
+     * @throws IOException if the component can't be read, or is not a
+     *                     class path component at all.
+     */
+    static String[] map(URL url) throws IOException {
+        if (JRT.equals(url.toExternalForm()))
+            return mapModuleImage();
+
+        String name = url.getFile();
+        File file = new File(name);
+        if (file.isDirectory())
+            return KrineClassPath.traverseDirForClasses(file);
+        if (KrineClassPath.isArchiveFileName(name) && file.isFile())
+            return mapArchive(file);
+        throw new IOException("Not a classpath component: " + name);
+    }
+
+    private static String[] mapArchive(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        String[] classes = readIndex(key, file.lastModified(), file.length());
+        if (classes != null)
+            return classes;
+
+        List<String> list = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String entry = entries.nextElement().getName();
+                if (KrineClassPath.isClassFileName(entry))
+                    list.add(KrineClassPath.canonicalizeClassName(entry));
+            }
+        }
+        classes = list.toArray(new String[list.size()]);
+        writeIndex(key, file.lastModified(), file.length(), classes);
+        return classes;
+    }
+
+    private static String[] mapModuleImage() throws IOException {
+        FileSystem jrt = getModuleImage();
+        if (jrt == null)
+            throw new IOException("No module image");
+
+        // the image changes with the JDK
+        String home = System.getProperty("java.home");
+        File image = new File(home, "lib" + File.separator + "modules");
+        String key = JRT + home;
+        String[] classes = readIndex(key, image.lastModified(), image.length());
+        if (classes != null)
+            return classes;
+
+        final List<String> list = new ArrayList<>();
+        try (DirectoryStream<Path> modules = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+            for (final Path module : modules) {
+                Files.walkFileTree(module, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        String name = module.relativize(file).toString();
+                        if (KrineClassPath.isClassFileName(name))
+                            list.add(KrineClassPath.canonicalizeClassName(name));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        }
+        classes = list.toArray(new String[list.size()]);
+        writeIndex(key, image.lastModified(), image.length(), classes);
+        return classes;
+    }
+
+    // On-disk index
+
+    private static File getIndexFile(String key) {
+        return INDEX_DIR.getFile(Integer.toHexString(key.hashCode()) + ".idx");
+    }
+
+    /**
+     * @return The indexed class names, or null if the index has none or
+     * they are stale.
+     */
+    private static String[] readIndex(String key, long lastModified, long length) {
+        if (INDEX_DIR == null || lastModified == 0)
+            return null;
+        File file = getIndexFile(key);
+        if (!file.isFile())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            // several keys may share the file name
+            if (in.readInt() != INDEX_VERSION || !in.readUTF().equals(key)
+                    || in.readLong() != lastModified || in.readLong() != length)
+                return null;
+            String[] classes = new String[in.readInt()];
+            for (int i = 0; i < classes.length; i++)
+                classes[i] = in.readUTF();
+            INDEX_DIR.used(file);
+            return classes;
+        } catch (IOException | RuntimeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Class path index: can't read " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static void writeIndex(final String key, final long lastModified,
+                                   final long length, final String[] classes) {
+        if (INDEX_DIR == null || lastModified == 0)
+            return;
+
+        File file = getIndexFile(key);
+        try {
+            INDEX_DIR.write(file, new CacheDirectory.Contents() {
+                public void write(DataOutputStream out) throws IOException {
+                    out.writeInt(INDEX_VERSION);
+                    out.writeUTF(key);
+                    out.writeLong(lastModified);
+                    out.writeLong(length);
+                    out.writeInt(classes.length);
+                    for (String name : classes)
+                        out.writeUTF(name);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Class path index: can't write " + file + ": " + e);
+        }
+    }
+}
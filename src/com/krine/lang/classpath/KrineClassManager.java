@@ -4,16 +4,23 @@ import com.krine.kar.KarFile;
 import com.krine.lang.InterpreterException;
 import com.krine.lang.KrineBasicInterpreter;
 import com.krine.lang.UtilEvalException;
+import com.krine.lang.ast.InterfaceAdapter;
 import com.krine.lang.ast.Name;
+import com.krine.lang.reflect.AccessorCache;
+import com.krine.lang.reflect.Invoker;
 import com.krine.lang.utils.Capabilities;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * KrineClassManager manages all classloading in Krine.
@@ -49,7 +56,6 @@ import java.util.*;
 	<p>
 */
 public class KrineClassManager {
-    private static final Map<KrineClassManager, Object> classManagers = Collections.synchronizedMap(new WeakHashMap<KrineClassManager, Object>());
     /**
      * An external classloader supplied by the setClassLoader() command.
      */
@@ -60,35 +66,66 @@ public class KrineClassManager {
      * Note: these should probably be re-implemented with Soft references.
      * (as opposed to strong or Weak)
      */
-    protected transient Map<String, Class> absoluteClassCache = new Hashtable<>();
+    protected transient volatile Map<String, Class> absoluteClassCache = new ConcurrentHashMap<>();
     /**
      * Global cache for things we know are *not* classes.
      * Note: these should probably be re-implemented with Soft references.
      * (as opposed to strong or Weak)
      */
-    protected transient Set<String> absoluteNonClasses = Collections.synchronizedSet(new HashSet<String>());
+    protected transient volatile Set<String> absoluteNonClasses = newConcurrentSet();
 
     /**
-     * Caches for resolved object and static methods.
-     * We keep these maps separate to support fast lookup in the general case
-     * where the method may be either.
+     * Cache for resolved object and static methods, one table per class.
+     * Tables of an earlier resolve generation are stale and get replaced
+     * on the next cacheResolvedMethod().
      */
-    protected transient volatile Map<SignatureKey, Method> resolvedObjectMethods = new Hashtable<>();
-    protected transient volatile Map<SignatureKey, Method> resolvedStaticMethods = new Hashtable<>();
-    protected transient Map<String, String> definingClassesBaseNames = new Hashtable<>();
+    protected transient volatile Map<Class, ResolvedMethods> resolvedMethods = new ConcurrentHashMap<>();
+    /**
+     * Invokers of the resolved methods and constructors.
+     */
+    protected transient volatile Map<Member, Invoker> invokers = new ConcurrentHashMap<>();
+    /**
+     * Resolved fields and property accessors, one cache per class.  Caches
+     * of an earlier resolve generation are stale and get replaced.
+     */
+    protected transient volatile Map<Class, AccessorCache> accessorCaches = new ConcurrentHashMap<>();
+    /**
+     * Generated interface adapters by their list of interfaces, and the
+     * lists which can only be implemented by a dynamic proxy.
+     */
+    protected transient volatile Map<List<Class>, InterfaceAdapter.Type> interfaceAdapters = new ConcurrentHashMap<>();
+    protected transient volatile Set<List<Class>> nonAdaptableInterfaces = newConcurrentSet();
+    protected transient Map<String, String> definingClassesBaseNames = new ConcurrentHashMap<>();
+    /**
+     * Bumped whenever resolved methods are dropped, so that method caches
+     * kept elsewhere (e.g. inline caches of call sites) can tell theirs are
+     * stale.
+     */
+    private static final AtomicInteger resolveGeneration = new AtomicInteger();
     /**
      * The krineBasicInterpreter which created the class manager
      * This is used to load scripted classes from source files.
      */
     private KrineBasicInterpreter declaringKrineBasicInterpreter;
-    private transient Set<String> definingClasses = Collections.synchronizedSet(new HashSet<String>());
+    private transient Set<String> definingClasses = newConcurrentSet();
 
+    /**
+     * Drop the resolved methods of all class managers.  Their tables are
+     * left in place and replaced as they are next written to.
+     */
     public static void clearResolveCache() {
-        KrineClassManager[] managers = classManagers.keySet().toArray(new KrineClassManager[0]);
-        for (KrineClassManager m : managers) {
-            m.resolvedObjectMethods = new Hashtable<>();
-            m.resolvedStaticMethods = new Hashtable<>();
-        }
+        resolveGeneration.incrementAndGet();
+    }
+
+    private static <T> Set<T> newConcurrentSet() {
+        return Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+    }
+
+    /**
+     * @return A number which changes whenever resolved methods are dropped.
+     */
+    public static int getResolveGeneration() {
+        return resolveGeneration.get();
     }
 
     /**
@@ -117,7 +154,6 @@ public class KrineClassManager {
         if (krineBasicInterpreter == null)
             krineBasicInterpreter = new KrineBasicInterpreter();
         manager.declaringKrineBasicInterpreter = krineBasicInterpreter;
-        classManagers.put(manager, null);
         return manager;
     }
 
@@ -226,6 +262,69 @@ public class KrineClassManager {
             absoluteNonClasses.add(name);
     }
 
+    /**
+     * Get the cached invoker of a resolved method, creating it on first use.
+     */
+    public Invoker getInvoker(Method method) {
+        Map<Member, Invoker> invokers = this.invokers;
+        Invoker invoker = invokers.get(method);
+        if (invoker == null) {
+            invoker = Invoker.of(method);
+            invokers.put(method, invoker);
+        }
+        return invoker;
+    }
+
+    /**
+     * Get the cached invoker of a resolved constructor, creating it on first
+     * use.
+     */
+    public Invoker getInvoker(Constructor constructor) {
+        Map<Member, Invoker> invokers = this.invokers;
+        Invoker invoker = invokers.get(constructor);
+        if (invoker == null) {
+            invoker = Invoker.of(constructor);
+            invokers.put(constructor, invoker);
+        }
+        return invoker;
+    }
+
+    /**
+     * Get the cache of the fields and property accessors resolved on the
+     * class, creating it on first use.
+     */
+    public AccessorCache getAccessorCache(Class clazz) {
+        int generation = resolveGeneration.get();
+        Map<Class, AccessorCache> accessorCaches = this.accessorCaches;
+        AccessorCache cache = accessorCaches.get(clazz);
+        if (cache == null || cache.generation != generation) {
+            cache = new AccessorCache(generation);
+            accessorCaches.put(clazz, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Get the adapter type implementing the interfaces for scripted objects,
+     * generating it on first use.
+     *
+     * @return The type, or null if a dynamic proxy has to be used.
+     * @see com.krine.lang.ast.This#getInterface(Class[])
+     */
+    public InterfaceAdapter.Type getInterfaceAdapter(List<Class> interfaces) {
+        Map<List<Class>, InterfaceAdapter.Type> interfaceAdapters = this.interfaceAdapters;
+        Set<List<Class>> nonAdaptableInterfaces = this.nonAdaptableInterfaces;
+        InterfaceAdapter.Type type = interfaceAdapters.get(interfaces);
+        if (type == null && !nonAdaptableInterfaces.contains(interfaces)) {
+            type = InterfaceAdapter.Type.create(interfaces.toArray(new Class[interfaces.size()]));
+            if (type != null)
+                interfaceAdapters.put(interfaces, type);
+            else
+                nonAdaptableInterfaces.add(interfaces);
+        }
+        return type;
+    }
+
     /**
      * Cache a resolved (possibly overloaded) method based on the
      * argument types used to invoke it, subject to classloader change.
@@ -238,11 +337,19 @@ public class KrineClassManager {
             KrineBasicInterpreter.debug(
                     "cacheResolvedMethod putting: " + clazz + " " + method);
 
+        int generation = resolveGeneration.get();
+        Map<Class, ResolvedMethods> resolvedMethods = this.resolvedMethods;
+        ResolvedMethods table = resolvedMethods.get(clazz);
+        if (table == null || table.generation != generation) {
+            table = new ResolvedMethods(generation);
+            resolvedMethods.put(clazz, table);
+        }
+
         SignatureKey sk = new SignatureKey(clazz, method.getName(), types);
         if (Modifier.isStatic(method.getModifiers()))
-            resolvedStaticMethods.put(sk, method);
+            table.staticMethods.put(sk, method);
         else
-            resolvedObjectMethods.put(sk, method);
+            table.objectMethods.put(sk, method);
     }
 
     /**
@@ -253,13 +360,17 @@ public class KrineClassManager {
      */
     public Method getResolvedMethod(
             Class clazz, String methodName, Class[] types, boolean onlyStatic) {
-        SignatureKey sk = new SignatureKey(clazz, methodName, types);
-
-        // Try static and then object, if allowed
-        // Note that the Java compiler should not allow both.
-        Method method = resolvedStaticMethods.get(sk);
-        if (method == null && !onlyStatic)
-            method = resolvedObjectMethods.get(sk);
+        Method method = null;
+        ResolvedMethods table = resolvedMethods.get(clazz);
+        if (table != null && table.generation == resolveGeneration.get()) {
+            SignatureKey sk = new SignatureKey(clazz, methodName, types);
+
+            // Try static and then object, if allowed
+            // Note that the Java compiler should not allow both.
+            method = table.staticMethods.get(sk);
+            if (method == null && !onlyStatic)
+                method = table.objectMethods.get(sk);
+        }
 
         if (KrineBasicInterpreter.DEBUG) {
             if (method == null)
@@ -278,10 +389,14 @@ public class KrineClassManager {
      * @see public void #reset() for external usage
      */
     protected void clearCaches() {
-        absoluteNonClasses = Collections.synchronizedSet(new HashSet<String>());
-        absoluteClassCache = new Hashtable<>();
-        resolvedObjectMethods = new Hashtable<>();
-        resolvedStaticMethods = new Hashtable<>();
+        absoluteNonClasses = newConcurrentSet();
+        absoluteClassCache = new ConcurrentHashMap<>();
+        resolvedMethods = new ConcurrentHashMap<>();
+        invokers = new ConcurrentHashMap<>();
+        accessorCaches = new ConcurrentHashMap<>();
+        interfaceAdapters = new ConcurrentHashMap<>();
+        nonAdaptableInterfaces = newConcurrentSet();
+        resolveGeneration.incrementAndGet();
     }
 
     /**
@@ -491,6 +606,21 @@ public class KrineClassManager {
         void classLoaderChanged();
     }
 
+    /**
+     * The resolved methods of one class.
+     * We keep static and object methods separate to support fast lookup in
+     * the general case where the method may be either.
+     */
+    static final class ResolvedMethods {
+        final int generation;
+        final Map<SignatureKey, Method> objectMethods = new ConcurrentHashMap<>();
+        final Map<SignatureKey, Method> staticMethods = new ConcurrentHashMap<>();
+
+        ResolvedMethods(int generation) {
+            this.generation = generation;
+        }
+    }
+
     /**
      * SignatureKey serves as a hash of a method signature on a class
      * for fast lookup of overloaded and general resolved Java methods.
@@ -537,12 +667,14 @@ public class KrineClassManager {
             }
 
             SignatureKey target = (SignatureKey) o;
-            if (types == null)
-                return target.types == null;
             if (clazz != target.clazz)
                 return false;
             if (!methodName.equals(target.methodName))
                 return false;
+            if (types == null)
+                return target.types == null;
+            if (target.types == null)
+                return false;
             if (types.length != target.types.length)
                 return false;
             for (int i = 0; i < types.length; i++) {
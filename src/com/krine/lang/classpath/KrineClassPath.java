@@ -41,8 +41,7 @@ import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.Future;
 
 /**
  * A KrineClassPath encapsulates knowledge about a class path of URLs.
@@ -336,36 +335,38 @@ public class KrineClassPath
 
     /**
      * call map(url) for each url in the array
+     * The components are read in parallel and mapped in order.
      */
     synchronized void map(URL[] urls) {
-        for (URL url : urls)
+        List<Future<String[]>> results = ClassPathMapper.mapAll(urls);
+        for (int i = 0; i < urls.length; i++)
             try {
-                map(url);
+                map(urls[i], ClassPathMapper.get(results.get(i)));
             } catch (IOException e) {
-                String s = "Error constructing classpath: " + url + ": " + e;
+                String s = "Error constructing classpath: " + urls[i] + ": " + e;
                 errorWhileMapping(s);
             }
     }
 
     synchronized void map(URL url)
             throws IOException {
-        String name = url.getFile();
-        File f = new File(name);
+        map(url, ClassPathMapper.map(url));
+    }
+
+    private void map(URL url, String[] classes) {
+        if (ClassPathMapper.JRT.equals(url.toExternalForm())) {
+            classMapping("Module image: " + url);
+            map(classes, new JrtClassSource(url));
+            return;
+        }
 
+        File f = new File(url.getFile());
         if (f.isDirectory()) {
             classMapping("Directory " + f.toString());
-            map(traverseDirForClasses(f), new DirClassSource(f));
-        } else if (isArchiveFileName(name)) {
+            map(classes, new DirClassSource(f));
+        } else {
             classMapping("Archive: " + url);
-            map(searchJarForClasses(url), new JarClassSource(url));
-        }
-        /*
-        else if ( isClassFileName( name ) )
-			map( looseClass( name ), url );
-		*/
-        else {
-            String s = "Not a classpath component: " + name;
-            errorWhileMapping(s);
+            map(classes, new JarClassSource(url));
         }
     }
 
@@ -474,21 +475,7 @@ public class KrineClassPath
      */
     static String[] searchJarForClasses(URL jar)
             throws IOException {
-        Vector v = new Vector();
-        InputStream in = jar.openStream();
-        ZipInputStream zin = new ZipInputStream(in);
-
-        ZipEntry ze;
-        while ((ze = zin.getNextEntry()) != null) {
-            String name = ze.getName();
-            if (isClassFileName(name))
-                v.addElement(canonicalizeClassName(name));
-        }
-        zin.close();
-
-        String[] sa = new String[v.size()];
-        v.copyInto(sa);
-        return sa;
+        return ClassPathMapper.map(jar);
     }
 
     public static boolean isClassFileName(String name) {
@@ -634,20 +621,25 @@ public class KrineClassPath
     static KrineClassPath bootClassPath;
 
     /**
-     * Get the boot path including the lib/rt.jar if possible.
+     * Get the boot path: the module image (jrt:/) of a Java 9+ VM, or the
+     * lib/rt.jar if possible.
      */
     public static KrineClassPath getBootClassPath()
             throws ClassPathException {
         if (bootClassPath == null) {
-            try {
-                //String rtjar = System.getProperty("java.home")+"/lib/rt.jar";
+            URL url = ClassPathMapper.getModuleImageURL();
+            if (url == null) {
                 String rtjar = getRTJarPath();
-                URL url = new File(rtjar).toURI().toURL();
-                bootClassPath = new KrineClassPath(
-                        "Boot Class Path", new URL[]{url});
-            } catch (MalformedURLException e) {
-                throw new ClassPathException(" can't find boot jar: " + e);
+                if (rtjar == null)
+                    throw new ClassPathException("can't find boot jar");
+                try {
+                    url = new File(rtjar).toURI().toURL();
+                } catch (MalformedURLException e) {
+                    throw new ClassPathException(" can't find boot jar: " + e);
+                }
             }
+            bootClassPath = new KrineClassPath(
+                    "Boot Class Path", new URL[]{url});
         }
         return bootClassPath;
     }
@@ -696,6 +688,23 @@ public class KrineClassPath
         }
     }
 
+    /**
+     * Classes of the JDK module image.  These are never reloaded.
+     */
+    public static class JrtClassSource extends ClassSource {
+        JrtClassSource(URL url) {
+            source = url;
+        }
+
+        public byte[] getCode(String className) {
+            throw new Error("Unimplemented");
+        }
+
+        public String toString() {
+            return "Module image: " + source;
+        }
+    }
+
     public static class DirClassSource extends ClassSource {
         DirClassSource(File dir) {
             source = dir;
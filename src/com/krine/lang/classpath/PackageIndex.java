@@ -0,0 +1,166 @@
+package com.krine.lang.classpath;
+
+import com.krine.lang.KrineBasicInterpreter;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * The classes in the packages of the JDK and of the user class path
+ * (java.class.path), by package name.  This lets the class manager tell
+ * that e.g. java.util.Foo is not a class without asking the class loaders,
+ * each of which would throw a ClassNotFoundException.
+ * <p>
+ * The JDK is read from the module image through the jrt:/ file system,
+ * keeping only the packages of the modules in the boot layer: the image
+ * also has the modules which were not resolved, e.g. left out with
+ * --limit-modules, and their packages may come from the class path.
+ * Without modules, i.e. on Java 8, there are no JDK packages, the boot
+ * class path may have been extended and the packages of its jars are not
+ * closed to the class path.
+ * <p>
+ * Mapping all of this can take a while, so it is done once per VM on a
+ * background thread and the index answers nothing until it is complete.
+ * Later startups mostly read the on-disk index of the ClassPathMapper.
+ *
+ * @see ClassManagerImpl#classForName(String)
+ */
+final class PackageIndex {
+    private static PackageIndex systemIndex;
+
+    private volatile Map<String, Set<String>> jdkPackages;
+    private volatile Map<String, Set<String>> classPathPackages;
+
+    private PackageIndex() {
+    }
+
+    /**
+     * The index of the running VM, which starts mapping on first use.
+     */
+    static synchronized PackageIndex getSystemIndex() {
+        if (systemIndex == null) {
+            systemIndex = new PackageIndex();
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    systemIndex.build();
+                }
+            }, "Krine package index");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+        return systemIndex;
+    }
+
+    /**
+     * @return The simple names of the classes in the package of a boot
+     * layer JDK module, or null if it is not such a package or the index is
+     * not ready yet.  The class path index is ready when this is.
+     */
+    Set<String> getJdkClasses(String pack) {
+        Map<String, Set<String>> packages = jdkPackages;
+        return packages == null ? null : packages.get(pack);
+    }
+
+    /**
+     * @return The simple names of the classes in the package on the user
+     * class path, or null if there is no such package or the index is not
+     * ready yet.
+     */
+    Set<String> getClassPathClasses(String pack) {
+        Map<String, Set<String>> packages = classPathPackages;
+        return packages == null ? null : packages.get(pack);
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Set<String>> jdk = new HashMap<>();
+            Set<String> bootLayerPackages = getBootLayerPackages();
+            URL image = ClassPathMapper.getModuleImageURL();
+            if (image != null && bootLayerPackages != null) {
+                mapPath(new URL[]{image}, jdk);
+                jdk.keySet().retainAll(bootLayerPackages);
+            }
+
+            Map<String, Set<String>> classPath = new HashMap<>();
+            mapPath(KrineClassPath.getUserClassPathComponents(), classPath);
+
+            // set the class path first, it is only consulted for packages
+            // which are not in the JDK
+            classPathPackages = classPath;
+            jdkPackages = jdk;
+        } catch (Exception | LinkageError e) {
+            // the index just stays unavailable
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Package index unavailable: " + e);
+            return;
+        }
+
+        if (KrineBasicInterpreter.DEBUG)
+            KrineBasicInterpreter.debug("Package index built in "
+                    + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * The packages of the modules of ModuleLayer.boot(), looked up
+     * reflectively as this also runs on Java 8.
+     *
+     * @return The package names, or null if there are no modules.
+     */
+    private static Set<String> getBootLayerPackages() {
+        try {
+            Class<?> layerClass = Class.forName("java.lang.ModuleLayer");
+            Object bootLayer = layerClass.getMethod("boot").invoke(null);
+            Set<?> modules = (Set<?>) layerClass.getMethod("modules").invoke(bootLayer);
+            Method getPackages = Class.forName("java.lang.Module").getMethod("getPackages");
+
+            Set<String> packages = new HashSet<>();
+            for (Object module : modules)
+                for (Object pack : (Set<?>) getPackages.invoke(module))
+                    packages.add((String) pack);
+            return packages;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (KrineBasicInterpreter.DEBUG)
+                KrineBasicInterpreter.debug("Package index: no boot layer: " + e);
+            return null;
+        }
+    }
+
+    private static void mapPath(URL[] urls, Map<String, Set<String>> packages) {
+        List<Future<String[]>> results = ClassPathMapper.mapAll(urls);
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                for (String className : ClassPathMapper.get(results.get(i)))
+                    mapClass(className, packages);
+            } catch (IOException e) {
+                if (KrineBasicInterpreter.DEBUG)
+                    KrineBasicInterpreter.debug("Package index: skipping " + urls[i] + ": " + e);
+            }
+        }
+    }
+
+    private static void mapClass(String className, Map<String, Set<String>> packages) {
+        int i = className.lastIndexOf('.');
+        // no index for the unnamed package
+        if (i == -1 || className.startsWith("META-INF."))
+            return;
+
+        String pack = className.substring(0, i);
+        Set<String> classes = packages.get(pack);
+        if (classes == null) {
+            classes = new HashSet<>();
+            packages.put(pack, classes);
+        }
+        classes.add(className.substring(i + 1));
+    }
+}
@@ -0,0 +1,88 @@
+package com.krine.lang.reflect;
+
+import com.krine.lang.ast.Primitive;
+import com.krine.lang.classpath.KrineClassManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fields and bean property accessors resolved on one class, by name.
+ * <p>
+ * Names which resolved to nothing are cached too, as NONE, so that repeated
+ * misses (e.g. a property read falling back from field access) don't search
+ * the class again.  The caches are kept by the class manager along with its
+ * resolved methods, and dropped with them, e.g. on class reload or
+ * accessibility change.
+ *
+ * @see KrineClassManager#getAccessorCache(Class)
+ */
+public final class AccessorCache {
+    /**
+     * Marks a name known to resolve to nothing.
+     */
+    static final Object NONE = new Object();
+
+    /**
+     * The resolve generation the cache is good for
+     */
+    public final int generation;
+
+    /**
+     * Field or NONE
+     */
+    final Map<String, Object> fields = new ConcurrentHashMap<>();
+    /**
+     * Getter or NONE, by property name
+     */
+    final Map<String, Object> getters = new ConcurrentHashMap<>();
+    /**
+     * Whether a public getter of the property exists, by property name
+     */
+    final Map<String, Boolean> publicGetters = new ConcurrentHashMap<>();
+    /**
+     * Whether a setter of the property exists, by property name
+     */
+    final Map<String, Boolean> setters = new ConcurrentHashMap<>();
+
+    public AccessorCache(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * @param dcm may be null, the class is searched every time then
+     */
+    static AccessorCache forClass(KrineClassManager dcm, Class clazz) {
+        if (dcm == null)
+            return new AccessorCache(KrineClassManager.getResolveGeneration());
+        return dcm.getAccessorCache(clazz);
+    }
+
+    /**
+     * A resolved property getter, called through its invoker.
+     */
+    static final class Getter {
+        private static final Object[] NO_ARGS = new Object[0];
+
+        final Method method;
+        private final Invoker invoker;
+
+        Getter(Method method) {
+            this.method = method;
+            this.invoker = Invoker.of(method);
+        }
+
+        /**
+         * @return The property value, wrapped as by Reflect.invokeMethod().
+         */
+        Object get(Object object)
+                throws IllegalAccessException, InstantiationException, InvocationTargetException {
+            Object value = invoker.invoke(object, NO_ARGS);
+            if (value == null)
+                value = Primitive.NULL;
+            return Primitive.wrap(value, method.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.krine.lang.reflect;
+
+import com.krine.lang.ast.Primitive;
+import com.krine.lang.classpath.KrineClassManager;
+
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A polymorphic inline cache of a method call or allocation site.
+ * <p>
+ * Remembers the Java methods (or constructors) resolved at one site for up to
+ * MAX_ENTRIES combinations of target class and argument types, so that a
+ * call site which keeps seeing the same types skips method resolution.
+ * Sites seeing more combinations fall back to the class manager caches.
+ * Entries are dropped when the class manager caches are cleared, e.g.
+ * when the class loader changes.
+ *
+ * @see KrineClassManager#getResolveGeneration()
+ */
+public final class InlineCache<M extends Member> {
+    static final int MAX_ENTRIES = 4;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    // copied on write
+    @SuppressWarnings("unchecked")
+    private volatile Entry<M>[] entries = EMPTY;
+
+    /**
+     * @return The member cached for the target class and the argument
+     * types of args, or null if there is none.
+     */
+    public M lookup(Class clazz, Object[] args, boolean staticOnly) {
+        int generation = KrineClassManager.getResolveGeneration();
+        for (Entry<M> entry : entries) {
+            if (entry.clazz == clazz && entry.staticOnly == staticOnly
+                    && entry.generation == generation && entry.matches(args))
+                return entry.member;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void add(Class clazz, Object[] args, boolean staticOnly, M member) {
+        int generation = KrineClassManager.getResolveGeneration();
+
+        // drop the entries of earlier class loaders
+        List<Entry<M>> live = new ArrayList<>(MAX_ENTRIES);
+        for (Entry<M> entry : entries) {
+            if (entry.generation == generation)
+                live.add(entry);
+        }
+        // megamorphic, keep what we have
+        if (live.size() >= MAX_ENTRIES)
+            return;
+
+        live.add(new Entry<>(clazz, getTypes(args), staticOnly, member, generation));
+        entries = live.toArray(new Entry[live.size()]);
+    }
+
+    private static Class getType(Object arg) {
+        if (arg == null)
+            return null;
+        if (arg instanceof Primitive)
+            return ((Primitive) arg).getType();
+        return arg.getClass();
+    }
+
+    private static Class[] getTypes(Object[] args) {
+        int length = args == null ? 0 : args.length;
+        Class[] types = new Class[length];
+        for (int i = 0; i < length; i++)
+            types[i] = getType(args[i]);
+        return types;
+    }
+
+    private static final class Entry<M> {
+        final Class clazz;
+        final Class[] types;
+        final boolean staticOnly;
+        final M member;
+        final int generation;
+
+        Entry(Class clazz, Class[] types, boolean staticOnly, M member, int generation) {
+            this.clazz = clazz;
+            this.types = types;
+            this.staticOnly = staticOnly;
+            this.member = member;
+            this.generation = generation;
+        }
+
+        boolean matches(Object[] args) {
+            int length = args == null ? 0 : args.length;
+            if (length != types.length)
+                return false;
+            for (int i = 0; i < length; i++) {
+                if (getType(args[i]) != types[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
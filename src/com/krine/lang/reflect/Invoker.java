@@ -0,0 +1,85 @@
+package com.krine.lang.reflect;
+
+import com.krine.lang.KrineBasicInterpreter;
+import com.krine.lang.utils.Capabilities;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Calls a resolved Java method or constructor with arguments already
+ * converted to its parameter types.
+ * <p>
+ * Where java.lang.invoke is available the call goes through a MethodHandle
+ * adapted once to a spread (Object, Object[]) signature, otherwise through
+ * plain reflection.  Invokers are created and cached per class manager.
+ *
+ * @see com.krine.lang.classpath.KrineClassManager#getInvoker(Method)
+ */
+public abstract class Invoker {
+    private static final boolean HAVE_METHOD_HANDLES =
+            Capabilities.classExists("java.lang.invoke.MethodHandles")
+                    && !Capabilities.isAndroid();
+
+    /**
+     * @param target is ignored for static methods and constructors.
+     * @param args   are the unwrapped arguments, one per parameter.
+     * @return The return value (null for void methods) or the new instance.
+     * @throws InvocationTargetException if the invoked code threw.
+     */
+    public abstract Object invoke(Object target, Object[] args)
+            throws IllegalAccessException, InstantiationException, InvocationTargetException;
+
+    public static Invoker of(Method method) {
+        if (HAVE_METHOD_HANDLES) {
+            try {
+                return MethodHandleInvoker.create(method);
+            } catch (IllegalAccessException e) {
+                // not accessible to a lookup, e.g. a public method of a non-public class
+                KrineBasicInterpreter.debug("Invoker - using reflection: " + e);
+            }
+        }
+        return new MethodInvoker(method);
+    }
+
+    public static Invoker of(Constructor constructor) {
+        if (HAVE_METHOD_HANDLES) {
+            try {
+                return MethodHandleInvoker.create(constructor);
+            } catch (IllegalAccessException e) {
+                // e.g. abstract class, newInstance() reports it
+                KrineBasicInterpreter.debug("Invoker - using reflection: " + e);
+            }
+        }
+        return new ConstructorInvoker(constructor);
+    }
+
+    private static final class MethodInvoker extends Invoker {
+        private final Method method;
+
+        MethodInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args)
+                throws IllegalAccessException, InvocationTargetException {
+            return method.invoke(target, args);
+        }
+    }
+
+    private static final class ConstructorInvoker extends Invoker {
+        private final Constructor constructor;
+
+        ConstructorInvoker(Constructor constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args)
+                throws IllegalAccessException, InstantiationException, InvocationTargetException {
+            return constructor.newInstance(args);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.krine.lang.reflect;
+
+import com.krine.lang.ast.Primitive;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * An Invoker calling through a MethodHandle of type (Object, Object[])Object.
+ * <p>
+ * Kept apart from Invoker so that platforms without java.lang.invoke never
+ * load it.  Arguments are cast and unboxed by the handle, after they are
+ * checked against the conversions Method.invoke() allows, so that a wrong
+ * argument is reported as Method.invoke() does, as an
+ * IllegalArgumentException, rather than as thrown by the invoked code.
+ */
+final class MethodHandleInvoker extends Invoker {
+    private static final MethodType INVOKER_TYPE =
+            MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * Widening primitive conversions (JLS 5.1.2) go right in this order,
+     * but for char, which widens to int and right of it only.
+     */
+    private static final Class[] NUMERIC_TYPES = {
+            Byte.TYPE, Short.TYPE, Integer.TYPE, Long.TYPE, Float.TYPE, Double.TYPE};
+
+    private final MethodHandle handle;
+    /**
+     * The class of the target, or null for static methods and constructors
+     */
+    private final Class targetType;
+    private final Class[] parameterTypes;
+    /**
+     * The parameter types with primitives boxed, which arguments are
+     * usually instances of
+     */
+    private final Class[] argumentTypes;
+
+    private MethodHandleInvoker(MethodHandle handle, Class targetType, Class[] parameterTypes) {
+        this.handle = handle;
+        this.targetType = targetType;
+        this.parameterTypes = parameterTypes;
+        this.argumentTypes = new Class[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++)
+            argumentTypes[i] = parameterTypes[i].isPrimitive()
+                    ? Primitive.boxType(parameterTypes[i]) : parameterTypes[i];
+    }
+
+    static Invoker create(Method method) throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.lookup().unreflect(method);
+        Class targetType = method.getDeclaringClass();
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            targetType = null;
+        }
+        Class[] parameterTypes = method.getParameterTypes();
+        return new MethodHandleInvoker(spread(handle, parameterTypes.length), targetType, parameterTypes);
+    }
+
+    static Invoker create(Constructor constructor) throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        Class[] parameterTypes = constructor.getParameterTypes();
+        return new MethodHandleInvoker(spread(handle, parameterTypes.length), null, parameterTypes);
+    }
+
+    /**
+     * Adapt the handle, taking the target and then the parameters, to
+     * INVOKER_TYPE.
+     */
+    private static MethodHandle spread(MethodHandle handle, int parameterCount) {
+        // varargs are already collected into an array by the caller
+        handle = handle.asFixedArity();
+        return handle.asType(handle.type().generic())
+                .asSpreader(Object[].class, parameterCount)
+                .asType(INVOKER_TYPE);
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+        checkArguments(target, args);
+        try {
+            return (Object) handle.invokeExact(target, args);
+        } catch (Throwable e) {
+            // as Method.invoke(), the arguments can no longer fail to adapt
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Check the target and arguments as Method.invoke() does.
+     */
+    private void checkArguments(Object target, Object[] args) {
+        if (targetType != null) {
+            if (target == null)
+                throw new NullPointerException();
+            if (!targetType.isInstance(target))
+                throw new IllegalArgumentException("object is not an instance of declaring class");
+        }
+
+        int count = args == null ? 0 : args.length;
+        if (count != parameterTypes.length)
+            throw new IllegalArgumentException("wrong number of arguments");
+        for (int i = 0; i < count; i++) {
+            Object arg = args[i];
+            if (argumentTypes[i].isInstance(arg))
+                continue;
+            if (arg == null ? parameterTypes[i].isPrimitive() : !isWidening(parameterTypes[i], arg.getClass()))
+                throw new IllegalArgumentException("argument type mismatch");
+        }
+    }
+
+    /**
+     * @return Whether the wrapped value can be unboxed and widened to the
+     * type.
+     */
+    private static boolean isWidening(Class type, Class argClass) {
+        if (!type.isPrimitive() || type == Boolean.TYPE || type == Character.TYPE)
+            return false;
+        if (argClass == Character.class)
+            return indexOf(type) >= indexOf(Integer.TYPE);
+        if (!Primitive.isWrapperType(argClass))
+            return false;
+        int from = indexOf(Primitive.unboxType(argClass));
+        return from != -1 && from < indexOf(type);
+    }
+
+    private static int indexOf(Class type) {
+        for (int i = 0; i < NUMERIC_TYPES.length; i++)
+            if (NUMERIC_TYPES[i] == type)
+                return i;
+        return -1;
+    }
+}
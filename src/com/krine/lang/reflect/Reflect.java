@@ -47,6 +47,17 @@ public final class Reflect {
      * @return the result of the method call
      */
     public static Object invokeObjectMethod(Object object, String methodName, Object[] args, KrineBasicInterpreter krineBasicInterpreter, CallStack callStack, SimpleNode callerInfo) throws ReflectException, EvalError, InvocationTargetException {
+        return invokeObjectMethod(object, methodName, args, krineBasicInterpreter, callStack, callerInfo, null);
+    }
+
+    /**
+     * Invoke method on arbitrary object instance, using and filling the
+     * inline cache of the call site.
+     *
+     * @param cache may be null
+     * @return the result of the method call
+     */
+    public static Object invokeObjectMethod(Object object, String methodName, Object[] args, KrineBasicInterpreter krineBasicInterpreter, CallStack callStack, SimpleNode callerInfo, InlineCache<Method> cache) throws ReflectException, EvalError, InvocationTargetException {
         // Krine scripted object
         if (object instanceof This && !This.isExposedThisMethod(methodName)) {
             return ((This) object).invokeMethod(methodName, args, krineBasicInterpreter, callStack, callerInfo, false/*declaredOnly*/);
@@ -57,9 +68,9 @@ public final class Reflect {
             KrineClassManager dcm = krineBasicInterpreter == null ? null : krineBasicInterpreter.getClassManager();
             Class clazz = object.getClass();
 
-            Method method = resolveExpectedJavaMethod(dcm, clazz, object, methodName, args, false);
+            Method method = resolveCachedJavaMethod(cache, dcm, clazz, object, methodName, args, false);
 
-            return invokeMethod(method, object, args);
+            return invokeMethod(method, object, args, dcm);
         } catch (UtilEvalException e) {
             throw e.toEvalError(callerInfo, callStack);
         }
@@ -72,9 +83,36 @@ public final class Reflect {
      * method being a krine scripted method.
      */
     public static Object invokeStaticMethod(KrineClassManager dcm, Class clazz, String methodName, Object[] args) throws ReflectException, UtilEvalException, InvocationTargetException {
+        return invokeStaticMethod(dcm, clazz, methodName, args, null);
+    }
+
+    /**
+     * Invoke a method known to be static, using and filling the inline
+     * cache of the call site.
+     *
+     * @param cache may be null
+     */
+    public static Object invokeStaticMethod(KrineClassManager dcm, Class clazz, String methodName, Object[] args, InlineCache<Method> cache) throws ReflectException, UtilEvalException, InvocationTargetException {
         KrineBasicInterpreter.debug("invoke static Method");
-        Method method = resolveExpectedJavaMethod(dcm, clazz, null, methodName, args, true);
-        return invokeMethod(method, null, args);
+        Method method = resolveCachedJavaMethod(cache, dcm, clazz, null, methodName, args, true);
+        return invokeMethod(method, null, args, dcm);
+    }
+
+    /**
+     * Look the method up in the inline cache before resolving it.
+     */
+    private static Method resolveCachedJavaMethod(InlineCache<Method> cache, KrineClassManager dcm, Class clazz, Object object, String name, Object[] args, boolean staticOnly) throws ReflectException, UtilEvalException {
+        // resolveExpectedJavaMethod() reports the null target
+        if (cache == null || object == Primitive.NULL) {
+            return resolveExpectedJavaMethod(dcm, clazz, object, name, args, staticOnly);
+        }
+
+        Method method = cache.lookup(clazz, args, staticOnly);
+        if (method == null) {
+            method = resolveExpectedJavaMethod(dcm, clazz, object, name, args, staticOnly);
+            cache.add(clazz, args, staticOnly, method);
+        }
+        return method;
     }
 
 
@@ -85,6 +123,18 @@ public final class Reflect {
      * @param args may be null
      */
     public static Object invokeMethod(Method method, Object object, Object[] args) throws ReflectException, InvocationTargetException {
+        return invokeMethod(method, object, args, null);
+    }
+
+    /**
+     * Invoke the Java method on the specified object, performing needed
+     * type mappings on arguments and return values.  The call goes through
+     * the invoker cached by the class manager.
+     *
+     * @param args may be null
+     * @param dcm  may be null, to use plain reflection.
+     */
+    public static Object invokeMethod(Method method, Object object, Object[] args, KrineClassManager dcm) throws ReflectException, InvocationTargetException {
         if (args == null) {
             args = new Object[0];
         }
@@ -126,14 +176,15 @@ public final class Reflect {
         logInvokeMethod("Invoking method (after massaging values): ", method, tmpArgs);
 
         try {
-            Object returnValue = method.invoke(object, tmpArgs);
+            Object returnValue = dcm == null ? method.invoke(object, tmpArgs)
+                    : dcm.getInvoker(method).invoke(object, tmpArgs);
             if (returnValue == null) {
                 returnValue = Primitive.NULL;
             }
             Class returnType = method.getReturnType();
 
             return Primitive.wrap(returnValue, returnType);
-        } catch (IllegalAccessException e) {
+        } catch (IllegalAccessException | InstantiationException e) {
             throw new ReflectException("Cannot access method " + StringUtil.methodString(method.getName(), method.getParameterTypes()) + " in '" + method.getDeclaringClass() + "' :" + e, e);
         }
     }
@@ -169,25 +220,30 @@ public final class Reflect {
     }
 
 
-    public static Object getStaticFieldValue(Class clazz, String fieldName) throws UtilEvalException, ReflectException {
-        return getFieldValue(clazz, null, fieldName, true/*onlyStatic*/);
+    public static Object getStaticFieldValue(KrineClassManager dcm, Class clazz, String fieldName) throws UtilEvalException, ReflectException {
+        return getFieldValue(dcm, clazz, null, fieldName, true/*onlyStatic*/);
     }
 
 
-    public static Object getObjectFieldValue(Object object, String fieldName) throws UtilEvalException, ReflectException {
+    public static Object getObjectFieldValue(KrineClassManager dcm, Object object, String fieldName) throws UtilEvalException, ReflectException {
         if (object instanceof This) {
             return ((This) object).namespace.getVariable(fieldName);
         } else if (object == Primitive.NULL) {
             //noinspection ThrowableInstanceNeverThrown
             throw new UtilTargetException(new NullPointerException("Attempt to access field '" + fieldName + "' on null value"));
         } else {
+            Class clazz = object.getClass();
+            // no field, try property access without failing the field first
+            if (findJavaField(dcm, clazz, fieldName) == null && hasObjectPropertyGetter(dcm, clazz, fieldName)) {
+                return getObjectProperty(dcm, object, fieldName);
+            }
             try {
-                return getFieldValue(object.getClass(), object, fieldName, false/*onlyStatic*/);
+                return getFieldValue(dcm, clazz, object, fieldName, false/*onlyStatic*/);
             } catch (ReflectException e) {
-                // no field, try property access
+                // field not accessible, try property access
 
-                if (hasObjectPropertyGetter(object.getClass(), fieldName)) {
-                    return getObjectProperty(object, fieldName);
+                if (hasObjectPropertyGetter(dcm, clazz, fieldName)) {
+                    return getObjectProperty(dcm, object, fieldName);
                 } else {
                     throw e;
                 }
@@ -196,8 +252,8 @@ public final class Reflect {
     }
 
 
-    public static LeftValue getLHSStaticField(Class clazz, String fieldName) throws UtilEvalException, ReflectException {
-        Field f = resolveExpectedJavaField(clazz, fieldName, true/*onlyStatic*/);
+    public static LeftValue getLHSStaticField(KrineClassManager dcm, Class clazz, String fieldName) throws UtilEvalException, ReflectException {
+        Field f = resolveExpectedJavaField(dcm, clazz, fieldName, true/*onlyStatic*/);
         return new LeftValue(f);
     }
 
@@ -208,7 +264,7 @@ public final class Reflect {
      * This method also deals with the field style property access.
      * In the field does not exist we check for a property setter.
      */
-    public static LeftValue getLHSObjectField(Object object, String fieldName) throws UtilEvalException, ReflectException {
+    public static LeftValue getLHSObjectField(KrineClassManager dcm, Object object, String fieldName) throws UtilEvalException, ReflectException {
         if (object instanceof This) {
             // I guess this is when we pass it as an argument?
             // Setting locally
@@ -216,23 +272,19 @@ public final class Reflect {
             return new LeftValue(((This) object).namespace, fieldName, recurse);
         }
 
-        try {
-            Field f = resolveExpectedJavaField(object.getClass(), fieldName, false/*staticOnly*/);
-            return new LeftValue(object, f);
-        } catch (ReflectException e) {
-            // not a field, try property access
-            if (hasObjectPropertySetter(object.getClass(), fieldName)) {
-                return new LeftValue(object, fieldName);
-            } else {
-                throw e;
-            }
+        Class clazz = object.getClass();
+        // not a field, try property access
+        if (findJavaField(dcm, clazz, fieldName) == null && hasObjectPropertySetter(dcm, clazz, fieldName)) {
+            return new LeftValue(object, fieldName);
         }
+        Field f = resolveExpectedJavaField(dcm, clazz, fieldName, false/*staticOnly*/);
+        return new LeftValue(object, f);
     }
 
 
-    private static Object getFieldValue(Class clazz, Object object, String fieldName, boolean staticOnly) throws UtilEvalException, ReflectException {
+    private static Object getFieldValue(KrineClassManager dcm, Class clazz, Object object, String fieldName, boolean staticOnly) throws UtilEvalException, ReflectException {
         try {
-            Field f = resolveExpectedJavaField(clazz, fieldName, staticOnly);
+            Field f = resolveExpectedJavaField(dcm, clazz, fieldName, staticOnly);
 
             Object value = f.get(object);
             Class returnType = f.getType();
@@ -246,18 +298,15 @@ public final class Reflect {
     }
 
     /**
-     * Note: this method and resolveExpectedJavaField should be rewritten
-     * to invert this logic so that no exceptions need to be caught
-     * unnecessarily.  This is just a temporary impl.
-     *
+     * @param dcm may be null, the field is not cached then
      * @return the field or null if not found
      */
-    public static Field resolveJavaField(Class clazz, String fieldName, boolean staticOnly) throws UtilEvalException {
-        try {
-            return resolveExpectedJavaField(clazz, fieldName, staticOnly);
-        } catch (ReflectException e) {
-            return null;
+    public static Field resolveJavaField(KrineClassManager dcm, Class clazz, String fieldName, boolean staticOnly) throws UtilEvalException {
+        Field field = findJavaField(dcm, clazz, fieldName);
+        if (field != null) {
+            checkFoundStaticField(field, staticOnly, clazz);
         }
+        return field;
     }
 
 
@@ -266,27 +315,49 @@ public final class Reflect {
      *                          Note: this should really just throw NoSuchFieldException... need
      *                          to change related signatures and code.
      */
-    protected static Field resolveExpectedJavaField(Class clazz, String fieldName, boolean staticOnly) throws UtilEvalException, ReflectException {
-        Field field;
-        try {
-            if (Capabilities.haveAccessibility()) {
-                field = findAccessibleField(clazz, fieldName);
-            } else {
-                // Class getField() finds only public fields
-                field = clazz.getField(fieldName);
-            }
-        } catch (NoSuchFieldException e) {
-            throw new ReflectException("No such field or field isn't accessible: " + fieldName, e);
-
-        } catch (SecurityException e) {
-            throw new UtilTargetException("Security Exception while searching fields of: " + clazz, e);
+    protected static Field resolveExpectedJavaField(KrineClassManager dcm, Class clazz, String fieldName, boolean staticOnly) throws UtilEvalException, ReflectException {
+        Field field = findJavaField(dcm, clazz, fieldName);
+        if (field == null) {
+            throw new ReflectException("No such field or field isn't accessible: " + fieldName);
         }
+        checkFoundStaticField(field, staticOnly, clazz);
+        return field;
+    }
+
 
+    private static void checkFoundStaticField(Field field, boolean staticOnly, Class clazz) throws UtilEvalException {
         if (staticOnly && !Modifier.isStatic(field.getModifiers())) {
-            throw new UtilEvalException("Can't reach instance field: " + fieldName + " from static context: " + clazz.getName());
+            throw new UtilEvalException("Can't reach instance field: " + field.getName() + " from static context: " + clazz.getName());
         }
+    }
 
-        return field;
+
+    /**
+     * Look up the field in the accessor cache of the class, searching the
+     * class on a miss.
+     *
+     * @param dcm may be null, the class is searched every time then
+     * @return the field or null if not found
+     */
+    private static Field findJavaField(KrineClassManager dcm, Class clazz, String fieldName) throws UtilEvalException {
+        AccessorCache cache = AccessorCache.forClass(dcm, clazz);
+        Object field = cache.fields.get(fieldName);
+        if (field == null) {
+            try {
+                if (Capabilities.haveAccessibility()) {
+                    field = findAccessibleField(clazz, fieldName);
+                } else {
+                    // Class getField() finds only public fields
+                    field = clazz.getField(fieldName);
+                }
+            } catch (NoSuchFieldException e) {
+                field = AccessorCache.NONE;
+            } catch (SecurityException e) {
+                throw new UtilTargetException("Security Exception while searching fields of: " + clazz, e);
+            }
+            cache.fields.put(fieldName, field);
+        }
+        return field == AccessorCache.NONE ? null : (Field) field;
     }
 
 
@@ -506,12 +577,52 @@ public final class Reflect {
      * <p/>
      */
     public static Object constructObject(Class clazz, Object[] args) throws ReflectException, InvocationTargetException {
+        return constructObject(clazz, args, null);
+    }
+
+    /**
+     * Primary object constructor, calling the constructor through the
+     * invoker cached by the class manager.
+     *
+     * @param dcm may be null, to use plain reflection.
+     */
+    public static Object constructObject(Class clazz, Object[] args, KrineClassManager dcm) throws ReflectException, InvocationTargetException {
+        return constructObject(clazz, args, dcm, null);
+    }
+
+    /**
+     * Construct the object, looking the constructor up in the inline cache
+     * of the allocation site before resolving it.
+     *
+     * @param cache may be null.
+     */
+    public static Object constructObject(Class clazz, Object[] args, KrineClassManager dcm, InlineCache<Constructor> cache) throws ReflectException, InvocationTargetException {
         if (clazz.isInterface()) {
             throw new ReflectException("Can't create instance of an interface: " + clazz);
         }
 
-        Class[] types = Types.getTypes(args);
+        Constructor con = cache == null ? null : cache.lookup(clazz, args, false);
+        if (con == null) {
+            con = resolveConstructor(clazz, Types.getTypes(args));
+            if (cache != null) {
+                cache.add(clazz, args, false, con);
+            }
+        }
 
+        args = Primitive.unwrap(args);
+        try {
+            return dcm == null ? con.newInstance(args) : dcm.getInvoker(con).invoke(null, args);
+        } catch (InstantiationException e) {
+            throw new ReflectException("Class " + clazz + " is abstract ", e);
+        } catch (IllegalAccessException e) {
+            throw new ReflectException("We don't have permission to create an instance. Use setAccessibility(true) to enable access.", e);
+        } catch (IllegalArgumentException e) {
+            throw new ReflectException("The number of arguments was wrong", e);
+        }
+    }
+
+
+    private static Constructor resolveConstructor(Class clazz, Class[] types) throws ReflectException {
         // Find the constructor.
         // (there are no inherited constructors to worry about)
         Constructor[] constructors = Capabilities.haveAccessibility() ? clazz.getDeclaredConstructors() : clazz.getConstructors();
@@ -527,17 +638,7 @@ public final class Reflect {
         if (!isPublic(con) && Capabilities.haveAccessibility()) {
             con.setAccessible(true);
         }
-
-        args = Primitive.unwrap(args);
-        try {
-            return con.newInstance(args);
-        } catch (InstantiationException e) {
-            throw new ReflectException("Class " + clazz + " is abstract ", e);
-        } catch (IllegalAccessException e) {
-            throw new ReflectException("We don't have permission to create an instance. Use setAccessibility(true) to enable access.", e);
-        } catch (IllegalArgumentException e) {
-            throw new ReflectException("The number of arguments was wrong", e);
-        }
+        return con;
     }
 
 
@@ -655,10 +756,21 @@ public final class Reflect {
     }
 
 
-    public static boolean hasObjectPropertyGetter(Class<?> clazz, String propName) {
+    public static boolean hasObjectPropertyGetter(KrineClassManager dcm, Class<?> clazz, String propName) {
         if (clazz == Primitive.class) {
             return false;
         }
+        AccessorCache cache = AccessorCache.forClass(dcm, clazz);
+        Boolean found = cache.publicGetters.get(propName);
+        if (found == null) {
+            found = findPublicPropertyGetter(clazz, propName);
+            cache.publicGetters.put(propName, found);
+        }
+        return found;
+    }
+
+
+    private static boolean findPublicPropertyGetter(Class<?> clazz, String propName) {
         String getterName = accessorName("get", propName);
         try {
             clazz.getMethod(getterName);
@@ -674,7 +786,18 @@ public final class Reflect {
     }
 
 
-    public static boolean hasObjectPropertySetter(Class clazz, String propName) {
+    public static boolean hasObjectPropertySetter(KrineClassManager dcm, Class clazz, String propName) {
+        AccessorCache cache = AccessorCache.forClass(dcm, clazz);
+        Boolean found = cache.setters.get(propName);
+        if (found == null) {
+            found = findPropertySetter(clazz, propName);
+            cache.setters.put(propName, found);
+        }
+        return found;
+    }
+
+
+    private static boolean findPropertySetter(Class clazz, String propName) {
         String setterName = accessorName("set", propName);
         Method[] methods = clazz.getMethods();
 
@@ -689,10 +812,47 @@ public final class Reflect {
     }
 
 
-    public static Object getObjectProperty(Object obj, String propName) throws UtilEvalException, ReflectException {
-        Object[] args = new Object[]{};
-
+    /**
+     * @param dcm may be null, the getter is searched every time then
+     */
+    public static Object getObjectProperty(KrineClassManager dcm, Object obj, String propName) throws UtilEvalException, ReflectException {
         KrineBasicInterpreter.debug("property access: ");
+
+        AccessorCache cache = AccessorCache.forClass(dcm, obj.getClass());
+        Object getter = cache.getters.get(propName);
+        if (getter == null) {
+            Method method = findPropertyGetter(obj, propName);
+            getter = method == null ? AccessorCache.NONE : new AccessorCache.Getter(method);
+            cache.getters.put(propName, getter);
+        }
+        AccessorCache.Getter resolved = getter == AccessorCache.NONE
+                // search again for the message
+                ? new AccessorCache.Getter(findExpectedPropertyGetter(obj, propName))
+                : (AccessorCache.Getter) getter;
+        try {
+            return resolved.get(obj);
+        } catch (InvocationTargetException e) {
+            throw new UtilEvalException("Property accessor threw exception: " + e.getTargetException());
+        } catch (IllegalAccessException | InstantiationException e) {
+            throw new ReflectException("Cannot access method " + resolved.method.getName() + " in '" + resolved.method.getDeclaringClass() + "' :" + e, e);
+        }
+    }
+
+
+    /**
+     * @return the getter or null if there is none.
+     */
+    private static Method findPropertyGetter(Object obj, String propName) {
+        try {
+            return findExpectedPropertyGetter(obj, propName);
+        } catch (ReflectException e) {
+            return null;
+        }
+    }
+
+
+    private static Method findExpectedPropertyGetter(Object obj, String propName) throws ReflectException {
+        Object[] args = new Object[]{};
         Method method = null;
 
         Exception e1 = null, e2 = null;
@@ -716,12 +876,7 @@ public final class Reflect {
         if (method == null) {
             throw new ReflectException("Error in property getter: " + e1 + (e2 != null ? " : " + e2 : ""));
         }
-
-        try {
-            return invokeMethod(method, obj, args);
-        } catch (InvocationTargetException e) {
-            throw new UtilEvalException("Property accessor threw exception: " + e.getTargetException());
-        }
+        return method;
     }
 
 
@@ -0,0 +1,196 @@
+package com.krine.lang.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A directory of on-disk cache files, bounded in size.
+ * <p>
+ * Once the files of the cache grow past the limit the least recently used
+ * ones are deleted, until they take three quarters of it.  Files unused
+ * for thirty days are deleted as well, so that entries nothing asks for
+ * any more, e.g. of removed jars or old JDKs, do not stay around.  Reading
+ * an entry marks it used.  Only the files with the extensions of the cache
+ * are managed, anything else in the directory is left alone.
+ * <p>
+ * The directory is set by a system property, e.g. "krine.classCache", and
+ * defaults to a directory under ~/.krine.  Set it to "false" to turn the
+ * cache off, or to "true" to turn a cache which is off by default on in
+ * its default directory.  The limit is set in megabytes by the same
+ * property with "Size" appended, e.g. "krine.classCacheSize".
+ */
+public final class CacheDirectory {
+    private static final long MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+    /**
+     * Left by writers which did not get to move them in place
+     */
+    private static final long TEMP_MAX_AGE = 60L * 60 * 1000;
+
+    private final File dir;
+    private final String[] extensions;
+    private final long maxBytes;
+    /**
+     * The bytes of the cache as far as we know, -1 until it was listed
+     */
+    private long size = -1;
+
+    private CacheDirectory(File dir, String[] extensions, long maxBytes) {
+        this.dir = dir;
+        this.extensions = extensions;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param property        The system property setting the directory.
+     * @param defaultName     The directory under ~/.krine otherwise.
+     * @param onByDefault     Whether the cache is on if the property is not set.
+     * @param defaultSize     The limit in megabytes if not set.
+     * @param extensions      The extensions of the cache files.
+     * @return The cache directory, or null if the cache is turned off.
+     */
+    public static CacheDirectory get(String property, String defaultName, boolean onByDefault,
+                                     int defaultSize, String... extensions) {
+        try {
+            String path = System.getProperty(property);
+            if (path == null ? !onByDefault : "false".equals(path))
+                return null;
+            if ("true".equals(path))
+                path = null;
+            File dir = path != null ? new File(path)
+                    : new File(System.getProperty("user.home"), ".krine" + File.separator + defaultName);
+            long size = Math.max(1, Integer.getInteger(property + "Size", defaultSize));
+            return new CacheDirectory(dir, extensions, size * 1024 * 1024);
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    public File getFile(String name) {
+        return new File(dir, name);
+    }
+
+    /**
+     * Mark a file read from the cache as recently used.
+     */
+    public void used(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * The contents of a cache file.
+     */
+    public interface Contents {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Write the file aside and move it in place, other VMs may be reading
+     * it, then trim the cache if it grew past its limit.
+     */
+    public void write(File file, Contents contents) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Can't create " + dir);
+
+        // not File.createTempFile(), which seeds a SecureRandom first
+        File temp = new File(dir, file.getName() + "." + System.nanoTime() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                contents.write(out);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            // already gone if it was moved
+            temp.delete();
+        }
+        added(file.length());
+    }
+
+    private synchronized void added(long bytes) {
+        // other VMs may be writing too, the size is listed again on trimming
+        if (size < 0 || (size += bytes) > maxBytes)
+            trim();
+    }
+
+    private void trim() {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        long now = System.currentTimeMillis();
+        long total = 0;
+        List<Entry> entries = new ArrayList<>(files.length);
+        for (File file : files) {
+            String name = file.getName();
+            boolean temp = name.endsWith(".tmp");
+            if (!isCacheFile(temp ? getTempFileEntry(name) : name))
+                continue;
+
+            long lastModified = file.lastModified();
+            if (now - lastModified > (temp ? TEMP_MAX_AGE : MAX_AGE)) {
+                file.delete();
+            } else if (!temp) {
+                Entry entry = new Entry(file, lastModified, file.length());
+                entries.add(entry);
+                total += entry.length;
+            }
+        }
+
+        if (total > maxBytes) {
+            Collections.sort(entries);
+            for (Entry entry : entries) {
+                if (total <= maxBytes / 4 * 3)
+                    break;
+                if (entry.file.delete())
+                    total -= entry.length;
+            }
+        }
+        size = total;
+    }
+
+    /**
+     * @return The name of the entry a temporary file was written for.
+     */
+    private static String getTempFileEntry(String name) {
+        // entry.nanoTime.tmp
+        int i = name.lastIndexOf('.', name.length() - ".tmp".length() - 1);
+        return i == -1 ? name : name.substring(0, i);
+    }
+
+    private boolean isCacheFile(String name) {
+        for (String extension : extensions)
+            if (name.endsWith(extension))
+                return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return dir.toString();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final File file;
+        final long lastModified;
+        final long length;
+
+        Entry(File file, long lastModified, long length) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public int compareTo(Entry other) {
+            return lastModified < other.lastModified ? -1
+                    : lastModified == other.lastModified ? 0 : 1;
+        }
+    }
+}
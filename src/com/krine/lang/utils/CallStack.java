@@ -37,8 +37,8 @@ import com.krine.lang.InterpreterException;
 import com.krine.lang.ast.NameSpace;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.EmptyStackException;
-import java.util.Stack;
 
 /**
  * A stack of NameSpaces representing the call path.
@@ -64,37 +64,52 @@ public final class CallStack implements Serializable {
 
     private static final long serialVersionUID = 0L;
 
-    private final Stack<NameSpace> stack = new Stack<>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Not synchronized, a CallStack is only used by one thread at a time
+    private NameSpace[] elements;
+    private int size;
 
 
     public CallStack() {
+        elements = new NameSpace[INITIAL_CAPACITY];
     }
 
     public CallStack(NameSpace namespace) {
+        this();
         push(namespace);
     }
 
+    private CallStack(NameSpace[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
     public void clear() {
-        stack.removeAllElements();
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
     }
 
     public void push(NameSpace ns) {
-        stack.push(ns);
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = ns;
     }
 
     public NameSpace top() {
-        return stack.peek();
+        if (size == 0)
+            throw new EmptyStackException();
+        return elements[size - 1];
     }
 
     /**
      * zero based.
      */
     public NameSpace get(int depth) {
-        int size = stack.size();
         if (depth >= size)
             return NameSpace.JAVA_CODE;
         else
-            return stack.get(size - 1 - depth);
+            return elements[size - 1 - depth];
     }
 
     /**
@@ -102,15 +117,18 @@ public final class CallStack implements Serializable {
      * zero based.
      */
     public void set(int depth, NameSpace ns) {
-        stack.set(stack.size() - 1 - depth, ns);
+        if (depth < 0 || depth >= size)
+            throw new ArrayIndexOutOfBoundsException(depth);
+        elements[size - 1 - depth] = ns;
     }
 
     public NameSpace pop() {
-        try {
-            return stack.pop();
-        } catch (EmptyStackException e) {
+        if (size == 0)
             throw new InterpreterException("pop on empty CallStack");
-        }
+
+        NameSpace ns = elements[--size];
+        elements[size] = null;
+        return ns;
     }
 
     /**
@@ -118,28 +136,22 @@ public final class CallStack implements Serializable {
      * value.
      */
     public NameSpace swap(NameSpace newTop) {
-        int last = stack.size() - 1;
-        NameSpace oldTop = stack.get(last);
-        stack.set(last, newTop);
+        if (size == 0)
+            throw new ArrayIndexOutOfBoundsException(-1);
+        NameSpace oldTop = elements[size - 1];
+        elements[size - 1] = newTop;
         return oldTop;
     }
 
     public int depth() {
-        return stack.size();
+        return size;
     }
 
-    /*
-        public NameSpace [] toArray() {
-            NameSpace [] nsa = new NameSpace [ depth() ];
-            stack.copyInto( nsa );
-            return nsa;
-        }
-    */
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("CallStack:\n");
-        for (int i = stack.size() - 1; i >= 0; i--)
-            sb.append("\t").append(stack.get(i)).append("\n");
+        for (int i = size - 1; i >= 0; i--)
+            sb.append("\t").append(elements[i]).append("\n");
 
         return sb.toString();
     }
@@ -149,8 +161,7 @@ public final class CallStack implements Serializable {
      * purposes, etc.
      */
     public CallStack copy() {
-        CallStack cs = new CallStack();
-        cs.stack.addAll(this.stack);
-        return cs;
+        return new CallStack(
+                Arrays.copyOf(elements, Math.max(size, INITIAL_CAPACITY)), size);
     }
 }